@@ -18,25 +18,34 @@ package io.github.zchunk.app.commands;
 
 import io.github.zchunk.app.ZChunkFilename;
 import io.github.zchunk.app.err.UncompressException;
-import io.github.zchunk.compressedint.CompressedInt;
+import io.github.zchunk.compression.api.DecompressionDictionary;
+import io.github.zchunk.compression.api.err.DecompressionException;
+import io.github.zchunk.fileformat.ChunkIndex;
+import io.github.zchunk.fileformat.MappedChunks;
+import io.github.zchunk.fileformat.ParallelZChunkInputStream;
 import io.github.zchunk.fileformat.ZChunk;
+import io.github.zchunk.fileformat.ZChunkExtractor;
 import io.github.zchunk.fileformat.ZChunkFile;
 import io.github.zchunk.fileformat.ZChunkHeader;
-import io.github.zchunk.fileformat.ZChunkHeaderChunkInfo;
 import io.github.zchunk.fileformat.ZChunkHeaderIndex;
+import io.github.zchunk.fileformat.err.InvalidFileException;
 import io.github.zchunk.fileformat.util.IOUtil;
-import io.github.zchunk.fileformat.util.OffsetUtil;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.RandomAccessFile;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
-import java.util.SortedSet;
+import java.nio.file.StandardOpenOption;
 import java.util.StringJoiner;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -51,12 +60,18 @@ public class Unzck implements Callable<Integer> {
 
   private static final Logger LOG = Logger.getLogger(Unzck.class.getCanonicalName());
 
-  @Option(names = {"-c", "--stdout"})
+  private static final int STDOUT_BUFFER_SIZE = 64 * 1024;
+
+  @Option(names = {"-c", "--stdout"}, description = "Write the uncompressed content to stdout instead of a file.")
   private boolean toStdOut;
 
   @Option(names = {"--dict"})
   private boolean dictOnly;
 
+  @Option(names = {"--verify"},
+          description = "Verify all checksums while extracting, only write the output if they match. Not with -c or --dict.")
+  private boolean verify;
+
   @Option(names = {"-o"})
   private @Nullable File outputFile;
 
@@ -66,15 +81,94 @@ public class Unzck implements Callable<Integer> {
 
   @Override
   public Integer call() {
+    if (this.verify && (this.toStdOut || this.dictOnly)) {
+      // the verified extraction only writes the complete content to a file.
+      throw new IllegalArgumentException("Option --verify cannot be combined with -c or --dict.");
+    }
+
     final ZChunkFile zChunkFile = ZChunk.fromFile(this.inputFile);
 
+    if (this.toStdOut) {
+      return decompressToStdOut(zChunkFile);
+    }
+
     if (this.dictOnly) {
       return decompressDict(zChunkFile);
     }
 
+    if (this.verify) {
+      return decompressFileVerified(zChunkFile);
+    }
+
     return decompressFile(zChunkFile);
   }
 
+  /**
+   * Writes the dict or the uncompressed content to stdout. Chunks are decompressed ahead in parallel, but written in
+   * order.
+   */
+  private int decompressToStdOut(final ZChunkFile zChunkFile) {
+    // the header was parsed already, it is not read again.
+    if (this.dictOnly) {
+      return writeToStdOut(ZChunk.getDecompressedDictStream(zChunkFile.getHeader(), this.inputFile));
+    }
+
+    // chunk reads block on disk IO, so they are not decompressed on the common pool.
+    final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+    try {
+      return writeToStdOut(ParallelZChunkInputStream.open(this.inputFile.toPath(), zChunkFile.getHeader(), executor,
+          ParallelZChunkInputStream.DEFAULT_MAX_WINDOW_BYTES));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private int writeToStdOut(final InputStream content) {
+    final PrintStream stdOut = System.out;
+
+    try (final InputStream decompressed = content) {
+      final byte[] buffer = new byte[STDOUT_BUFFER_SIZE];
+      int readCount;
+
+      while ((readCount = decompressed.read(buffer)) != -1) {
+        stdOut.write(buffer, 0, readCount);
+      }
+
+      stdOut.flush();
+      if (stdOut.checkError()) {
+        throw new IOException("Unable to write to stdout.");
+      }
+    } catch (final IOException ex) {
+      throw new UncompressException("Unable to decompress file to stdout: [" + this.inputFile.getAbsolutePath() + "].", ex);
+    }
+
+    return 0;
+  }
+
+  /**
+   * Extracts and verifies in a single pass over the data. An existing target file is only replaced on success.
+   */
+  private int decompressFileVerified(final ZChunkFile zChunkFile) {
+    final File target = getTargetFile();
+
+    try {
+      final File targetDir = target.getAbsoluteFile().getParentFile();
+      if (null == targetDir) {
+        throw new IllegalStateException("TargetDir Parent is null: [" + target.getAbsolutePath() + "].");
+      }
+      targetDir.mkdirs();
+
+      ZChunkExtractor.extractVerified(zChunkFile.getHeader(), this.inputFile.toPath(), target.toPath());
+    } catch (final InvalidFileException | DecompressionException invalidEx) {
+      throw new UncompressException("Verification of file failed: [" + this.inputFile.getAbsolutePath() + "].", invalidEx);
+    } catch (final IOException ex) {
+      throw new UncompressException("Unable to write file: [" + target.getAbsolutePath() + "].", ex);
+    }
+
+    return 0;
+  }
+
   private int decompressFile(final ZChunkFile zChunkFile) {
     final File target = getTargetFile();
 
@@ -87,14 +181,20 @@ public class Unzck implements Callable<Integer> {
       target.createNewFile();
 
       final ZChunkHeader zChunkFileHeader = zChunkFile.getHeader();
+      if (zChunkFileHeader.getPreface().getCompressionAlgorithm().isPassThrough()) {
+        transferStoredChunks(target, zChunkFileHeader);
+        return 0;
+      }
+
       final ZChunkHeaderIndex zChunkHeaderIndex = zChunkFileHeader.getIndex();
       if (zChunkHeaderIndex.getDictLength().getIntValue() == 0) {
         throw new UnsupportedOperationException("TODO: uncompress without dict");
       }
 
-      final byte[] decompressedDict = ZChunk.getDecompressedDict(zChunkFileHeader, this.inputFile);
+      // prepared once and shared by all chunks.
+      final DecompressionDictionary dict = ZChunk.getDecompressionDictionary(zChunkFileHeader, this.inputFile);
 
-      uncompressChunks(target, zChunkFileHeader, decompressedDict);
+      uncompressChunks(target, zChunkFileHeader, dict);
 
     } catch (final FileNotFoundException fnfe) {
       cleanPartialFile(target);
@@ -107,44 +207,68 @@ public class Unzck implements Callable<Integer> {
     return 0;
   }
 
+  /**
+   * Copies the chunks of a file which stores them uncompressed. The kernel moves the data from file to file.
+   */
+  private void transferStoredChunks(final File targetFile, final ZChunkHeader zChunkFileHeader) throws IOException {
+    final long totalLength = zChunkFileHeader.getIndex().getChunks().getTotalUncompressedLength();
+
+    try (final FileChannel input = FileChannel.open(this.inputFile.toPath(), StandardOpenOption.READ);
+        final FileChannel output = FileChannel.open(targetFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ZChunk.transferStoredContent(zChunkFileHeader, input, 0L, totalLength, output);
+    }
+  }
+
   private void uncompressChunks(final File targetFile,
                                 final ZChunkHeader zChunkFileHeader,
-                                final byte[] decompressedDict) throws IOException {
-    final SortedSet<ZChunkHeaderChunkInfo> chunks = zChunkFileHeader.getIndex().getChunkInfoSortedByIndex();
-
-    final RandomAccessFile accessFile = new RandomAccessFile(targetFile, "rwd");
-    final long totalLength = zChunkFileHeader.getIndex().getChunkInfoSortedByIndex().stream()
-        .map(ZChunkHeaderChunkInfo::getChunkUncompressedLength)
-        .mapToLong(CompressedInt::getLongValue)
-        .sum();
-    accessFile.setLength(totalLength);
-
-    CompletableFuture.allOf(
-        chunks.parallelStream()
-            .map(chunk -> CompletableFuture.runAsync(() -> writeChunk(targetFile, chunk, zChunkFileHeader, decompressedDict)))
-            .toArray(CompletableFuture[]::new)
-    ).join();
-  }
-
-  private void writeChunk(final File targetFile,
-                          final ZChunkHeaderChunkInfo chunk,
-                          final ZChunkHeader zChunkFileHeader,
-                          final byte[] decompressedDict) {
-    final long decompressedChunkOffset = OffsetUtil.getDecompressedChunkOffset(zChunkFileHeader.getIndex(), chunk);
-
-    try (final InputStream decompressedChunk = ZChunk.getDecompressedChunk(
-        zChunkFileHeader,
-        this.inputFile,
-        decompressedDict,
-        chunk.getCurrentIndex());
-        final RandomAccessFile outputStream = new RandomAccessFile(targetFile, "rw")) {
-      outputStream.seek(decompressedChunkOffset);
-      IOUtil.copy(decompressedChunk, outputStream);
-    } catch (final IOException ex) {
-      final String message = String.format("Unable to decompress chunk[%s] to File [%s] at position [%d].",
-          chunk,
+                                final DecompressionDictionary dict) throws IOException {
+    final ChunkIndex chunks = zChunkFileHeader.getIndex().getChunks();
+    final int chunkCount = chunks.getChunkCount();
+
+    // chunks are decompressed from one mapping into the other, the data never passes the java heap.
+    try (final FileChannel input = FileChannel.open(this.inputFile.toPath(), StandardOpenOption.READ);
+        final FileChannel output = FileChannel.open(targetFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      output.truncate(chunks.getTotalUncompressedLength());
+      final MappedChunks compressed = MappedChunks.mapCompressed(zChunkFileHeader, input);
+      final MappedChunks uncompressed = MappedChunks.mapUncompressed(zChunkFileHeader, output);
+
+      // reading the mapped chunks blocks on page faults, so they are not decompressed on the common pool.
+      final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+      try {
+        final CompletableFuture<?>[] chunkTasks = new CompletableFuture<?>[chunkCount];
+        for (int chunkNumber = 0; chunkNumber < chunkCount; chunkNumber++) {
+          final int currentChunk = chunkNumber;
+          chunkTasks[chunkNumber] = CompletableFuture.runAsync(
+              () -> writeChunk(compressed, uncompressed, targetFile, currentChunk, zChunkFileHeader, dict),
+              executor);
+        }
+
+        CompletableFuture.allOf(chunkTasks).join();
+      } catch (final CompletionException completionEx) {
+        if (completionEx.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) completionEx.getCause();
+        }
+
+        throw completionEx;
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  private static void writeChunk(final MappedChunks compressed,
+                                 final MappedChunks uncompressed,
+                                 final File targetFile,
+                                 final int chunkNumber,
+                                 final ZChunkHeader zChunkFileHeader,
+                                 final DecompressionDictionary dict) {
+    try {
+      ZChunk.decompressChunk(zChunkFileHeader, compressed, dict, chunkNumber, uncompressed.getChunk(chunkNumber));
+    } catch (final DecompressionException | UncheckedIOException ex) {
+      final String message = String.format("Unable to decompress chunk [%d] to File [%s] at position [%d].",
+          chunkNumber,
           targetFile.getAbsolutePath(),
-          decompressedChunkOffset);
+          zChunkFileHeader.getIndex().getChunks().getDecompressedChunkOffset(chunkNumber));
       throw new UncompressException(message, ex);
     }
 
@@ -203,6 +327,14 @@ public class Unzck implements Callable<Integer> {
     this.toStdOut = toStdOut;
   }
 
+  public boolean isVerify() {
+    return this.verify;
+  }
+
+  public void setVerify(final boolean verify) {
+    this.verify = verify;
+  }
+
   public boolean isDictOnly() {
     return this.dictOnly;
   }
@@ -233,6 +365,7 @@ public class Unzck implements Callable<Integer> {
     return new StringJoiner(", ", Unzck.class.getSimpleName() + "[", "]")
         .add("toStdOut=" + this.toStdOut)
         .add("dictOnly=" + this.dictOnly)
+        .add("verify=" + this.verify)
         .add("outputFile=" + this.outputFile)
         .add("inputFile=" + this.inputFile)
         .toString();
@@ -17,8 +17,10 @@
 package io.github.zchunk.app.commands;
 
 import io.github.zchunk.fileformat.util.ChecksumUtil;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.math.BigInteger;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -82,4 +84,72 @@ public class UnzckTest {
     Assertions.assertEquals("92236dfc074fa2db49a6345f71b51b9e", foundMd5);
   }
 
+  @Test
+  public void testUnzckFileVerified() throws NoSuchAlgorithmException, IOException {
+    final ClassLoader classLoader = getClass().getClassLoader();
+    final String pathToFiles = classLoader.getResource("files").getFile();
+
+    final File input = new File(pathToFiles, "LICENSE.dict.fodt.zck");
+    final File targetFile = new File(pathToFiles, "LICENSE.dict.verified.fodt");
+    final Unzck unzck = new Unzck();
+    unzck.setInputFile(input);
+    unzck.setOutputFile(targetFile);
+    unzck.setVerify(true);
+    unzck.call();
+
+    final MessageDigest md5 = MessageDigest.getInstance("md5");
+    final byte[] bytes = ChecksumUtil.calculateFileChecksum(targetFile, md5);
+    final String foundMd5 = new BigInteger(1, bytes).toString(16);
+
+    // same content as without verification.
+    Assertions.assertEquals("92236dfc074fa2db49a6345f71b51b9e", foundMd5);
+  }
+
+  @Test
+  public void testUnzckVerifyRejectsStdOutAndDict() {
+    final ClassLoader classLoader = getClass().getClassLoader();
+    final String pathToFiles = classLoader.getResource("files").getFile();
+
+    final File input = new File(pathToFiles, "LICENSE.dict.fodt.zck");
+    final Unzck toStdOut = new Unzck();
+    toStdOut.setInputFile(input);
+    toStdOut.setToStdOut(true);
+    toStdOut.setVerify(true);
+    final Unzck dictOnly = new Unzck();
+    dictOnly.setInputFile(input);
+    dictOnly.setDictOnly(true);
+    dictOnly.setVerify(true);
+
+    Assertions.assertAll(
+        () -> Assertions.assertThrows(IllegalArgumentException.class, toStdOut::call),
+        () -> Assertions.assertThrows(IllegalArgumentException.class, dictOnly::call)
+    );
+  }
+
+  @Test
+  public void testUnzckToStdOut() throws NoSuchAlgorithmException {
+    final ClassLoader classLoader = getClass().getClassLoader();
+    final String pathToFiles = classLoader.getResource("files").getFile();
+
+    final File input = new File(pathToFiles, "LICENSE.dict.fodt.zck");
+    final Unzck unzck = new Unzck();
+    unzck.setInputFile(input);
+    unzck.setToStdOut(true);
+
+    final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+    final PrintStream stdOut = System.out;
+    try {
+      System.setOut(new PrintStream(captured));
+      unzck.call();
+    } finally {
+      System.setOut(stdOut);
+    }
+
+    final MessageDigest md5 = MessageDigest.getInstance("md5");
+    final String foundMd5 = new BigInteger(1, md5.digest(captured.toByteArray())).toString(16);
+
+    // same content as extracted to a file.
+    Assertions.assertEquals("92236dfc074fa2db49a6345f71b51b9e", foundMd5);
+  }
+
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.benchmarks.compressedint;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler attached, so allocation rates are always reported.
+ *
+ * <p>Accepts the usual JMH command line options, e.g. {@code -p encodedLength=1,10} or a benchmark name regex.</p>
+ */
+public final class BenchmarkRunner {
+
+  private BenchmarkRunner() {
+    // main class
+  }
+
+  public static void main(final String[] args) throws RunnerException, CommandLineOptionException {
+    final CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+    final OptionsBuilder builder = new OptionsBuilder();
+    builder.parent(commandLineOptions);
+    builder.addProfiler(GCProfiler.class);
+
+    if (commandLineOptions.getIncludes().isEmpty()) {
+      builder.include(BenchmarkRunner.class.getPackage().getName() + ".*");
+    }
+
+    final Options options = builder.build();
+    new Runner(options).run();
+  }
+}
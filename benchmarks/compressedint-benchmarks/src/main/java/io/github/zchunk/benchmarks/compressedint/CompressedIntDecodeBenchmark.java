@@ -0,0 +1,146 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.benchmarks.compressedint;
+
+import io.github.zchunk.compressedint.BulkCompressedIntDecoder;
+import io.github.zchunk.compressedint.CompressedIntChannelReader;
+import io.github.zchunk.compressedint.CompressedIntFactory;
+import io.github.zchunk.compressedint.CompressedIntUtil;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decoding of compressed ints: single values, bulk runs and the different sources (array, buffers, stream, channel).
+ *
+ * <p>Bulk benchmarks are normalized to one value per operation, so all scores are comparable.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CompressedIntDecodeBenchmark {
+
+  @Benchmark
+  public long single_array(final EncodedValues state) {
+    return CompressedIntUtil.decodeUnsignedLong(state.encoded, state.nextIndex() * state.encodedLength);
+  }
+
+  @Benchmark
+  public long single_directBuffer(final EncodedValues state) {
+    return CompressedIntUtil.decodeUnsignedLong(state.directBuffer, state.nextIndex() * state.encodedLength);
+  }
+
+  @Benchmark
+  public long single_copyingFactory(final EncodedValues state) {
+    return CompressedIntFactory.fromCompressedBytes(state.encoded, state.nextIndex() * state.encodedLength).getUnsignedLongValue();
+  }
+
+  @Benchmark
+  public long single_view(final EncodedValues state) {
+    return CompressedIntFactory.wrap(state.encoded, state.nextIndex() * state.encodedLength).getUnsignedLongValue();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EncodedValues.COUNT)
+  public void bulk_array(final EncodedValues state, final Blackhole blackhole) {
+    final byte[] encoded = state.encoded;
+    int offset = 0;
+
+    while (offset < encoded.length) {
+      blackhole.consume(CompressedIntUtil.decodeUnsignedLong(encoded, offset));
+      offset += CompressedIntUtil.compressedLength(encoded, offset);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EncodedValues.COUNT)
+  public long[] bulk_columnar(final EncodedValues state, final Columns columns) {
+    BulkCompressedIntDecoder.decodeRecords(
+        state.encoded, 0, EncodedValues.COUNT / 2, 0, columns.first, columns.second, columns.lengths);
+
+    return columns.first;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EncodedValues.COUNT)
+  public void bulk_heapBuffer(final EncodedValues state, final Blackhole blackhole) {
+    decodeAll(state.heapBuffer, blackhole);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EncodedValues.COUNT)
+  public void bulk_directBuffer(final EncodedValues state, final Blackhole blackhole) {
+    decodeAll(state.directBuffer, blackhole);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EncodedValues.COUNT)
+  public void bulk_inputStream(final EncodedValues state, final Blackhole blackhole) throws IOException {
+    final ByteArrayInputStream inputStream = new ByteArrayInputStream(state.encoded);
+
+    for (int index = 0; index < EncodedValues.COUNT; index++) {
+      blackhole.consume(CompressedIntFactory.readCompressedInt(inputStream).getUnsignedLongValue());
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EncodedValues.COUNT)
+  public void bulk_channelReader(final EncodedValues state, final Blackhole blackhole) throws IOException {
+    final CompressedIntChannelReader reader = new CompressedIntChannelReader(
+        Channels.newChannel(new ByteArrayInputStream(state.encoded)));
+
+    for (int index = 0; index < EncodedValues.COUNT; index++) {
+      blackhole.consume(reader.readUnsignedLong());
+    }
+  }
+
+  private static void decodeAll(final ByteBuffer buffer, final Blackhole blackhole) {
+    buffer.position(0);
+
+    while (buffer.hasRemaining()) {
+      blackhole.consume(CompressedIntUtil.decodeUnsignedLong(buffer));
+    }
+  }
+
+  /**
+   * Output columns for {@link BulkCompressedIntDecoder}, which decodes the run as pairs of values.
+   */
+  @State(Scope.Thread)
+  public static class Columns {
+
+    final long[] first = new long[EncodedValues.COUNT / 2];
+
+    final long[] second = new long[EncodedValues.COUNT / 2];
+
+    final byte[] lengths = new byte[EncodedValues.COUNT];
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.benchmarks.compressedint;
+
+import io.github.zchunk.compressedint.CompressedInt;
+import io.github.zchunk.compressedint.CompressedIntFactory;
+import io.github.zchunk.compressedint.CompressedIntUtil;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding of compressed ints: allocating vs. in-place, single values and bulk runs.
+ *
+ * <p>Bulk benchmarks are normalized to one value per operation, so all scores are comparable.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CompressedIntEncodeBenchmark {
+
+  @Benchmark
+  public byte[] single_compress(final EncodedValues state) {
+    return CompressedIntUtil.compress(state.values[state.nextIndex()]);
+  }
+
+  @Benchmark
+  public CompressedInt single_valueOf(final EncodedValues state) {
+    return CompressedIntFactory.valueOf(state.values[state.nextIndex()]);
+  }
+
+  @Benchmark
+  public int single_inPlace(final EncodedValues state, final Target target) {
+    return CompressedIntUtil.encode(state.values[state.nextIndex()], target.array, 0);
+  }
+
+  @Benchmark
+  public int single_encodedLength(final EncodedValues state) {
+    return CompressedIntUtil.encodedLength(state.values[state.nextIndex()]);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EncodedValues.COUNT)
+  public byte[] bulk_array(final EncodedValues state, final Target target) {
+    final byte[] array = target.array;
+    int offset = 0;
+
+    for (final long value : state.values) {
+      offset += CompressedIntUtil.encode(value, array, offset);
+    }
+
+    return array;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EncodedValues.COUNT)
+  public ByteBuffer bulk_directBuffer(final EncodedValues state, final Target target) {
+    final ByteBuffer buffer = target.directBuffer;
+    buffer.clear();
+
+    for (final long value : state.values) {
+      CompressedIntUtil.encode(value, buffer);
+    }
+
+    return buffer;
+  }
+
+  /**
+   * Preallocated targets, large enough for a run of {@link EncodedValues#COUNT} ten byte values.
+   */
+  @State(Scope.Thread)
+  public static class Target {
+
+    final byte[] array = new byte[EncodedValues.COUNT * CompressedIntUtil.MAX_COMPRESSED_INT_LENGTH];
+
+    final ByteBuffer directBuffer = ByteBuffer.allocateDirect(EncodedValues.COUNT * CompressedIntUtil.MAX_COMPRESSED_INT_LENGTH);
+  }
+}
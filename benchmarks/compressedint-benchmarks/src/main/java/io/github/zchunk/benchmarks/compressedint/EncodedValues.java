@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.benchmarks.compressedint;
+
+import io.github.zchunk.compressedint.CompressedIntUtil;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A fixed run of values which all encode to exactly {@link #encodedLength} bytes.
+ */
+@State(Scope.Thread)
+public class EncodedValues {
+
+  static final int COUNT = 1024;
+
+  @Param({"1", "2", "3", "4", "5", "8", "9", "10"})
+  int encodedLength;
+
+  long[] values;
+
+  /**
+   * All values, encoded back to back.
+   */
+  byte[] encoded;
+
+  ByteBuffer heapBuffer;
+
+  ByteBuffer directBuffer;
+
+  /**
+   * Index of the next value for single value benchmarks.
+   */
+  int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    final SplittableRandom random = new SplittableRandom(0x5eedL);
+    this.values = new long[COUNT];
+    this.encoded = new byte[COUNT * this.encodedLength];
+
+    // smallest value needing encodedLength bytes and the number of payload bits above it.
+    final int lowBits = 7 * (this.encodedLength - 1);
+    final long minimum = this.encodedLength == 1 ? 0L : 1L << lowBits;
+
+    int offset = 0;
+    for (int index = 0; index < COUNT; index++) {
+      final long value = minimum | (random.nextLong() & payloadMask(Math.min(lowBits + 7, Long.SIZE)));
+      this.values[index] = value;
+      offset += CompressedIntUtil.encode(value, this.encoded, offset);
+    }
+
+    if (offset != this.encoded.length) {
+      throw new IllegalStateException("Expected [" + this.encoded.length + "] encoded bytes, got [" + offset + "].");
+    }
+
+    this.heapBuffer = ByteBuffer.wrap(this.encoded);
+    this.directBuffer = ByteBuffer.allocateDirect(this.encoded.length);
+    this.directBuffer.put(this.encoded);
+    this.directBuffer.flip();
+  }
+
+  int nextIndex() {
+    final int index = this.next;
+    this.next = (index + 1) & (COUNT - 1);
+
+    return index;
+  }
+
+  private static long payloadMask(final int bits) {
+    return bits == Long.SIZE ? -1L : (1L << bits) - 1L;
+  }
+}
@@ -17,41 +17,61 @@
 package io.github.zchunk.compressedint;
 
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.StringJoiner;
 import org.immutables.value.Value;
 
 @Value.Immutable
 public abstract class AbstractCompressedInt implements CompressedInt {
 
+  /**
+   * Decoded once from {@link #getCompressedBytes()} when the instance is built, because each call to
+   * {@link #getCompressedBytes()} copies the array. It cannot be set, so it always matches the compressed bytes.
+   */
   @Override
-  @Value.Lazy
-  public BigInteger getValue() {
-    return CompressedIntUtil.decompress(getCompressedBytes());
+  @Value.Derived
+  public long getUnsignedLongValue() {
+    final byte[] compressedBytes = getCompressedBytes();
+
+    return CompressedIntUtil.decodeUnsignedLong(compressedBytes, 0, compressedBytes.length);
   }
 
+  /**
+   * The length of {@link #getCompressedBytes()}, stored when the instance is built.
+   */
   @Override
-  @Value.Lazy
-  public long getLongValue() {
-    return getValue().longValueExact();
+  @Value.Derived
+  public int getCompressedLength() {
+    return getCompressedBytes().length;
   }
 
   @Override
-  @Value.Lazy
-  public long getUnsignedLongValue() {
-    return getValue().longValue();
+  public boolean equals(final Object other) {
+    if (this == other) {
+      return true;
+    }
+
+    if (other instanceof CompressedIntView) {
+      return other.equals(this);
+    }
+
+    if (!(other instanceof CompressedInt)) {
+      return false;
+    }
+
+    return Arrays.equals(getCompressedBytes(), ((CompressedInt) other).getCompressedBytes());
   }
 
   @Override
-  @Value.Lazy
-  public int getIntValue() {
-    return getValue().intValueExact();
+  public int hashCode() {
+    return Arrays.hashCode(getCompressedBytes());
   }
 
   @Override
   public String toString() {
     return new StringJoiner(", ", CompressedInt.class.getSimpleName() + "[", "]")
         .add("compressedBytes=" + new BigInteger(1, getCompressedBytes()).toString(16))
-        .add("unsignedValue=" + getValue().toString())
+        .add("unsignedValue=" + Long.toUnsignedString(getUnsignedLongValue()))
         .toString();
   }
 }
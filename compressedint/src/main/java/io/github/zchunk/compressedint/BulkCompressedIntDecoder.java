@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.compressedint;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Decodes runs of fixed-layout records into primitive columns.
+ *
+ * <p>A record is a fixed-length prefix (e.g. a chunk checksum), followed by two compressed ints
+ * (e.g. compressed and uncompressed chunk length). This is the layout of the zchunk chunk index.</p>
+ *
+ * <p>Compressed ints of up to 8 bytes are decoded from a single little endian word: the terminating byte is
+ * found via {@link Long#numberOfTrailingZeros(long)} and the 7-bit groups are compacted with three mask-and-shift
+ * steps instead of a per-byte loop. Single byte values skip even that.</p>
+ */
+public final class BulkCompressedIntDecoder {
+
+  private static final long LAST_BYTE_FLAGS = 0x8080808080808080L;
+
+  private static final long PAYLOAD_BITS = 0x7f7f7f7f7f7f7f7fL;
+
+  private BulkCompressedIntDecoder() {
+    // util class
+  }
+
+  /**
+   * Decodes {@code count} records starting at {@code offset}.
+   *
+   * <p>The prefix bytes are skipped, they can be sliced from {@code src} by the caller. The encoded length of the first
+   * compressed int of record {@code i} is stored at {@code lengths[2 * i]}, the one of the second compressed int at
+   * {@code lengths[2 * i + 1]}.</p>
+   *
+   * @param src
+   *     the array holding the records.
+   * @param offset
+   *     the offset of the first record.
+   * @param count
+   *     the number of records to decode.
+   * @param prefixLength
+   *     the number of bytes preceding the two compressed ints of each record.
+   * @param first
+   *     receives the value of the first compressed int of each record, interpreted as unsigned long.
+   * @param second
+   *     receives the value of the second compressed int of each record, interpreted as unsigned long.
+   * @param lengths
+   *     receives the encoded length of both compressed ints of each record. Must hold {@code 2 * count} entries.
+   * @return the offset directly after the last record.
+   * @throws IllegalArgumentException
+   *     if {@code src} ends within a record or holds an invalid compressed int.
+   */
+  public static int decodeRecords(final byte[] src, final int offset, final int count, final int prefixLength,
+      final long[] first, final long[] second, final byte[] lengths) {
+    final ByteBuffer words = ByteBuffer.wrap(src).order(ByteOrder.LITTLE_ENDIAN);
+    int current = offset;
+
+    for (int record = 0; record < count; record++) {
+      current += prefixLength;
+      if (current > src.length) {
+        throw new IllegalArgumentException("Record no. [" + record + "] exceeds input at offset [" + current + "].");
+      }
+
+      final int firstLength = decode(src, words, current, first, record);
+      current += firstLength;
+      final int secondLength = decode(src, words, current, second, record);
+      current += secondLength;
+
+      lengths[2 * record] = (byte) firstLength;
+      lengths[2 * record + 1] = (byte) secondLength;
+    }
+
+    return current;
+  }
+
+  /**
+   * Decodes the compressed int at {@code index} into {@code dst[dstIndex]}.
+   *
+   * @return the number of bytes consumed.
+   */
+  private static int decode(final byte[] src, final ByteBuffer words, final int index, final long[] dst, final int dstIndex) {
+    if (index < src.length && src[index] < 0) {
+      // single byte: the last-byte-flag is the sign bit.
+      dst[dstIndex] = src[index] & CompressedIntUtil.COMPRESSED_INT_PAYLOAD_MASK;
+      return 1;
+    }
+
+    if (index + Long.BYTES <= src.length) {
+      final long word = words.getLong(index);
+      final long terminators = word & LAST_BYTE_FLAGS;
+
+      if (terminators != 0L) {
+        // keep all bytes up to and including the lowest terminator, drop the flag bits.
+        long value = word & (terminators ^ (terminators - 1L)) & PAYLOAD_BITS;
+        // compact the 7 bit groups pairwise: 2x7 -> 14, 2x14 -> 28, 2x28 -> 56 bits.
+        value = ((value & 0x7f007f007f007f00L) >>> 1) | (value & 0x007f007f007f007fL);
+        value = ((value & 0x3fff00003fff0000L) >>> 2) | (value & 0x00003fff00003fffL);
+        value = ((value & 0x0fffffff00000000L) >>> 4) | (value & 0x000000000fffffffL);
+
+        dst[dstIndex] = value;
+        return (Long.numberOfTrailingZeros(terminators) >>> 3) + 1;
+      }
+    }
+
+    // 9 or 10 bytes, or too close to the end of the array for a word read.
+    dst[dstIndex] = CompressedIntUtil.decodeUnsignedLong(src, index);
+    return CompressedIntUtil.compressedLength(src, index);
+  }
+}
@@ -17,7 +17,6 @@
 package io.github.zchunk.compressedint;
 
 import java.math.BigInteger;
-import org.immutables.value.Value;
 
 public interface CompressedInt {
 
@@ -28,13 +27,25 @@ public interface CompressedInt {
    */
   byte[] getCompressedBytes();
 
+  /**
+   * Returns the number of bytes this compressed int occupies in its encoded form.
+   *
+   * <p>Implementations should override this, so callers can compute offsets without materializing a copy of the bytes.</p>
+   *
+   * @return the length of {@link #getCompressedBytes()}.
+   */
+  default int getCompressedLength() {
+    return getCompressedBytes().length;
+  }
+
   /**
    * If you have few experience with unsigned values in java, consider using this value instead.
    *
    * @return a biginteger which will always output a positive value.
    */
-  @Value.Lazy
-  BigInteger getValue();
+  default BigInteger getValue() {
+    return CompressedIntUtil.toUnsignedBigInteger(getUnsignedLongValue());
+  }
 
   /**
    * Returns the value as signed(!) long value. As the compressedInt value may exceed {@link Long#MAX_VALUE}, it might throw an {@link
@@ -44,8 +55,15 @@ public interface CompressedInt {
    * @throws ArithmeticException
    *     if the value exceeds {@link Long#MAX_VALUE}.
    */
-  @Value.Lazy
-  long getLongValue();
+  default long getLongValue() {
+    final long unsignedLongValue = getUnsignedLongValue();
+
+    if (unsignedLongValue < 0L) {
+      throw new ArithmeticException("Value [" + Long.toUnsignedString(unsignedLongValue) + "] exceeds Long.MAX_VALUE.");
+    }
+
+    return unsignedLongValue;
+  }
 
   /**
    * Returns the value as <b>unsigned</b> long value, so that it can overflow.
@@ -53,7 +71,6 @@ public interface CompressedInt {
    * <p>If your input value was {@code 0xffffffffffffffff}, this method will throw no exception and happily overflow and return {@code
    * -1L}.</p>
    */
-  @Value.Lazy
   long getUnsignedLongValue();
 
   /**
@@ -63,6 +80,13 @@ public interface CompressedInt {
    *
    * @return an int representing the {@link #getValue()} value.
    */
-  @Value.Lazy
-  int getIntValue();
+  default int getIntValue() {
+    final long unsignedLongValue = getUnsignedLongValue();
+
+    if (unsignedLongValue < 0L || unsignedLongValue > Integer.MAX_VALUE) {
+      throw new ArithmeticException("Value [" + Long.toUnsignedString(unsignedLongValue) + "] exceeds Integer.MAX_VALUE.");
+    }
+
+    return (int) unsignedLongValue;
+  }
 }
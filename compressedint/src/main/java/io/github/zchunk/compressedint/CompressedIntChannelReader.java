@@ -0,0 +1,201 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.compressedint;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads compressed ints and raw byte fields from a {@link ReadableByteChannel}.
+ *
+ * <p>The channel is read in bulk into an internal buffer, so decoding does not issue one read per byte. As a
+ * consequence, the channel will usually be positioned behind the last byte consumed from this reader. Use
+ * {@link #getBytesRead()} to find out how many bytes were actually consumed.</p>
+ *
+ * <p>Does not close the channel. That is the caller‘s responsibility. Instances are not thread safe.</p>
+ */
+public final class CompressedIntChannelReader {
+
+  private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  private final ReadableByteChannel channel;
+
+  private final ByteBuffer buffer;
+
+  private long bytesRead;
+
+  private boolean endOfChannel;
+
+  public CompressedIntChannelReader(final ReadableByteChannel channel) {
+    this(channel, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Creates a reader with a custom buffer size.
+   *
+   * @param channel
+   *     the not-closed channel to read from.
+   * @param bufferSize
+   *     the size of the internal buffer. Must be at least {@link CompressedIntUtil#MAX_COMPRESSED_INT_LENGTH}.
+   */
+  public CompressedIntChannelReader(final ReadableByteChannel channel, final int bufferSize) {
+    if (bufferSize < CompressedIntUtil.MAX_COMPRESSED_INT_LENGTH) {
+      throw new IllegalArgumentException("Buffer size [" + bufferSize + "] is too small to hold a compressed int.");
+    }
+
+    this.channel = channel;
+    // a heap buffer, as readers are created per file and direct memory is only released by the garbage collector.
+    this.buffer = ByteBuffer.allocate(bufferSize);
+    ((Buffer) this.buffer).flip();
+  }
+
+  /**
+   * Reads the next compressed int.
+   *
+   * @return the value interpreted as unsigned long.
+   * @throws IOException
+   *     if reading from the channel fails.
+   * @throws IllegalArgumentException
+   *     if the channel ends before the last byte or the compressed int is invalid.
+   */
+  public long readUnsignedLong() throws IOException {
+    fill(CompressedIntUtil.MAX_COMPRESSED_INT_LENGTH);
+    final int position = this.buffer.position();
+    final long value = CompressedIntUtil.decodeUnsignedLong(this.buffer);
+    this.bytesRead += this.buffer.position() - position;
+
+    return value;
+  }
+
+  /**
+   * Reads the next compressed int and keeps its exact bytes.
+   *
+   * @return a compressed int holding a copy of the bytes read.
+   * @throws IOException
+   *     if reading from the channel fails.
+   * @throws IllegalArgumentException
+   *     if the channel ends before the last byte or the compressed int is invalid.
+   */
+  public CompressedInt readCompressedInt() throws IOException {
+    fill(CompressedIntUtil.MAX_COMPRESSED_INT_LENGTH);
+    final int length = CompressedIntUtil.compressedLength(this.buffer, this.buffer.position());
+    if (length == -1) {
+      throw new IllegalArgumentException("Unexpected end of channel after reading [" + this.bytesRead + "] bytes.");
+    }
+
+    final byte[] compressedBytes = new byte[length];
+    this.buffer.get(compressedBytes);
+    this.bytesRead += length;
+
+    return CompressedIntFactory.fromCompressedBytes(compressedBytes);
+  }
+
+  /**
+   * Reads exactly {@code dst.length} bytes, e.g. a checksum between two compressed ints.
+   *
+   * @param dst
+   *     the array to fill.
+   * @throws IOException
+   *     if reading from the channel fails.
+   * @throws EOFException
+   *     if the channel ends before {@code dst} is filled.
+   */
+  public void readFully(final byte[] dst) throws IOException {
+    int offset = 0;
+
+    while (offset < dst.length) {
+      if (!this.buffer.hasRemaining()) {
+        fill(1);
+        if (!this.buffer.hasRemaining()) {
+          throw new EOFException("Unexpected end of channel after reading [" + this.bytesRead + "] bytes.");
+        }
+      }
+
+      final int count = Math.min(dst.length - offset, this.buffer.remaining());
+      this.buffer.get(dst, offset, count);
+      offset += count;
+      this.bytesRead += count;
+    }
+  }
+
+  /**
+   * Skips exactly {@code count} bytes, e.g. the data of an optional element, without allocating.
+   *
+   * @param count
+   *     the number of bytes to skip.
+   * @throws IOException
+   *     if reading from the channel fails.
+   * @throws EOFException
+   *     if the channel ends before {@code count} bytes were skipped.
+   * @throws IllegalArgumentException
+   *     if {@code count} is negative.
+   */
+  public void skipFully(final long count) throws IOException {
+    if (count < 0L) {
+      throw new IllegalArgumentException("Cannot skip [" + count + "] bytes.");
+    }
+
+    long remaining = count;
+
+    while (remaining > 0L) {
+      if (!this.buffer.hasRemaining()) {
+        fill(1);
+        if (!this.buffer.hasRemaining()) {
+          throw new EOFException("Unexpected end of channel after reading [" + this.bytesRead + "] bytes.");
+        }
+      }
+
+      final int skipped = (int) Math.min(remaining, this.buffer.remaining());
+      ((Buffer) this.buffer).position(this.buffer.position() + skipped);
+      remaining -= skipped;
+      this.bytesRead += skipped;
+    }
+  }
+
+  /**
+   * Returns the number of bytes consumed by this reader, which may be less than the bytes read from the channel.
+   *
+   * @return the number of bytes consumed.
+   */
+  public long getBytesRead() {
+    return this.bytesRead;
+  }
+
+  /**
+   * Makes sure at least {@code minimum} bytes are buffered, unless the channel ends before.
+   */
+  private void fill(final int minimum) throws IOException {
+    if (this.buffer.remaining() >= minimum || this.endOfChannel) {
+      return;
+    }
+
+    this.buffer.compact();
+    try {
+      while (this.buffer.position() < minimum) {
+        if (this.channel.read(this.buffer) == -1) {
+          this.endOfChannel = true;
+          break;
+        }
+      }
+    } finally {
+      ((Buffer) this.buffer).flip();
+    }
+  }
+}
@@ -18,9 +18,27 @@ package io.github.zchunk.compressedint;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
 
 public final class CompressedIntFactory {
 
+  /**
+   * Values below this are served from a cache by {@link #valueOf(long)}. This covers small header fields
+   * like checksum types, flags, compression types and element counts.
+   */
+  static final int CACHED_VALUES = 256;
+
+  private static final CompressedInt[] VALUE_CACHE = new CompressedInt[CACHED_VALUES];
+
+  static {
+    for (int value = 0; value < CACHED_VALUES; value++) {
+      VALUE_CACHE[value] = fromCompressedBytes(CompressedIntUtil.compress(value));
+    }
+  }
+
   private CompressedIntFactory() {
     // util class
   }
@@ -44,22 +62,96 @@ public final class CompressedIntFactory {
           "Input length [" + input.length + "] bytes is too large! Max allowed: " + CompressedIntUtil.MAX_COMPRESSED_INT_LENGTH);
     }
 
+    // value and length are derived once while building.
     return ImmutableCompressedInt.builder()
         .compressedBytes(input)
         .build();
   }
 
+  /**
+   * Reads the compressed int starting at {@code offset} of a larger byte array, e.g. a complete header.
+   *
+   * <p>Only the bytes up to and including the last byte of the compressed int are taken.</p>
+   *
+   * @param src
+   *     the array to read from.
+   * @param offset
+   *     the offset of the first byte of the compressed int.
+   * @return a compressed int holding a copy of its bytes.
+   * @throws IllegalArgumentException
+   *     if there is no complete compressed int at the given offset.
+   */
+  public static CompressedInt fromCompressedBytes(final byte[] src, final int offset) {
+    final int length = CompressedIntUtil.compressedLength(src, offset);
+    if (length == -1) {
+      throw new IllegalArgumentException("Unexpected end of input reading compressed int at offset [" + offset + "].");
+    }
+
+    return fromCompressedBytes(Arrays.copyOfRange(src, offset, offset + length));
+  }
+
+  /**
+   * Creates a flyweight compressed int pointing into {@code src} at {@code offset} without copying any bytes.
+   *
+   * <p>Use this for fields of a larger buffer which is retained anyway, e.g. a complete header. The caller must not
+   * modify the buffer afterwards.</p>
+   *
+   * @param src
+   *     the shared array to point into.
+   * @param offset
+   *     the offset of the first byte of the compressed int.
+   * @return a {@link CompressedIntView} spanning exactly the bytes of the compressed int.
+   * @throws IllegalArgumentException
+   *     if there is no complete compressed int at the given offset.
+   */
+  public static CompressedInt wrap(final byte[] src, final int offset) {
+    final int length = CompressedIntUtil.compressedLength(src, offset);
+    if (length == -1) {
+      throw new IllegalArgumentException("Unexpected end of input reading compressed int at offset [" + offset + "].");
+    }
+
+    return new CompressedIntView(src, offset, length);
+  }
+
+  /**
+   * Creates a flyweight compressed int of a known length, e.g. as reported by {@link BulkCompressedIntDecoder}.
+   *
+   * @param src
+   *     the shared array to point into.
+   * @param offset
+   *     the offset of the first byte of the compressed int.
+   * @param length
+   *     the encoded length in bytes.
+   * @return a {@link CompressedIntView} spanning {@code length} bytes.
+   * @throws IllegalArgumentException
+   *     if the given range is not a compressed int ending with its last byte.
+   */
+  public static CompressedInt wrap(final byte[] src, final int offset, final int length) {
+    if (length < 1 || length > CompressedIntUtil.MAX_COMPRESSED_INT_LENGTH || offset < 0 || offset + length > src.length
+        || (src[offset + length - 1] & CompressedIntUtil.COMPRESSED_INT_LAST_BYTE_FLAG) == 0) {
+      throw new IllegalArgumentException("No compressed int of length [" + length + "] at offset [" + offset + "].");
+    }
+
+    return new CompressedIntView(src, offset, length);
+  }
+
   /**
    * Convert an unsigned long to a compressed int.
    *
    * <p>Hint: If your long yields -1L, it's instead {@code 0xffffffffffffffff}. But java treats it as
    * signed long.</p>
    *
+   * <p>Small values are returned from a cache of pre-encoded instances.</p>
+   *
    * @param unsignedLongValue
    *     a long value which gets interpreted as unsigned.
    * @return a compressedInt.
    */
   public static CompressedInt valueOf(final long unsignedLongValue) {
+    if (unsignedLongValue >= 0L && unsignedLongValue < CACHED_VALUES) {
+      return VALUE_CACHE[(int) unsignedLongValue];
+    }
+
     final byte[] unsignedBytes = CompressedIntUtil.compress(unsignedLongValue);
 
     return fromCompressedBytes(unsignedBytes);
@@ -102,4 +194,68 @@ public final class CompressedIntFactory {
 
     return fromCompressedBytes(read);
   }
+
+  /**
+   * Reads the compressed int starting at the buffer's position and advances the position past its last byte.
+   *
+   * <p>Works on heap, direct and mapped buffers alike. The returned instance holds a copy of its bytes, so the buffer
+   * may be reused afterwards.</p>
+   *
+   * @param buffer
+   *     the buffer to read from.
+   * @return a compressed int.
+   * @throws IllegalArgumentException
+   *     if the buffer ends before the last byte or the compressed int is too large. The position is not changed in this case.
+   */
+  public static CompressedInt readCompressedInt(final ByteBuffer buffer) {
+    final int length = CompressedIntUtil.compressedLength(buffer, buffer.position());
+    if (length == -1) {
+      throw new IllegalArgumentException("Unexpected end of buffer reading compressed int at position [" + buffer.position() + "].");
+    }
+
+    final byte[] compressedBytes = new byte[length];
+    buffer.get(compressedBytes);
+
+    return fromCompressedBytes(compressedBytes);
+  }
+
+  /**
+   * Reads the compressed int at the channel's position with a single bulk read and positions the channel directly
+   * after its last byte.
+   *
+   * <p>For sequential reads of many fields from a channel which cannot seek, use a {@link CompressedIntChannelReader}.
+   * Does not close the channel. That is the caller‘s responsibility.</p>
+   *
+   * @param channel
+   *     the not-closed channel to read from.
+   * @return a compressed int.
+   * @throws IOException
+   *     if we cannot read from the underlying channel.
+   * @throws IllegalArgumentException
+   *     if the channel ends before the last byte or the compressed int is too large.
+   */
+  public static CompressedInt readCompressedInt(final SeekableByteChannel channel) throws IOException {
+    final long start = channel.position();
+    final ByteBuffer buffer = ByteBuffer.allocate(CompressedIntUtil.MAX_COMPRESSED_INT_LENGTH);
+
+    int scanned = 0;
+
+    // usually the first read already returns the complete compressed int.
+    while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+      final byte[] read = buffer.array();
+      while (scanned < buffer.position() && (read[scanned] & CompressedIntUtil.COMPRESSED_INT_LAST_BYTE_FLAG) == 0) {
+        scanned++;
+      }
+
+      if (scanned < buffer.position()) {
+        break;
+      }
+    }
+
+    ((Buffer) buffer).flip();
+    final CompressedInt compressedInt = readCompressedInt(buffer);
+    channel.position(start + compressedInt.getCompressedLength());
+
+    return compressedInt;
+  }
 }
@@ -19,11 +19,19 @@ package io.github.zchunk.compressedint;
 import static java.math.BigInteger.ONE;
 
 import java.math.BigInteger;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 
 public final class CompressedIntUtil {
 
   public static final int COMPRESSED_INT_LAST_BYTE_FLAG = 0b10000000;
 
+  /**
+   * Bitmask for the seven payload bits of each compressed int byte.
+   */
+  public static final int COMPRESSED_INT_PAYLOAD_MASK = 0b01111111;
+
   /**
    * The maximum value is 0xffffffffffffffff (which equals signed -1).
    */
@@ -54,30 +62,109 @@ public final class CompressedIntUtil {
    * @return a byte array which will never exceed the length of MAX_COMPRESSED_INT_LENGTH and will never have leading all-zero bytes.
    */
   public static byte[] compress(final long unsignedIntValue) {
-    long modValue = unsignedIntValue;
-    final byte[] tmp = new byte[MAX_COMPRESSED_INT_LENGTH];
-    int byteIndex = 0;
-
-    while (true) {
-      // get the rightmost 7 bits
-      final byte currentByte = (byte) (modValue & 0b01111111);
-      // unsigned(!) shift by seven bits.
-      modValue >>>= 7L;
-      tmp[byteIndex] = currentByte;
-
-      if (modValue == 0L) {
-        // this is the last byte we encoded. Make sure we set the last-byte-flag.
-        tmp[byteIndex] |= COMPRESSED_INT_LAST_BYTE_FLAG;
-        break;
-      }
+    final byte[] out = new byte[encodedLength(unsignedIntValue)];
+    encode(unsignedIntValue, out, 0);
+
+    return out;
+  }
+
+  /**
+   * Returns the number of bytes {@code unsignedLongValue} occupies as compressed int, without encoding it.
+   *
+   * @param unsignedLongValue
+   *     a long which is interpreted as unsigned.
+   * @return a length between 1 and {@link #MAX_COMPRESSED_INT_LENGTH}.
+   */
+  public static int encodedLength(final long unsignedLongValue) {
+    final int significantBits = Long.SIZE - Long.numberOfLeadingZeros(unsignedLongValue);
+
+    // zero still needs one byte.
+    return Math.max(1, (significantBits + 6) / 7);
+  }
+
+  /**
+   * Writes {@code unsignedLongValue} as compressed int into {@code dst} at {@code offset}.
+   *
+   * @param unsignedLongValue
+   *     a long which is interpreted as unsigned.
+   * @param dst
+   *     the array to write to.
+   * @param offset
+   *     the offset of the first byte to write.
+   * @return the number of bytes written, which equals {@link #encodedLength(long)}.
+   * @throws ArrayIndexOutOfBoundsException
+   *     if {@code dst} is too small. Use {@link #encodedLength(long)} to size it.
+   */
+  public static int encode(final long unsignedLongValue, final byte[] dst, final int offset) {
+    long remaining = unsignedLongValue;
+    int index = offset;
 
-      byteIndex++;
+    // unsigned(!) shift by seven bits until only the last seven bits are left.
+    while ((remaining & ~COMPRESSED_INT_PAYLOAD_MASK) != 0L) {
+      dst[index++] = (byte) (remaining & COMPRESSED_INT_PAYLOAD_MASK);
+      remaining >>>= 7;
     }
 
-    final byte[] out = new byte[byteIndex + 1];
-    System.arraycopy(tmp, 0, out, 0, byteIndex + 1);
+    // this is the last byte we encoded. Make sure we set the last-byte-flag.
+    dst[index++] = (byte) (remaining | COMPRESSED_INT_LAST_BYTE_FLAG);
 
-    return out;
+    return index - offset;
+  }
+
+  /**
+   * Writes {@code unsignedLongValue} as compressed int into {@code dst} at its position and advances the position.
+   *
+   * @param unsignedLongValue
+   *     a long which is interpreted as unsigned.
+   * @param dst
+   *     the buffer to write to.
+   * @return the number of bytes written, which equals {@link #encodedLength(long)}.
+   * @throws java.nio.BufferOverflowException
+   *     if {@code dst} has not enough bytes remaining. Nothing is written in this case.
+   */
+  public static int encode(final long unsignedLongValue, final ByteBuffer dst) {
+    final int length = encodedLength(unsignedLongValue);
+    if (dst.remaining() < length) {
+      throw new BufferOverflowException();
+    }
+
+    encode(unsignedLongValue, dst, dst.position());
+    ((Buffer) dst).position(dst.position() + length);
+
+    return length;
+  }
+
+  /**
+   * Writes {@code unsignedLongValue} as compressed int into {@code dst} at the absolute {@code index}.
+   *
+   * <p>The buffer's position is not changed.</p>
+   *
+   * @param unsignedLongValue
+   *     a long which is interpreted as unsigned.
+   * @param dst
+   *     the buffer to write to.
+   * @param index
+   *     the absolute index of the first byte to write.
+   * @return the number of bytes written, which equals {@link #encodedLength(long)}.
+   * @throws IndexOutOfBoundsException
+   *     if the buffer's limit is too small. Nothing is written in this case.
+   */
+  public static int encode(final long unsignedLongValue, final ByteBuffer dst, final int index) {
+    if (index < 0 || dst.limit() - index < encodedLength(unsignedLongValue)) {
+      throw new IndexOutOfBoundsException("Cannot write compressed int at index [" + index + "], limit is [" + dst.limit() + "].");
+    }
+
+    long remaining = unsignedLongValue;
+    int current = index;
+
+    while ((remaining & ~COMPRESSED_INT_PAYLOAD_MASK) != 0L) {
+      dst.put(current++, (byte) (remaining & COMPRESSED_INT_PAYLOAD_MASK));
+      remaining >>>= 7;
+    }
+
+    dst.put(current++, (byte) (remaining | COMPRESSED_INT_LAST_BYTE_FLAG));
+
+    return current - index;
   }
 
   /**
@@ -86,6 +173,8 @@ public final class CompressedIntUtil {
    * <p>The result is stored as {@link BigInteger}, because values might exceed overflow {@link Long#MAX_VALUE} and end up as
    * negative. With BigInteger, no such information is lost.</p>
    *
+   * <p>Prefer {@link #decodeUnsignedLong(byte[], int)}, which does not allocate.</p>
+   *
    * @param compressedUnsignedInt
    *     the bytearray holding a compressed int to decompress.
    * @return a {@link BigInteger} object holding the uncompressed unsigned int value.
@@ -97,17 +186,222 @@ public final class CompressedIntUtil {
       throw new IllegalArgumentException("Compressed int too big!");
     }
 
+    return toUnsignedBigInteger(decodeUnsignedLong(compressedUnsignedInt, 0, compressedUnsignedInt.length));
+  }
+
+  /**
+   * Decodes exactly {@code length} bytes as one compressed int, regardless of where the last-byte-flag is set.
+   *
+   * <p>This is the semantic of a {@link CompressedInt} created from a given byte array.
+   * Bits exceeding 64 bits are silently dropped.</p>
+   *
+   * @param src
+   *     the array to read from.
+   * @param offset
+   *     the offset of the first byte.
+   * @param length
+   *     the number of bytes to decode.
+   * @return the decoded value, interpreted as unsigned long.
+   * @throws IllegalArgumentException
+   *     if {@code length} exceeds {@link #MAX_COMPRESSED_INT_LENGTH}.
+   */
+  public static long decodeUnsignedLong(final byte[] src, final int offset, final int length) {
+    if (length > MAX_COMPRESSED_INT_LENGTH) {
+      throw new IllegalArgumentException("Compressed int too big!");
+    }
+
     long result = 0L;
     int shift = 0;
 
-    for (final byte b : compressedUnsignedInt) {
-      final byte leadingZero = (byte) (b & ~COMPRESSED_INT_LAST_BYTE_FLAG);
+    for (int index = offset; index < offset + length; index++) {
+      result |= (long) (src[index] & COMPRESSED_INT_PAYLOAD_MASK) << shift;
+      shift += 7;
+    }
+
+    return result;
+  }
+
+  /**
+   * Decodes the compressed int starting at {@code offset}. Reading stops after the byte carrying the last-byte-flag.
+   *
+   * <p>This method does not allocate. Use {@link #compressedLength(byte[], int)} to get the number of bytes consumed.</p>
+   *
+   * @param src
+   *     the array to read from.
+   * @param offset
+   *     the offset of the first byte of the compressed int.
+   * @return the decoded value, interpreted as unsigned long.
+   * @throws IllegalArgumentException
+   *     if the array ends before the last byte, if the compressed int is longer than {@link #MAX_COMPRESSED_INT_LENGTH}
+   *     bytes or if the value does not fit into 64 bits.
+   */
+  public static long decodeUnsignedLong(final byte[] src, final int offset) {
+    final int limit = offset + Math.min(src.length - offset, MAX_COMPRESSED_INT_LENGTH);
+    long result = 0L;
+    int shift = 0;
+
+    for (int index = offset; index < limit; index++) {
+      final int currentByte = src[index];
+      result |= (long) (currentByte & COMPRESSED_INT_PAYLOAD_MASK) << shift;
+
+      if ((currentByte & COMPRESSED_INT_LAST_BYTE_FLAG) != 0) {
+        checkOverflow(currentByte, shift, offset);
+        return result;
+      }
 
-      result |= leadingZero << shift;
       shift += 7;
     }
 
-    return BigInteger.valueOf(result).and(UNSIGNED_LONG_MASK);
+    throw unterminated(offset, limit - offset);
+  }
+
+  /**
+   * Decodes the compressed int starting at the buffer's position and advances the position past its last byte.
+   *
+   * <p>Works on heap, direct and mapped buffers alike and does not allocate. The number of bytes consumed is the
+   * difference of the positions before and after the call.</p>
+   *
+   * @param src
+   *     the buffer to read from.
+   * @return the decoded value, interpreted as unsigned long.
+   * @throws IllegalArgumentException
+   *     if the buffer ends before the last byte, if the compressed int is longer than {@link #MAX_COMPRESSED_INT_LENGTH}
+   *     bytes or if the value does not fit into 64 bits. The position is not changed in this case.
+   */
+  public static long decodeUnsignedLong(final ByteBuffer src) {
+    final int position = src.position();
+    final int limit = position + Math.min(src.remaining(), MAX_COMPRESSED_INT_LENGTH);
+    long result = 0L;
+    int shift = 0;
+
+    for (int current = position; current < limit; current++) {
+      final int currentByte = src.get(current);
+      result |= (long) (currentByte & COMPRESSED_INT_PAYLOAD_MASK) << shift;
+
+      if ((currentByte & COMPRESSED_INT_LAST_BYTE_FLAG) != 0) {
+        checkOverflow(currentByte, shift, position);
+        ((Buffer) src).position(current + 1);
+        return result;
+      }
+
+      shift += 7;
+    }
+
+    throw unterminated(position, limit - position);
+  }
+
+  /**
+   * Decodes the compressed int starting at the absolute {@code index} without changing the buffer's position.
+   *
+   * @param src
+   *     the buffer to read from.
+   * @param index
+   *     the absolute index of the first byte.
+   * @return the decoded value, interpreted as unsigned long.
+   * @throws IllegalArgumentException
+   *     if the buffer ends before the last byte, if the compressed int is longer than {@link #MAX_COMPRESSED_INT_LENGTH}
+   *     bytes or if the value does not fit into 64 bits.
+   */
+  public static long decodeUnsignedLong(final ByteBuffer src, final int index) {
+    final int limit = index + Math.min(src.limit() - index, MAX_COMPRESSED_INT_LENGTH);
+    long result = 0L;
+    int shift = 0;
+
+    for (int current = index; current < limit; current++) {
+      final int currentByte = src.get(current);
+      result |= (long) (currentByte & COMPRESSED_INT_PAYLOAD_MASK) << shift;
+
+      if ((currentByte & COMPRESSED_INT_LAST_BYTE_FLAG) != 0) {
+        checkOverflow(currentByte, shift, index);
+        return result;
+      }
+
+      shift += 7;
+    }
+
+    throw unterminated(index, limit - index);
+  }
+
+  /**
+   * Returns the number of bytes the compressed int starting at {@code offset} occupies, including the last byte.
+   *
+   * @param src
+   *     the array to read from.
+   * @param offset
+   *     the offset of the first byte of the compressed int.
+   * @return the length in bytes, or {@code -1} if the array ends before the last byte of the compressed int.
+   * @throws IllegalArgumentException
+   *     if no last byte was found within {@link #MAX_COMPRESSED_INT_LENGTH} bytes.
+   */
+  public static int compressedLength(final byte[] src, final int offset) {
+    final int available = src.length - offset;
+    final int limit = offset + Math.min(available, MAX_COMPRESSED_INT_LENGTH);
+
+    for (int index = offset; index < limit; index++) {
+      if ((src[index] & COMPRESSED_INT_LAST_BYTE_FLAG) != 0) {
+        return index - offset + 1;
+      }
+    }
+
+    if (available < MAX_COMPRESSED_INT_LENGTH) {
+      return -1;
+    }
+
+    throw unterminated(offset, MAX_COMPRESSED_INT_LENGTH);
+  }
+
+  /**
+   * Returns the number of bytes the compressed int starting at the absolute {@code index} occupies, including the last byte.
+   *
+   * @param src
+   *     the buffer to read from.
+   * @param index
+   *     the absolute index of the first byte.
+   * @return the length in bytes, or {@code -1} if the buffer's limit is reached before the last byte of the compressed int.
+   * @throws IllegalArgumentException
+   *     if no last byte was found within {@link #MAX_COMPRESSED_INT_LENGTH} bytes.
+   */
+  public static int compressedLength(final ByteBuffer src, final int index) {
+    final int available = src.limit() - index;
+    final int limit = index + Math.min(available, MAX_COMPRESSED_INT_LENGTH);
+
+    for (int current = index; current < limit; current++) {
+      if ((src.get(current) & COMPRESSED_INT_LAST_BYTE_FLAG) != 0) {
+        return current - index + 1;
+      }
+    }
+
+    if (available < MAX_COMPRESSED_INT_LENGTH) {
+      return -1;
+    }
+
+    throw unterminated(index, MAX_COMPRESSED_INT_LENGTH);
+  }
+
+  /**
+   * Converts an unsigned long value to a positive {@link BigInteger}.
+   *
+   * @param unsignedLongValue
+   *     a long which is interpreted as unsigned.
+   * @return a BigInteger which will never be negative.
+   */
+  public static BigInteger toUnsignedBigInteger(final long unsignedLongValue) {
+    if (unsignedLongValue >= 0L) {
+      return BigInteger.valueOf(unsignedLongValue);
+    }
+
+    return BigInteger.valueOf(unsignedLongValue).and(UNSIGNED_LONG_MASK);
+  }
+
+  private static void checkOverflow(final int lastByte, final int shift, final int offset) {
+    if (shift == Long.SIZE - 1 && (lastByte & COMPRESSED_INT_PAYLOAD_MASK) > 1) {
+      throw new IllegalArgumentException("Compressed int at offset [" + offset + "] exceeds 64 bits.");
+    }
+  }
+
+  private static IllegalArgumentException unterminated(final int offset, final int bytesRead) {
+    return new IllegalArgumentException(
+        "No last byte found for compressed int at offset [" + offset + "] after reading [" + bytesRead + "] bytes.");
   }
 
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.compressedint;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.StringJoiner;
+
+/**
+ * A flyweight {@link CompressedInt} which points into a shared buffer, e.g. a complete zchunk header.
+ *
+ * <p>No bytes are copied on creation. The value is decoded on access and {@link #getCompressedBytes()} only
+ * materializes a copy when it is called. The backing buffer must not be modified while views on it are in use.</p>
+ */
+public final class CompressedIntView implements CompressedInt {
+
+  private final byte[] buffer;
+
+  private final int offset;
+
+  private final int length;
+
+  CompressedIntView(final byte[] buffer, final int offset, final int length) {
+    this.buffer = buffer;
+    this.offset = offset;
+    this.length = length;
+  }
+
+  @Override
+  public byte[] getCompressedBytes() {
+    return Arrays.copyOfRange(this.buffer, this.offset, this.offset + this.length);
+  }
+
+  @Override
+  public int getCompressedLength() {
+    return this.length;
+  }
+
+  @Override
+  public long getUnsignedLongValue() {
+    return CompressedIntUtil.decodeUnsignedLong(this.buffer, this.offset, this.length);
+  }
+
+  @Override
+  public boolean equals(final Object other) {
+    if (this == other) {
+      return true;
+    }
+
+    if (!(other instanceof CompressedInt)) {
+      return false;
+    }
+
+    if (other instanceof CompressedIntView) {
+      final CompressedIntView that = (CompressedIntView) other;
+
+      return rangeEquals(this.buffer, this.offset, this.length, that.buffer, that.offset, that.length);
+    }
+
+    final byte[] otherBytes = ((CompressedInt) other).getCompressedBytes();
+
+    return rangeEquals(this.buffer, this.offset, this.length, otherBytes, 0, otherBytes.length);
+  }
+
+  /**
+   * Same as {@link Arrays#hashCode(byte[])} of {@link #getCompressedBytes()}, so views and copies hash alike.
+   */
+  @Override
+  public int hashCode() {
+    int result = 1;
+
+    for (int index = this.offset; index < this.offset + this.length; index++) {
+      result = 31 * result + this.buffer[index];
+    }
+
+    return result;
+  }
+
+  private static boolean rangeEquals(final byte[] left, final int leftOffset, final int leftLength,
+                                     final byte[] right, final int rightOffset, final int rightLength) {
+    if (leftLength != rightLength) {
+      return false;
+    }
+
+    for (int index = 0; index < leftLength; index++) {
+      if (left[leftOffset + index] != right[rightOffset + index]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", CompressedInt.class.getSimpleName() + "[", "]")
+        .add("compressedBytes=" + new BigInteger(1, getCompressedBytes()).toString(16))
+        .add("unsignedValue=" + Long.toUnsignedString(getUnsignedLongValue()))
+        .toString();
+  }
+}
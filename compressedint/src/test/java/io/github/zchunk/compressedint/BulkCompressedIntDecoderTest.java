@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.compressedint;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class BulkCompressedIntDecoderTest {
+
+  private static final int PREFIX_LENGTH = 3;
+
+  private static final long[] VALUES = new long[]{
+      0L, 127L, 128L, 394L, 16_384L, 2_097_152L, Integer.MAX_VALUE, 0xffffffffffffffL, 0x100000000000000L, Long.MAX_VALUE, -1L, 1L
+  };
+
+  @Test
+  public void testDecodeRecords() {
+    final ByteArrayOutputStream records = new ByteArrayOutputStream();
+    records.write(0x55);
+    for (int record = 0; record < VALUES.length; record++) {
+      records.write(record);
+      records.write(record);
+      records.write(record);
+      final byte[] first = CompressedIntUtil.compress(VALUES[record]);
+      final byte[] second = CompressedIntUtil.compress(VALUES[VALUES.length - 1 - record]);
+      records.write(first, 0, first.length);
+      records.write(second, 0, second.length);
+    }
+    final byte[] src = records.toByteArray();
+
+    final long[] first = new long[VALUES.length];
+    final long[] second = new long[VALUES.length];
+    final byte[] lengths = new byte[2 * VALUES.length];
+    final int end = BulkCompressedIntDecoder.decodeRecords(src, 1, VALUES.length, PREFIX_LENGTH, first, second, lengths);
+
+    final long[] reversed = new long[VALUES.length];
+    for (int record = 0; record < VALUES.length; record++) {
+      reversed[record] = VALUES[VALUES.length - 1 - record];
+      Assertions.assertEquals(CompressedIntUtil.compress(VALUES[record]).length, lengths[2 * record]);
+      Assertions.assertEquals(CompressedIntUtil.compress(reversed[record]).length, lengths[2 * record + 1]);
+    }
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(src.length, end),
+        () -> Assertions.assertArrayEquals(VALUES, first),
+        () -> Assertions.assertArrayEquals(reversed, second)
+    );
+  }
+
+  @Test
+  public void testDecodeRecords_truncated() {
+    final byte[] src = new byte[]{0x01, 0x02, (byte) 0x81, 0x05};
+
+    final long[] first = new long[1];
+    final long[] second = new long[1];
+    final byte[] lengths = new byte[2];
+
+    Assertions.assertAll(
+        () -> Assertions.assertThrows(IllegalArgumentException.class,
+            () -> BulkCompressedIntDecoder.decodeRecords(src, 0, 1, 2, first, second, lengths)),
+        () -> Assertions.assertThrows(IllegalArgumentException.class,
+            () -> BulkCompressedIntDecoder.decodeRecords(Arrays.copyOf(src, 3), 0, 1, 2, first, second, lengths))
+    );
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.compressedint;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CompressedIntChannelReaderTest {
+
+  private static final byte[] CHECKSUM = new byte[]{0x01, 0x02, 0x03, 0x04};
+
+  private static byte[] createInput() {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final byte[] first = CompressedIntUtil.compress(394L);
+    final byte[] second = CompressedIntUtil.compress(-1L);
+    out.write(first, 0, first.length);
+    out.write(CHECKSUM, 0, CHECKSUM.length);
+    out.write(second, 0, second.length);
+    out.write(0x81);
+
+    return out.toByteArray();
+  }
+
+  /**
+   * A channel which returns at most one byte per read, to simulate short reads.
+   */
+  private static ReadableByteChannel trickle(final byte[] input) {
+    final ReadableByteChannel delegate = Channels.newChannel(new ByteArrayInputStream(input));
+
+    return new ReadableByteChannel() {
+      @Override
+      public int read(final ByteBuffer dst) throws IOException {
+        if (!dst.hasRemaining()) {
+          return 0;
+        }
+
+        final ByteBuffer single = ByteBuffer.allocate(1);
+        final int read = delegate.read(single);
+        if (read > 0) {
+          dst.put(single.array()[0]);
+        }
+
+        return read;
+      }
+
+      @Override
+      public boolean isOpen() {
+        return delegate.isOpen();
+      }
+
+      @Override
+      public void close() throws IOException {
+        delegate.close();
+      }
+    };
+  }
+
+  @Test
+  public void testRead_shortReads() throws IOException {
+    final byte[] input = createInput();
+    final CompressedIntChannelReader reader = new CompressedIntChannelReader(trickle(input), 16);
+
+    final byte[] checksum = new byte[CHECKSUM.length];
+
+    Assertions.assertEquals(394L, reader.readUnsignedLong());
+    reader.readFully(checksum);
+    Assertions.assertArrayEquals(CHECKSUM, checksum);
+    Assertions.assertEquals(CompressedIntFactory.valueOf(-1L), reader.readCompressedInt());
+    Assertions.assertEquals(1L, reader.readUnsignedLong());
+    Assertions.assertEquals(input.length, reader.getBytesRead());
+    Assertions.assertThrows(EOFException.class, () -> reader.readFully(new byte[1]));
+    Assertions.assertThrows(IllegalArgumentException.class, reader::readUnsignedLong);
+  }
+
+  @Test
+  public void testSkipFully_shortReads() throws IOException {
+    final byte[] input = createInput();
+    final CompressedIntChannelReader reader = new CompressedIntChannelReader(trickle(input), 16);
+
+    Assertions.assertEquals(394L, reader.readUnsignedLong());
+    reader.skipFully(CHECKSUM.length);
+    Assertions.assertEquals(CompressedIntFactory.valueOf(-1L), reader.readCompressedInt());
+    Assertions.assertThrows(EOFException.class, () -> reader.skipFully(2));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> reader.skipFully(-1L));
+  }
+
+  @Test
+  public void testRead_truncated() {
+    final byte[] input = new byte[]{0x0a, 0x03};
+    final CompressedIntChannelReader reader = new CompressedIntChannelReader(Channels.newChannel(new ByteArrayInputStream(input)));
+
+    Assertions.assertThrows(IllegalArgumentException.class, reader::readCompressedInt);
+  }
+
+  @Test
+  public void testReadCompressedInt_byteBuffer() {
+    final ByteBuffer buffer = ByteBuffer.wrap(createInput());
+
+    final CompressedInt compressedInt = CompressedIntFactory.readCompressedInt(buffer);
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(394L, compressedInt.getLongValue()),
+        () -> Assertions.assertEquals(2, buffer.position())
+    );
+  }
+}
@@ -69,17 +69,18 @@ public class CompressedIntTest {
     Arrays.fill(maxLong, (byte) 0xff);
     final CompressedInt compressedInt = CompressedIntFactory.fromCompressedBytes(maxLong);
 
+    // 8 bytes carry 8 * 7 = 56 payload bits.
     Assertions.assertAll(
-        () -> Assertions.assertEquals("18446744073709551615", compressedInt.getValue().toString())
+        () -> Assertions.assertEquals("72057594037927935", compressedInt.getValue().toString())
     );
   }
 
   @Test
   public void testReadCompressedInt_maxValue() {
-    // 1111111 01111111 01111111 01111111 01111111 01111111 01111111 011111110 11111111 0000001
+    // 9 * 0b01111111 (63 bits), then the last byte 0b10000001 carrying the 64th bit.
     // repeated max value on purpose: guard against changes.
     final byte[] bytes = new byte[]{
-        0b1111111, 0b01111111, 0b01111111, 0b01111111, 0b01111111, 0b01111111, 0b01111111, (byte) 0b011111110, (byte) 0b11111111, 0b0000001
+        0b1111111, 0b01111111, 0b01111111, 0b01111111, 0b01111111, 0b01111111, 0b01111111, 0b01111111, 0b01111111, (byte) 0b10000001
     };
 
     final CompressedInt compressedInt = CompressedIntFactory.fromCompressedBytes(bytes);
@@ -169,7 +170,7 @@ public class CompressedIntTest {
 
   @Test
   public void testExceptionOnBigLongToLong() {
-    final CompressedInt compressedInt = CompressedIntFactory.valueOf(0xffffffff00ffffL);
+    final CompressedInt compressedInt = CompressedIntFactory.valueOf(0xffffffff00ffff00L);
 
     Assertions.assertThrows(ArithmeticException.class, compressedInt::getLongValue);
   }
@@ -188,4 +189,58 @@ public class CompressedIntTest {
 
     Assertions.assertEquals(-2L, compressedInt.getUnsignedLongValue());
   }
+
+  @Test
+  public void testBuilder_derivesValueAndLength() {
+    final ImmutableCompressedInt fromBuilder = ImmutableCompressedInt.builder()
+        .compressedBytes(CP_394)
+        .build();
+    final CompressedInt fromFactory = CompressedIntFactory.fromCompressedBytes(CP_394);
+    final CompressedInt copied = fromBuilder.withCompressedBytes(CompressedIntUtil.compress(5L));
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(394L, fromBuilder.getUnsignedLongValue()),
+        () -> Assertions.assertEquals(2, fromBuilder.getCompressedLength()),
+        () -> Assertions.assertEquals(394L, fromFactory.getUnsignedLongValue()),
+        () -> Assertions.assertEquals(2, fromFactory.getCompressedLength()),
+        () -> Assertions.assertEquals(fromBuilder, fromFactory),
+        () -> Assertions.assertEquals(5L, copied.getUnsignedLongValue()),
+        () -> Assertions.assertEquals(1, copied.getCompressedLength())
+    );
+  }
+
+  @Test
+  public void testWrap_sharesBuffer() {
+    final byte[] header = new byte[]{0x00, (byte) 0b00001010, (byte) 0b10000011, (byte) 0x81};
+
+    final CompressedInt view = CompressedIntFactory.wrap(header, 1);
+    final CompressedInt copy = CompressedIntFactory.fromCompressedBytes(CP_394);
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(394L, view.getLongValue()),
+        () -> Assertions.assertEquals(2, view.getCompressedLength()),
+        () -> Assertions.assertArrayEquals(CP_394, view.getCompressedBytes()),
+        () -> Assertions.assertNotSame(view.getCompressedBytes(), view.getCompressedBytes()),
+        () -> Assertions.assertEquals(copy, view),
+        () -> Assertions.assertEquals(view, copy),
+        () -> Assertions.assertEquals(copy.hashCode(), view.hashCode()),
+        () -> Assertions.assertEquals(1L, CompressedIntFactory.wrap(header, 3).getLongValue())
+    );
+  }
+
+  @Test
+  public void testWrap_truncated() {
+    final byte[] header = new byte[]{0x00, (byte) 0b00001010};
+
+    Assertions.assertThrows(IllegalArgumentException.class, () -> CompressedIntFactory.wrap(header, 1));
+  }
+
+  @Test
+  public void testValueOf_cached() {
+    Assertions.assertAll(
+        () -> Assertions.assertSame(CompressedIntFactory.valueOf(2L), CompressedIntFactory.valueOf(2L)),
+        () -> Assertions.assertEquals(CompressedIntFactory.valueOf(394L), CompressedIntFactory.fromCompressedBytes(CP_394)),
+        () -> Assertions.assertEquals(255L, CompressedIntFactory.valueOf(255L).getLongValue())
+    );
+  }
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.compressedint;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CompressedIntUtilTest {
+
+  private static final long[] VALUES = new long[]{
+      0L, 1L, 127L, 128L, 394L, 16_383L, 16_384L, Integer.MAX_VALUE, 4_294_967_295L, 0xffffffff00ffffL, Long.MAX_VALUE, -2L, -1L
+  };
+
+  @Test
+  public void testDecode_roundTrip() {
+    for (final long value : VALUES) {
+      final byte[] compressed = CompressedIntUtil.compress(value);
+      final byte[] padded = new byte[compressed.length + 3];
+      System.arraycopy(compressed, 0, padded, 2, compressed.length);
+
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(value, CompressedIntUtil.decodeUnsignedLong(padded, 2)),
+          () -> Assertions.assertEquals(compressed.length, CompressedIntUtil.compressedLength(padded, 2)),
+          () -> Assertions.assertEquals(value, CompressedIntUtil.decompress(compressed).longValue())
+      );
+    }
+  }
+
+  @Test
+  public void testDecode_byteBuffer() {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(VALUES.length * CompressedIntUtil.MAX_COMPRESSED_INT_LENGTH);
+    for (final long value : VALUES) {
+      buffer.put(CompressedIntUtil.compress(value));
+    }
+    buffer.flip();
+
+    for (final long value : VALUES) {
+      final int position = buffer.position();
+      final int expectedLength = CompressedIntUtil.compress(value).length;
+
+      Assertions.assertEquals(expectedLength, CompressedIntUtil.compressedLength(buffer, position));
+      Assertions.assertEquals(value, CompressedIntUtil.decodeUnsignedLong(buffer, position));
+      Assertions.assertEquals(value, CompressedIntUtil.decodeUnsignedLong(buffer));
+      Assertions.assertEquals(position + expectedLength, buffer.position());
+    }
+
+    Assertions.assertFalse(buffer.hasRemaining());
+  }
+
+  @Test
+  public void testDecode_truncated() {
+    final byte[] truncated = new byte[]{0x0a, 0x03};
+    final ByteBuffer buffer = ByteBuffer.wrap(truncated);
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(-1, CompressedIntUtil.compressedLength(truncated, 0)),
+        () -> Assertions.assertEquals(-1, CompressedIntUtil.compressedLength(buffer, 0)),
+        () -> Assertions.assertThrows(IllegalArgumentException.class, () -> CompressedIntUtil.decodeUnsignedLong(truncated, 0)),
+        () -> Assertions.assertThrows(IllegalArgumentException.class, () -> CompressedIntUtil.decodeUnsignedLong(buffer)),
+        () -> Assertions.assertEquals(0, buffer.position())
+    );
+  }
+
+  @Test
+  public void testDecode_tooLong() {
+    final byte[] tooLong = new byte[CompressedIntUtil.MAX_COMPRESSED_INT_LENGTH + 1];
+    tooLong[tooLong.length - 1] = (byte) 0x81;
+
+    Assertions.assertAll(
+        () -> Assertions.assertThrows(IllegalArgumentException.class, () -> CompressedIntUtil.compressedLength(tooLong, 0)),
+        () -> Assertions.assertThrows(IllegalArgumentException.class, () -> CompressedIntUtil.decodeUnsignedLong(tooLong, 0))
+    );
+  }
+
+  @Test
+  public void testDecode_exceeds64Bits() {
+    final byte[] overflow = new byte[]{0x7f, 0x7f, 0x7f, 0x7f, 0x7f, 0x7f, 0x7f, 0x7f, 0x7f, (byte) 0x82};
+
+    Assertions.assertThrows(IllegalArgumentException.class, () -> CompressedIntUtil.decodeUnsignedLong(overflow, 0));
+  }
+
+  @Test
+  public void testEncode_inPlace() {
+    for (final long value : VALUES) {
+      final int length = CompressedIntUtil.encodedLength(value);
+      final byte[] dst = new byte[length + 2];
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(length + 2);
+      buffer.position(1);
+
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(length, CompressedIntUtil.encode(value, dst, 1)),
+          () -> Assertions.assertEquals(value, CompressedIntUtil.decodeUnsignedLong(dst, 1)),
+          () -> Assertions.assertEquals(length, CompressedIntUtil.encode(value, buffer)),
+          () -> Assertions.assertEquals(1 + length, buffer.position()),
+          () -> Assertions.assertEquals(value, CompressedIntUtil.decodeUnsignedLong(buffer, 1)),
+          () -> Assertions.assertEquals(length, CompressedIntUtil.compress(value).length)
+      );
+    }
+  }
+
+  @Test
+  public void testEncode_bufferTooSmall() {
+    final ByteBuffer buffer = ByteBuffer.allocate(2);
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(1, CompressedIntUtil.encodedLength(0L)),
+        () -> Assertions.assertEquals(10, CompressedIntUtil.encodedLength(-1L)),
+        () -> Assertions.assertThrows(BufferOverflowException.class, () -> CompressedIntUtil.encode(16_384L, buffer)),
+        () -> Assertions.assertThrows(IndexOutOfBoundsException.class, () -> CompressedIntUtil.encode(394L, buffer, 1)),
+        () -> Assertions.assertEquals(0, buffer.position()),
+        () -> Assertions.assertEquals(0, buffer.get(1))
+    );
+  }
+}
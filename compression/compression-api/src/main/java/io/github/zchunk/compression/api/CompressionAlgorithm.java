@@ -17,7 +17,12 @@
 package io.github.zchunk.compression.api;
 
 import io.github.zchunk.compressedint.CompressedInt;
+import io.github.zchunk.compression.api.err.DecompressionException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 import java.util.function.BiFunction;
 
 public interface CompressionAlgorithm {
@@ -42,4 +47,112 @@ public interface CompressionAlgorithm {
    * @throws io.github.zchunk.compression.api.err.DecompressionException if an exception occurs.
    */
   BiFunction<InputStream, byte[], InputStream> getOutputStreamSupplier();
+
+  /**
+   * Whether blocks are stored as they are, i.e. the decompressed bytes are equal to the compressed bytes.
+   *
+   * <p>Readers may then copy the data straight from the file, e.g. with {@link java.nio.channels.FileChannel#transferTo(long,
+   * long, java.nio.channels.WritableByteChannel)}, instead of decompressing it.</p>
+   *
+   * @return {@code true} if decompression is a plain copy. The default is {@code false}.
+   */
+  default boolean isPassThrough() {
+    return false;
+  }
+
+  /**
+   * Prepares a dict once, so it can be shared by all chunk decompressions of a file.
+   *
+   * <p>The default implementation keeps the raw dict. Implementations may override this to digest the dict up front.</p>
+   *
+   * @param dict
+   *     the decompressed dict, or an empty array. Must not be modified afterwards.
+   * @return an immutable, thread safe dictionary handle.
+   */
+  default DecompressionDictionary prepareDictionary(final byte[] dict) {
+    return DecompressionDictionary.raw(dict);
+  }
+
+  /**
+   * Creates a stream which decompresses {@code compressed} using a prepared dictionary.
+   *
+   * <p>The default implementation passes the raw dict to {@link #getOutputStreamSupplier()}.</p>
+   *
+   * @param compressed
+   *     the compressed input.
+   * @param dict
+   *     a dictionary prepared by this algorithm.
+   * @return the decompressed stream.
+   * @throws DecompressionException
+   *     if the stream cannot be created.
+   */
+  default InputStream decompressStream(final InputStream compressed, final DecompressionDictionary dict) {
+    return getOutputStreamSupplier().apply(compressed, dict.getBytes());
+  }
+
+  /**
+   * Decompresses a complete block, e.g. a single chunk, from buffer to buffer.
+   *
+   * <p>All remaining bytes of {@code src} are taken as one block. On success, the position of {@code src} is moved to
+   * its limit and the position of {@code dst} is advanced by the number of decompressed bytes.</p>
+   *
+   * <p>The default implementation reads from a stream created by {@link #decompressStream(InputStream,
+   * DecompressionDictionary)}. Implementations should override this to decompress with a single call.</p>
+   *
+   * @param src
+   *     the compressed block.
+   * @param dst
+   *     the buffer to decompress into. Should have exactly the uncompressed length remaining.
+   * @param dict
+   *     a dictionary prepared by this algorithm.
+   * @return the number of decompressed bytes.
+   * @throws DecompressionException
+   *     if the block is invalid or does not fit into {@code dst}.
+   */
+  default int decompress(final ByteBuffer src, final ByteBuffer dst, final DecompressionDictionary dict) {
+    final byte[] compressed = new byte[src.remaining()];
+    src.duplicate().get(compressed);
+    final int start = dst.position();
+
+    try (final InputStream decompressedStream = decompressStream(new ByteArrayInputStream(compressed), dict)) {
+      final byte[] buffer = new byte[Math.max(1, Math.min(dst.remaining(), 64 * 1024))];
+      int read;
+      while ((read = decompressedStream.read(buffer, 0, Math.max(1, Math.min(buffer.length, dst.remaining())))) != -1) {
+        if (read > dst.remaining()) {
+          throw new DecompressionException("Block does not fit into [" + (dst.position() - start) + "] bytes.");
+        }
+        dst.put(buffer, 0, read);
+      }
+    } catch (final IOException ioEx) {
+      throw new DecompressionException("Unable to decompress block.", ioEx);
+    }
+
+    ((Buffer) src).position(src.limit());
+
+    return dst.position() - start;
+  }
+
+  /**
+   * Decompresses a complete block, e.g. a single chunk, which is already in memory.
+   *
+   * @param compressed
+   *     the compressed block.
+   * @param dict
+   *     a dictionary prepared by this algorithm.
+   * @param uncompressedLength
+   *     the exact length of the decompressed block.
+   * @return the decompressed block.
+   * @throws DecompressionException
+   *     if the block is invalid or does not decompress to exactly {@code uncompressedLength} bytes.
+   * @see #decompress(ByteBuffer, ByteBuffer, DecompressionDictionary)
+   */
+  default byte[] decompress(final byte[] compressed, final DecompressionDictionary dict, final int uncompressedLength) {
+    final byte[] decompressed = new byte[uncompressedLength];
+    final int written = decompress(ByteBuffer.wrap(compressed), ByteBuffer.wrap(decompressed), dict);
+    if (written != uncompressedLength) {
+      throw new DecompressionException("Block decompressed to [" + written + "] bytes, expected [" + uncompressedLength + "].");
+    }
+
+    return decompressed;
+  }
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.compression.api;
+
+/**
+ * A decompression dict, prepared once per file by {@link CompressionAlgorithm#prepareDictionary(byte[])}.
+ *
+ * <p>Implementations are immutable and thread safe, so a single instance can be shared by all chunk decompressions
+ * of a file. Algorithms may keep a pre-digested form of the dict, which is opaque to callers.</p>
+ */
+public interface DecompressionDictionary {
+
+  /**
+   * The raw dict, as taken from the zchunk file.
+   *
+   * @return the decompressed dict, which is empty if the file has no dict. The array is shared and must not be
+   *     modified.
+   */
+  byte[] getBytes();
+
+  default boolean isEmpty() {
+    return getBytes().length == 0;
+  }
+
+  /**
+   * Creates a dictionary which only holds the raw dict, for algorithms without a pre-digested form.
+   *
+   * @param dict
+   *     the decompressed dict. Must not be modified afterwards.
+   * @return a dictionary handle.
+   */
+  static DecompressionDictionary raw(final byte[] dict) {
+    return new RawDecompressionDictionary(dict);
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.compression.api;
+
+import java.util.StringJoiner;
+
+final class RawDecompressionDictionary implements DecompressionDictionary {
+
+  private final byte[] dict;
+
+  RawDecompressionDictionary(final byte[] dict) {
+    this.dict = dict;
+  }
+
+  @Override
+  public byte[] getBytes() {
+    return this.dict;
+  }
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", RawDecompressionDictionary.class.getSimpleName() + "[", "]")
+        .add("length=" + this.dict.length)
+        .toString();
+  }
+}
@@ -7,4 +7,8 @@ public class DecompressionException extends RuntimeException {
   public DecompressionException(String message) {
     super(message);
   }
+
+  public DecompressionException(final String message, final Throwable cause) {
+    super(message, cause);
+  }
 }
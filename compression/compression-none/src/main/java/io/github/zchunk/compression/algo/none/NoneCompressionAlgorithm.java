@@ -3,8 +3,11 @@ package io.github.zchunk.compression.algo.none;
 import io.github.zchunk.compressedint.CompressedInt;
 import io.github.zchunk.compressedint.CompressedIntFactory;
 import io.github.zchunk.compression.api.CompressionAlgorithm;
+import io.github.zchunk.compression.api.DecompressionDictionary;
+import io.github.zchunk.compression.api.err.DecompressionException;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.function.BiFunction;
 
 public class NoneCompressionAlgorithm implements CompressionAlgorithm {
@@ -23,4 +26,32 @@ public class NoneCompressionAlgorithm implements CompressionAlgorithm {
   public BiFunction<InputStream, byte[], InputStream> getOutputStreamSupplier() {
     return (a, b) -> a;
   }
+
+  @Override
+  public boolean isPassThrough() {
+    return true;
+  }
+
+  /**
+   * Copies the block, as it is stored uncompressed.
+   *
+   * @param src
+   *     the stored block.
+   * @param dst
+   *     the buffer to copy into.
+   * @param dict
+   *     ignored.
+   * @return the number of bytes copied.
+   */
+  @Override
+  public int decompress(final ByteBuffer src, final ByteBuffer dst, final DecompressionDictionary dict) {
+    final int length = src.remaining();
+    if (length > dst.remaining()) {
+      throw new DecompressionException("Block of [" + length + "] bytes does not fit into [" + dst.remaining() + "] bytes.");
+    }
+
+    dst.put(src);
+
+    return length;
+  }
 }
@@ -1,12 +1,15 @@
 package io.github.zchunk.compression.algo.zstd;
 
+import com.github.luben.zstd.RecyclingBufferPool;
 import com.github.luben.zstd.ZstdInputStream;
 import io.github.zchunk.compressedint.CompressedInt;
 import io.github.zchunk.compressedint.CompressedIntFactory;
 import io.github.zchunk.compression.api.CompressionAlgorithm;
+import io.github.zchunk.compression.api.DecompressionDictionary;
 import io.github.zchunk.compression.api.err.DecompressionException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.function.BiFunction;
 
@@ -15,6 +18,9 @@ public class ZStdCompressionAlgorithm implements CompressionAlgorithm {
   private static final CompressedInt TWO = CompressedIntFactory.valueOf(2L);
   private static final String ALGORITHM_NAME_ZSTD = "zstd";
 
+  private static final ZStdDecompressContextPool CONTEXT_POOL =
+      new ZStdDecompressContextPool(Runtime.getRuntime().availableProcessors());
+
   @Override
   public CompressedInt getCompressionTypeValue() {
     return TWO;
@@ -30,10 +36,58 @@ public class ZStdCompressionAlgorithm implements CompressionAlgorithm {
     return createZstdInputStream();
   }
 
+  /**
+   * Digests the dict once into a native zstd dict, which is then shared by all contexts and streams.
+   *
+   * @param dict
+   *     the decompressed dict, or an empty array. Must not be modified afterwards.
+   * @return a pre-digested dictionary.
+   */
+  @Override
+  public DecompressionDictionary prepareDictionary(final byte[] dict) {
+    if (dict.length == 0) {
+      return DecompressionDictionary.raw(dict);
+    }
+
+    return new ZStdDecompressionDictionary(dict);
+  }
+
+  @Override
+  public InputStream decompressStream(final InputStream compressed, final DecompressionDictionary dict) {
+    if (!(dict instanceof ZStdDecompressionDictionary)) {
+      return getOutputStreamSupplier().apply(compressed, dict.getBytes());
+    }
+
+    try {
+      return new ZstdInputStream(compressed, RecyclingBufferPool.INSTANCE)
+          .setDict(((ZStdDecompressionDictionary) dict).getDigested());
+    } catch (final IOException ioEx) {
+      throw new DecompressionException("Unable to create input stream.", ioEx);
+    }
+  }
+
+  /**
+   * Decompresses a block with a single native call on a pooled context. The dictionary is loaded for each block and
+   * unloaded when the context is returned to the pool, which only references a pre-digested dictionary.
+   *
+   * @param src
+   *     the compressed block.
+   * @param dst
+   *     the buffer to decompress into.
+   * @param dict
+   *     the dictionary, preferably prepared by {@link #prepareDictionary(byte[])}.
+   * @return the number of decompressed bytes.
+   */
+  @Override
+  public int decompress(final ByteBuffer src, final ByteBuffer dst, final DecompressionDictionary dict) {
+    return CONTEXT_POOL.decompress(src, dst, dict);
+  }
+
   private BiFunction<InputStream, byte[], InputStream> createZstdInputStream() {
     return (compressedInputStream, dict) -> {
       try {
-        final ZstdInputStream zstdInputStream = new ZstdInputStream(compressedInputStream);
+        // the internal buffers are recycled between streams.
+        final ZstdInputStream zstdInputStream = new ZstdInputStream(compressedInputStream, RecyclingBufferPool.INSTANCE);
         if (!Arrays.equals(new byte[0], dict)) {
           zstdInputStream.setDict(dict);
         }
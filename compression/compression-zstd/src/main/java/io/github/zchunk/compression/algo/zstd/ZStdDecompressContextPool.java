@@ -0,0 +1,166 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.compression.algo.zstd;
+
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdException;
+import io.github.zchunk.compression.api.DecompressionDictionary;
+import io.github.zchunk.compression.api.err.DecompressionException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A bounded pool of native zstd decompression contexts.
+ *
+ * <p>Creating a context allocates native memory, which dominates the cost of decompressing small chunks. Borrowed
+ * contexts are returned to the pool after use, so decompressing many chunks does not create contexts. The dict is
+ * unloaded when a context is returned, so idle contexts never keep the dict of a file alive which is not read
+ * anymore. Pre-digested dictionaries are only referenced, which keeps loading them per chunk cheap, other
+ * dictionaries are digested when loaded.</p>
+ *
+ * <p>Contexts which do not fit into the pool when returned are closed, so native memory is never leaked.</p>
+ */
+final class ZStdDecompressContextPool {
+
+  private static final Object NO_DICT = new Object();
+
+  private final BlockingQueue<PooledContext> idle;
+
+  ZStdDecompressContextPool(final int capacity) {
+    this.idle = new ArrayBlockingQueue<>(capacity);
+  }
+
+  /**
+   * Decompresses a complete zstd frame with a pooled context in a single native call.
+   *
+   * <p>Heap buffers are decompressed in place, as are pairs of direct buffers. Other combinations go through a
+   * temporary array.</p>
+   *
+   * @param src
+   *     the compressed frame, all remaining bytes are consumed.
+   * @param dst
+   *     the buffer to decompress into, its position is advanced.
+   * @param dict
+   *     the dictionary, only loaded into the context for this call.
+   * @return the number of decompressed bytes.
+   */
+  int decompress(final ByteBuffer src, final ByteBuffer dst, final DecompressionDictionary dict) {
+    final PooledContext context = borrow();
+
+    try {
+      context.useDict(dict);
+
+      final int written = decompress(context.context, src, dst);
+      ((Buffer) src).position(src.limit());
+      ((Buffer) dst).position(dst.position() + written);
+
+      return written;
+    } catch (final ZstdException zstdEx) {
+      // the context might be in an undefined state.
+      context.loadedDict = null;
+      throw new DecompressionException("Unable to decompress block.", zstdEx);
+    } finally {
+      release(context);
+    }
+  }
+
+  /**
+   * Decompresses without changing the positions of the buffers.
+   */
+  private static int decompress(final ZstdDecompressCtx context, final ByteBuffer src, final ByteBuffer dst) {
+    if (src.isDirect() && dst.isDirect()) {
+      return context.decompressDirectByteBuffer(dst, dst.position(), dst.remaining(), src, src.position(), src.remaining());
+    }
+
+    if (src.hasArray() && dst.hasArray()) {
+      return context.decompressByteArray(
+          dst.array(), dst.arrayOffset() + dst.position(), dst.remaining(),
+          src.array(), src.arrayOffset() + src.position(), src.remaining());
+    }
+
+    final byte[] compressed = new byte[src.remaining()];
+    src.duplicate().get(compressed);
+    final byte[] decompressed = new byte[dst.remaining()];
+    final int written = context.decompressByteArray(decompressed, 0, decompressed.length, compressed, 0, compressed.length);
+    dst.duplicate().put(decompressed, 0, written);
+
+    return written;
+  }
+
+  private PooledContext borrow() {
+    final PooledContext pooled = this.idle.poll();
+    if (pooled != null) {
+      return pooled;
+    }
+
+    return new PooledContext(new ZstdDecompressCtx());
+  }
+
+  private void release(final PooledContext context) {
+    try {
+      context.unloadDict();
+    } catch (final ZstdException zstdEx) {
+      context.context.close();
+      return;
+    }
+
+    if (!this.idle.offer(context)) {
+      context.context.close();
+    }
+  }
+
+  private static final class PooledContext {
+
+    private final ZstdDecompressCtx context;
+
+    /**
+     * The dictionary loaded into the context, {@link #NO_DICT} if none, {@code null} if unknown.
+     */
+    private Object loadedDict = NO_DICT;
+
+    PooledContext(final ZstdDecompressCtx context) {
+      this.context = context;
+    }
+
+    void useDict(final DecompressionDictionary dict) {
+      final Object wanted = dict.isEmpty() ? NO_DICT : dict;
+      if (wanted == this.loadedDict) {
+        return;
+      }
+
+      if (dict instanceof ZStdDecompressionDictionary) {
+        this.context.loadDict(((ZStdDecompressionDictionary) dict).getDigested());
+      } else {
+        // also unloads the dict if empty.
+        this.context.loadDict(dict.getBytes());
+      }
+
+      this.loadedDict = wanted;
+    }
+
+    void unloadDict() {
+      if (this.loadedDict == NO_DICT) {
+        return;
+      }
+
+      this.context.loadDict(new byte[0]);
+      this.loadedDict = NO_DICT;
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.compression.algo.zstd;
+
+import com.github.luben.zstd.ZstdDictDecompress;
+import io.github.zchunk.compression.api.DecompressionDictionary;
+import java.util.StringJoiner;
+
+/**
+ * A zstd dict which is digested once and then only referenced by decompression contexts and streams.
+ *
+ * <p>The native dict is freed when this instance is garbage collected.</p>
+ */
+final class ZStdDecompressionDictionary implements DecompressionDictionary {
+
+  private final byte[] dict;
+
+  private final ZstdDictDecompress digested;
+
+  ZStdDecompressionDictionary(final byte[] dict) {
+    this.dict = dict;
+    this.digested = new ZstdDictDecompress(dict);
+  }
+
+  @Override
+  public byte[] getBytes() {
+    return this.dict;
+  }
+
+  ZstdDictDecompress getDigested() {
+    return this.digested;
+  }
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", ZStdDecompressionDictionary.class.getSimpleName() + "[", "]")
+        .add("length=" + this.dict.length)
+        .toString();
+  }
+}
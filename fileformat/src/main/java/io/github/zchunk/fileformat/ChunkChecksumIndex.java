@@ -0,0 +1,223 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * An open-addressing hash index which resolves chunk checksums to chunk numbers.
+ *
+ * <p>The table only holds chunk numbers in an {@code int[]}. Checksums are compared in place against the
+ * {@link ChunkIndex}, so neither lookups nor set operations box values or allocate per chunk.</p>
+ *
+ * <p>Each distinct checksum occupies a single slot, which holds its lowest chunk number. Chunks with equal checksums
+ * are chained from there in ascending chunk number order, so duplicates neither lengthen the probe sequences of other
+ * checksums nor have to be compared again.</p>
+ */
+public final class ChunkChecksumIndex {
+
+  private static final int EMPTY = -1;
+
+  private static final int[] NO_CHUNKS = new int[0];
+
+  private final ChunkIndex chunks;
+
+  /**
+   * The lowest chunk number of each distinct checksum, or {@link #EMPTY}.
+   */
+  private final int[] table;
+
+  /**
+   * The number of chunks sharing the checksum of the corresponding table slot.
+   */
+  private final int[] runLengths;
+
+  /**
+   * The next higher chunk number with the same checksum for each chunk, or {@link #EMPTY}.
+   */
+  private final int[] nextDuplicate;
+
+  private final int mask;
+
+  /**
+   * The random initial state of {@link #hash(byte[], int, int)}.
+   */
+  private final long seed;
+
+  ChunkChecksumIndex(final ChunkIndex chunks) {
+    this.chunks = chunks;
+    this.seed = ThreadLocalRandom.current().nextLong();
+    final int chunkCount = chunks.getChunkCount();
+    // load factor of at most 0.5 keeps probe sequences short.
+    final int capacity = Integer.highestOneBit(Math.max(1, chunkCount) * 2 - 1) << 1;
+    this.table = new int[capacity];
+    this.runLengths = new int[capacity];
+    this.nextDuplicate = new int[chunkCount];
+    this.mask = capacity - 1;
+    Arrays.fill(this.table, EMPTY);
+    Arrays.fill(this.nextDuplicate, EMPTY);
+
+    final int checksumLength = chunks.getChecksumLength();
+    final byte[] checksum = new byte[checksumLength];
+    // the last chunk of each run, only needed to append in ascending order.
+    final int[] runTails = new int[capacity];
+
+    for (int chunkNumber = 0; chunkNumber < chunkCount; chunkNumber++) {
+      chunks.copyChunkChecksum(chunkNumber, checksum, 0);
+      final int slot = findSlot(checksum, 0);
+
+      if (this.table[slot] == EMPTY) {
+        this.table[slot] = chunkNumber;
+      } else {
+        this.nextDuplicate[runTails[slot]] = chunkNumber;
+      }
+
+      runTails[slot] = chunkNumber;
+      this.runLengths[slot]++;
+    }
+  }
+
+  /**
+   * Finds the first chunk with the given checksum.
+   *
+   * @param checksum
+   *     the chunk checksum to look up.
+   * @return the lowest chunk number with this checksum, or {@code -1} if there is none.
+   */
+  public int indexOf(final byte[] checksum) {
+    if (checksum.length != this.chunks.getChecksumLength()) {
+      return EMPTY;
+    }
+
+    return this.table[findSlot(checksum, 0)];
+  }
+
+  /**
+   * Finds all chunks with the given checksum.
+   *
+   * @param checksum
+   *     the chunk checksum to look up.
+   * @return the chunk numbers in ascending order, or an empty array.
+   */
+  public int[] indicesOf(final byte[] checksum) {
+    if (checksum.length != this.chunks.getChecksumLength()) {
+      return NO_CHUNKS;
+    }
+
+    final int slot = findSlot(checksum, 0);
+    if (this.table[slot] == EMPTY) {
+      return NO_CHUNKS;
+    }
+
+    final int[] found = new int[this.runLengths[slot]];
+    int chunkNumber = this.table[slot];
+    for (int index = 0; index < found.length; index++) {
+      found[index] = chunkNumber;
+      chunkNumber = this.nextDuplicate[chunkNumber];
+    }
+
+    return found;
+  }
+
+  public boolean contains(final byte[] checksum) {
+    return indexOf(checksum) != EMPTY;
+  }
+
+  /**
+   * Finds the chunks of {@code other} which are also present in this index, e.g. chunks which can be reused
+   * from a local file when fetching {@code other}.
+   *
+   * @param other
+   *     the index to compare with. Must use the same checksum type.
+   * @return the chunk numbers of {@code other} in ascending order.
+   * @throws IllegalArgumentException
+   *     if the checksum lengths do not match.
+   */
+  public int[] intersection(final ChunkIndex other) {
+    return select(other, true);
+  }
+
+  /**
+   * Finds the chunks of {@code other} which are missing in this index, e.g. chunks which have to be downloaded.
+   *
+   * @param other
+   *     the index to compare with. Must use the same checksum type.
+   * @return the chunk numbers of {@code other} in ascending order.
+   * @throws IllegalArgumentException
+   *     if the checksum lengths do not match.
+   */
+  public int[] difference(final ChunkIndex other) {
+    return select(other, false);
+  }
+
+  private int[] select(final ChunkIndex other, final boolean present) {
+    final int checksumLength = this.chunks.getChecksumLength();
+    if (other.getChecksumLength() != checksumLength) {
+      throw new IllegalArgumentException("Cannot compare checksums of length [" + other.getChecksumLength()
+          + "] with checksums of length [" + checksumLength + "].");
+    }
+
+    final byte[] checksum = new byte[checksumLength];
+    final int[] selected = new int[other.getChunkCount()];
+    int count = 0;
+
+    for (int chunkNumber = 0; chunkNumber < other.getChunkCount(); chunkNumber++) {
+      other.copyChunkChecksum(chunkNumber, checksum, 0);
+      if ((this.table[findSlot(checksum, 0)] != EMPTY) == present) {
+        selected[count++] = chunkNumber;
+      }
+    }
+
+    return Arrays.copyOf(selected, count);
+  }
+
+  /**
+   * Probes for the slot of a checksum.
+   *
+   * @return the slot holding the run of this checksum, or the empty slot where it would be inserted.
+   */
+  private int findSlot(final byte[] src, final int offset) {
+    int slot = hash(src, offset, this.chunks.getChecksumLength()) & this.mask;
+
+    while (this.table[slot] != EMPTY && !this.chunks.chunkChecksumEquals(this.table[slot], src, offset)) {
+      slot = (slot + 1) & this.mask;
+    }
+
+    return slot;
+  }
+
+  /**
+   * Hashes the complete checksum with 64 bit FNV-1a and spreads the result with the MurmurHash3 finalizer.
+   *
+   * <p>Chunk checksums are read from the file as they are, so a crafted file can choose them freely. An unseeded hash
+   * would let it pick checksums which all probe from the same slot, making every lookup linear. The hash therefore
+   * starts from a random seed per instance, which the file cannot know.</p>
+   */
+  private int hash(final byte[] src, final int offset, final int length) {
+    long hash = 0xcbf29ce484222325L ^ this.seed;
+
+    for (int index = offset; index < offset + length; index++) {
+      hash = (hash ^ (src[index] & 0xff)) * 0x100000001b3L;
+    }
+
+    hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+    hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+
+    return (int) (hash ^ (hash >>> 33));
+  }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+import io.github.zchunk.compressedint.CompressedIntFactory;
+import java.util.StringJoiner;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Columnar representation of the chunk records of the {@link ZChunkHeaderIndex}, not including the dict chunk.
+ *
+ * <p>Chunks are accessed by chunk number. Compressed and decompressed offsets are precomputed as prefix sums, so all
+ * lookups are constant time.</p>
+ *
+ * <p>Compressed offsets are relative to the first chunk after the dict, decompressed offsets are relative to the
+ * start of the decompressed data after the dict.</p>
+ */
+public abstract class ChunkIndex {
+
+  private volatile @Nullable ChunkChecksumIndex checksumIndex;
+
+  ChunkIndex() {
+    // only implemented in this package.
+  }
+
+  /**
+   * Creates an index from the given columns. The arrays are taken as they are and must not be modified afterwards.
+   *
+   * @param checksumLength
+   *     the length of each chunk checksum.
+   * @param checksums
+   *     the checksums of all chunks, concatenated in chunk order.
+   * @param lengths
+   *     the compressed length of each chunk.
+   * @param uncompressedLengths
+   *     the uncompressed length of each chunk.
+   * @return a chunk index.
+   * @throws IllegalArgumentException
+   *     if the arrays do not describe the same number of chunks.
+   */
+  public static ChunkIndex of(final int checksumLength, final byte[] checksums, final long[] lengths, final long[] uncompressedLengths) {
+    if (lengths.length != uncompressedLengths.length || (long) lengths.length * checksumLength != checksums.length) {
+      throw new IllegalArgumentException("Column sizes do not match: [" + checksums.length + "] checksum bytes, ["
+          + lengths.length + "] lengths and [" + uncompressedLengths.length + "] uncompressed lengths.");
+    }
+
+    return new HeapChunkIndex(checksumLength, checksums, lengths, uncompressedLengths);
+  }
+
+  /**
+   * Creates an index over encoded chunk records which are only decoded on first access to a chunk.
+   *
+   * <p>The chunk count and checksum length are known up front, so they can be queried without decoding.</p>
+   *
+   * @param src
+   *     the array holding the records, e.g. a complete header. Must not be modified afterwards.
+   * @param offset
+   *     the offset of the first record.
+   * @param end
+   *     the offset after the last byte the records may occupy.
+   * @param chunkCount
+   *     the number of records.
+   * @param checksumLength
+   *     the length of each chunk checksum.
+   * @return a chunk index which decodes the records when needed.
+   */
+  public static ChunkIndex lazy(final byte[] src, final int offset, final int end, final int chunkCount, final int checksumLength) {
+    return new LazyChunkIndex(src, offset, end, chunkCount, checksumLength);
+  }
+
+  public abstract int getChunkCount();
+
+  public abstract int getChecksumLength();
+
+  /**
+   * Copies the checksum of a chunk into {@code dst}.
+   *
+   * @param chunkNumber
+   *     the chunk number.
+   * @param dst
+   *     the array to copy to.
+   * @param offset
+   *     the offset in {@code dst} to copy to.
+   * @throws IndexOutOfBoundsException
+   *     if there is no such chunk or {@code dst} is too small.
+   */
+  public abstract void copyChunkChecksum(int chunkNumber, byte[] dst, int offset);
+
+  /**
+   * Compares the checksum of a chunk with {@link #getChecksumLength()} bytes of {@code src}, without copying.
+   *
+   * @param chunkNumber
+   *     the chunk number.
+   * @param src
+   *     the array holding the checksum to compare with.
+   * @param offset
+   *     the offset of the checksum in {@code src}.
+   * @return {@code true} if the checksums are equal.
+   */
+  public abstract boolean chunkChecksumEquals(int chunkNumber, byte[] src, int offset);
+
+  public byte[] getChunkChecksum(final int chunkNumber) {
+    final byte[] checksum = new byte[getChecksumLength()];
+    copyChunkChecksum(chunkNumber, checksum, 0);
+
+    return checksum;
+  }
+
+  public abstract long getChunkLength(int chunkNumber);
+
+  public abstract long getUncompressedChunkLength(int chunkNumber);
+
+  /**
+   * Offset of the chunk relative to the end of the dict.
+   *
+   * @param chunkNumber
+   *     the chunk number. {@link #getChunkCount()} is allowed and yields the end of the last chunk.
+   * @return the sum of the lengths of all previous chunks.
+   */
+  public abstract long getChunkOffset(int chunkNumber);
+
+  /**
+   * Offset of the chunk in the decompressed data, not including the dict.
+   *
+   * @param chunkNumber
+   *     the chunk number. {@link #getChunkCount()} is allowed and yields the total uncompressed length.
+   * @return the sum of the uncompressed lengths of all previous chunks.
+   */
+  public abstract long getDecompressedChunkOffset(int chunkNumber);
+
+  public long getTotalLength() {
+    return getChunkOffset(getChunkCount());
+  }
+
+  public long getTotalUncompressedLength() {
+    return getDecompressedChunkOffset(getChunkCount());
+  }
+
+  /**
+   * Finds the chunk holding a position of the uncompressed content using a binary search over the decompressed chunk
+   * offsets. Empty chunks are never returned.
+   *
+   * @param uncompressedPosition
+   *     the position in the uncompressed content, not including the dict.
+   * @return the chunk number, or {@code -1} if the position is negative or not before the total uncompressed length.
+   */
+  public int findChunk(final long uncompressedPosition) {
+    if (uncompressedPosition < 0L || uncompressedPosition >= getTotalUncompressedLength()) {
+      return -1;
+    }
+
+    // the last chunk starting at or before the position.
+    int low = 0;
+    int high = getChunkCount() - 1;
+    while (low < high) {
+      final int middle = (low + high + 1) >>> 1;
+      if (getDecompressedChunkOffset(middle) <= uncompressedPosition) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+
+    return low;
+  }
+
+  /**
+   * Creates a chunk info object for a single chunk.
+   *
+   * @param chunkNumber
+   *     the chunk number, starting at 0 for the first chunk after the dict.
+   * @return a new chunk info object.
+   */
+  public ZChunkHeaderChunkInfo getChunkInfo(final int chunkNumber) {
+    return ImmutableZChunkHeaderChunkInfo.builder()
+        .currentIndex(chunkNumber)
+        .chunkChecksum(getChunkChecksum(chunkNumber))
+        .chunkLength(CompressedIntFactory.valueOf(getChunkLength(chunkNumber)))
+        .chunkUncompressedLength(CompressedIntFactory.valueOf(getUncompressedChunkLength(chunkNumber)))
+        .build();
+  }
+
+  /**
+   * Returns a hash index over the chunk checksums, which is built on first access.
+   *
+   * @return the checksum index of this chunk index.
+   */
+  public ChunkChecksumIndex getChecksumIndex() {
+    ChunkChecksumIndex index = this.checksumIndex;
+    if (index == null) {
+      // benign race: concurrent callers might build equal indexes.
+      index = new ChunkChecksumIndex(this);
+      this.checksumIndex = index;
+    }
+
+    return index;
+  }
+
+  /**
+   * Two chunk indexes are equal if they describe the same chunks, regardless of how they are stored.
+   */
+  @Override
+  public boolean equals(final Object other) {
+    if (this == other) {
+      return true;
+    }
+
+    if (!(other instanceof ChunkIndex)) {
+      return false;
+    }
+
+    final ChunkIndex that = (ChunkIndex) other;
+    if (getChunkCount() != that.getChunkCount() || getChecksumLength() != that.getChecksumLength()) {
+      return false;
+    }
+
+    final byte[] checksum = new byte[getChecksumLength()];
+
+    for (int chunkNumber = 0; chunkNumber < getChunkCount(); chunkNumber++) {
+      that.copyChunkChecksum(chunkNumber, checksum, 0);
+
+      if (!chunkChecksumEquals(chunkNumber, checksum, 0)
+          || getChunkLength(chunkNumber) != that.getChunkLength(chunkNumber)
+          || getUncompressedChunkLength(chunkNumber) != that.getUncompressedChunkLength(chunkNumber)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = getChecksumLength();
+    result = 31 * result + getChunkCount();
+    result = 31 * result + Long.hashCode(getTotalLength());
+    result = 31 * result + Long.hashCode(getTotalUncompressedLength());
+
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", ChunkIndex.class.getSimpleName() + "[", "]")
+        .add("chunkCount=" + getChunkCount())
+        .add("checksumLength=" + getChecksumLength())
+        .add("totalLength=" + getTotalLength())
+        .add("totalUncompressedLength=" + getTotalUncompressedLength())
+        .toString();
+  }
+}
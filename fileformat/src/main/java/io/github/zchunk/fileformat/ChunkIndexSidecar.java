@@ -0,0 +1,248 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+import io.github.zchunk.fileformat.err.InvalidFileException;
+import io.github.zchunk.fileformat.util.IOUtil;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Reads and writes the optional {@code .zck.idx} sidecar file, which holds a precomputed chunk index.
+ *
+ * <p>Layout, all numbers are little endian:</p>
+ *
+ * <pre>
+ * +=================+===========================+==============================+
+ * | Magic (8 bytes) | Chunk count (int32)       | Chunk checksum length (int32)|
+ * +=================+===========================+==============================+
+ *
+ * +=====================================+=================+=====================+
+ * | Header checksum length (int32)      | Header checksum | Padding to 8 bytes  |
+ * +=====================================+=================+=====================+
+ *
+ * +==========================================+
+ * | Chunk index, see {@link OffHeapChunkIndex} |
+ * +==========================================+
+ * </pre>
+ *
+ * <p>The header checksum is the one from the lead of the zchunk file the sidecar was written for. A sidecar is only
+ * used if it matches the current header, so a stale sidecar is ignored rather than trusted.</p>
+ *
+ * <p>On open, the sidecar is memory-mapped read-only. The chunk records of the header are not decoded at all, and the
+ * mapped pages can be shared between processes through the page cache.</p>
+ */
+public final class ChunkIndexSidecar {
+
+  public static final String FILE_SUFFIX = ".idx";
+
+  private static final byte[] MAGIC = {'\0', 'Z', 'C', 'K', 'I', 'D', 'X', '1'};
+
+  private static final int FIXED_FIELDS_LENGTH = MAGIC.length + 3 * Integer.BYTES;
+
+  private ChunkIndexSidecar() {
+    // util class
+  }
+
+  /**
+   * Returns the location of the sidecar of a zchunk file, e.g. {@code file.zck.idx} for {@code file.zck}.
+   *
+   * @param zckFile
+   *     the zchunk file.
+   * @return the sidecar path next to it.
+   */
+  public static Path getSidecarPath(final Path zckFile) {
+    return zckFile.resolveSibling(zckFile.getFileName() + FILE_SUFFIX);
+  }
+
+  /**
+   * Writes the sidecar for a zchunk file, replacing an existing one.
+   *
+   * <p>The sidecar is written to a temporary file first and then moved into place, so concurrent readers never see
+   * a partially written sidecar. The content is forced to the storage device before the move.</p>
+   *
+   * @param zckFile
+   *     the zchunk file the header was read from.
+   * @param header
+   *     the header of the zchunk file.
+   * @return the path of the sidecar.
+   * @throws InvalidFileException
+   *     if the sidecar cannot be written.
+   */
+  public static Path write(final Path zckFile, final ZChunkHeader header) {
+    final Path sidecar = getSidecarPath(zckFile);
+    final ByteBuffer content = encode(header);
+
+    try {
+      // default permissions, so processes of other users can map the sidecar as well.
+      final Path tempFile = IOUtil.createSiblingFile(sidecar, ".tmp");
+
+      try {
+        try (final FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+          while (content.hasRemaining()) {
+            channel.write(content);
+          }
+          // the content must be durable before the move, or a crash could leave an empty sidecar in place.
+          channel.force(false);
+        }
+
+        move(tempFile, sidecar);
+      } finally {
+        Files.deleteIfExists(tempFile);
+      }
+    } catch (final IOException ioEx) {
+      throw new InvalidFileException("Unable to write index sidecar.", sidecar.toFile(), ioEx);
+    }
+
+    return sidecar;
+  }
+
+  /**
+   * Maps the sidecar of a zchunk file, if it exists and matches the header.
+   *
+   * @param zckFile
+   *     the zchunk file.
+   * @param header
+   *     the current header of the zchunk file.
+   * @return the chunk index from the sidecar, or {@code Optional.empty()} if there is no sidecar or if it does not
+   *     belong to this header.
+   * @throws InvalidFileException
+   *     if an existing sidecar cannot be read.
+   */
+  public static Optional<OffHeapChunkIndex> read(final Path zckFile, final ZChunkHeader header) {
+    final Path sidecar = getSidecarPath(zckFile);
+    final MappedByteBuffer mapped;
+
+    try (final FileChannel channel = FileChannel.open(sidecar, StandardOpenOption.READ)) {
+      // the mapping stays valid after the channel is closed.
+      mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+    } catch (final NoSuchFileException noFileEx) {
+      return Optional.empty();
+    } catch (final IOException ioEx) {
+      throw new InvalidFileException("Unable to read index sidecar.", sidecar.toFile(), ioEx);
+    }
+
+    return decode(mapped, header);
+  }
+
+  /**
+   * Replaces the chunk index of a header by the one from its sidecar, if there is a matching sidecar.
+   *
+   * @param zckFile
+   *     the zchunk file.
+   * @param header
+   *     the current header of the zchunk file.
+   * @return a header using the mapped chunk index, or the given header if there is no matching sidecar.
+   * @throws InvalidFileException
+   *     if an existing sidecar cannot be read.
+   */
+  public static ZChunkHeader withSidecarIndex(final Path zckFile, final ZChunkHeader header) {
+    return read(zckFile, header)
+        .map(chunks -> ZChunk.withDetachedIndex(header, chunks))
+        .orElse(header);
+  }
+
+  static ByteBuffer encode(final ZChunkHeader header) {
+    final ChunkIndex chunks = header.getIndex().getChunks();
+    final byte[] headerChecksum = header.getLead().getChecksum();
+    final int prefixLength = prefixLength(headerChecksum.length);
+
+    final int indexLength = OffHeapChunkIndex.byteSize(chunks.getChunkCount(), chunks.getChecksumLength());
+
+    final ByteBuffer content = ByteBuffer.allocate(prefixLength + indexLength).order(ByteOrder.LITTLE_ENDIAN);
+    content.put(MAGIC);
+    content.putInt(chunks.getChunkCount());
+    content.putInt(chunks.getChecksumLength());
+    content.putInt(headerChecksum.length);
+    content.put(headerChecksum);
+    ((Buffer) content).position(prefixLength);
+    OffHeapChunkIndex.write(chunks, content);
+
+    ((Buffer) content).flip();
+
+    return content;
+  }
+
+  static Optional<OffHeapChunkIndex> decode(final ByteBuffer content, final ZChunkHeader header) {
+    final ByteBuffer src = content.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    final int start = src.position();
+    if (src.remaining() < FIXED_FIELDS_LENGTH) {
+      return Optional.empty();
+    }
+
+    final byte[] magic = new byte[MAGIC.length];
+    src.get(magic);
+    final int chunkCount = src.getInt();
+    final int checksumLength = src.getInt();
+    final int headerChecksumLength = src.getInt();
+
+    // the chunk index of a freshly parsed header is not decoded by asking for its dimensions.
+    final ChunkIndex chunks = header.getIndex().getChunks();
+    final byte[] expectedChecksum = header.getLead().getChecksum();
+    if (!Arrays.equals(MAGIC, magic)
+        || chunkCount != chunks.getChunkCount()
+        || checksumLength != chunks.getChecksumLength()
+        || headerChecksumLength != expectedChecksum.length
+        || src.remaining() < headerChecksumLength) {
+      return Optional.empty();
+    }
+
+    final byte[] headerChecksum = new byte[headerChecksumLength];
+    src.get(headerChecksum);
+    if (!Arrays.equals(expectedChecksum, headerChecksum)) {
+      return Optional.empty();
+    }
+
+    final int indexStart = start + prefixLength(headerChecksumLength);
+    if (src.limit() - indexStart != OffHeapChunkIndex.byteSize(chunkCount, checksumLength)) {
+      return Optional.empty();
+    }
+
+    ((Buffer) src).position(indexStart);
+
+    return Optional.of(OffHeapChunkIndex.wrap(src, chunkCount, checksumLength));
+  }
+
+  /**
+   * Length of the fields before the chunk index, padded to a multiple of 8 bytes.
+   */
+  private static int prefixLength(final int headerChecksumLength) {
+    final int unpadded = FIXED_FIELDS_LENGTH + headerChecksumLength;
+
+    return (unpadded + Long.BYTES - 1) & -Long.BYTES;
+  }
+
+  private static void move(final Path source, final Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (final AtomicMoveNotSupportedException atomicEx) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
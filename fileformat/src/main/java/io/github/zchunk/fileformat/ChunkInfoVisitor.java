@@ -0,0 +1,40 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+/**
+ * Receives the chunk records of a header index one by one, in chunk order.
+ *
+ * @see io.github.zchunk.fileformat.parser.ChunkInfoStreamReader
+ */
+@FunctionalInterface
+public interface ChunkInfoVisitor {
+
+  /**
+   * Called for each chunk after the dict chunk.
+   *
+   * @param chunkNumber
+   *     the chunk number, starting at 0 for the first chunk after the dict.
+   * @param checksum
+   *     the chunk checksum. The array is reused for the next chunk, so it must be copied if it is retained.
+   * @param chunkLength
+   *     the compressed length of the chunk.
+   * @param uncompressedChunkLength
+   *     the uncompressed length of the chunk.
+   */
+  void visitChunk(int chunkNumber, byte[] checksum, long chunkLength, long uncompressedChunkLength);
+}
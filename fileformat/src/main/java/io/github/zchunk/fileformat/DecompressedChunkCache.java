@@ -0,0 +1,397 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A cache of decompressed chunks, bounded by their total size in bytes, with least-recently-used eviction.
+ *
+ * <p>Chunks are keyed by compression type, dict checksum, chunk checksum type and chunk checksum. Equal compressed
+ * chunks with the same dict decompress to the same bytes, so one cache can be shared by readers of different files,
+ * even of different versions of the same file. As an entry is served to every file declaring the same checksums, the
+ * dict must have been verified against its checksum, and the loader must verify the compressed chunk against its
+ * checksum before decompressing it. A cached chunk is only
+ * served if its length matches the uncompressed length declared by the requesting header, and a loaded chunk is only
+ * cached if it does.</p>
+ *
+ * <p>An entry is pinned while it is in use and is not evicted until the {@link PinnedChunk} is closed. Pinned
+ * entries may therefore exceed the budget for a short time. Concurrent requests for the same missing chunk are
+ * coalesced, so each chunk is decompressed only once.</p>
+ */
+public final class DecompressedChunkCache {
+
+  private final long maxBytes;
+
+  private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private final ConcurrentMap<Key, CompletableFuture<byte[]>> loading = new ConcurrentHashMap<>();
+
+  private final AtomicLong hitCount = new AtomicLong();
+
+  private final AtomicLong missCount = new AtomicLong();
+
+  private final AtomicLong evictionCount = new AtomicLong();
+
+  private long bytes;
+
+  /**
+   * Creates a cache.
+   *
+   * @param maxBytes
+   *     the maximum sum of the sizes of all unpinned decompressed chunks. Larger chunks are not cached at all.
+   * @throws IllegalArgumentException
+   *     if the budget is not positive.
+   */
+  public DecompressedChunkCache(final long maxBytes) {
+    if (maxBytes <= 0L) {
+      throw new IllegalArgumentException("Budget must be positive: [" + maxBytes + "] bytes.");
+    }
+
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Returns a decompressed chunk from the cache, or decompresses and caches it.
+   *
+   * @param header
+   *     the header of the file the chunk is from.
+   * @param chunkNumber
+   *     the chunk number, starting at 0 for the first chunk after the dict.
+   * @param loader
+   *     verifies and decompresses the chunk on a cache miss.
+   * @return the pinned chunk, which must be closed after use.
+   * @throws IOException
+   *     if the loader fails.
+   */
+  public PinnedChunk acquire(final ZChunkHeader header, final int chunkNumber, final ChunkLoader loader) throws IOException {
+    final Key key = Key.of(header, chunkNumber);
+    final long expectedLength = header.getIndex().getChunks().getUncompressedChunkLength(chunkNumber);
+
+    final PinnedChunk cached = pin(key, expectedLength);
+    if (cached != null) {
+      this.hitCount.incrementAndGet();
+      return cached;
+    }
+
+    final CompletableFuture<byte[]> future = new CompletableFuture<>();
+    final CompletableFuture<byte[]> inFlight = this.loading.putIfAbsent(key, future);
+    if (inFlight != null) {
+      // another thread is decompressing this chunk already.
+      this.hitCount.incrementAndGet();
+      final byte[] loaded = join(inFlight);
+      if (loaded.length != expectedLength) {
+        // loaded for a header which declares another length, this header is not served from it.
+        return new PinnedChunk(this, null, loader.load());
+      }
+
+      final PinnedChunk pinned = pin(key, expectedLength);
+
+      return pinned != null ? pinned : new PinnedChunk(this, null, loaded);
+    }
+
+    try {
+      // the entry might have been added after our first lookup, but before we started loading.
+      final PinnedChunk loaded = pin(key, expectedLength);
+      if (loaded != null) {
+        this.hitCount.incrementAndGet();
+        future.complete(loaded.getBytes());
+        return loaded;
+      }
+
+      this.missCount.incrementAndGet();
+      final byte[] decompressed = loader.load();
+      final PinnedChunk pinned = decompressed.length == expectedLength
+          ? putPinned(key, decompressed)
+          : new PinnedChunk(this, null, decompressed);
+      future.complete(decompressed);
+
+      return pinned;
+    } catch (final IOException | RuntimeException ex) {
+      future.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      this.loading.remove(key, future);
+    }
+  }
+
+  public void clear() {
+    synchronized (this.entries) {
+      final Iterator<Entry> iterator = this.entries.values().iterator();
+      while (iterator.hasNext()) {
+        final Entry entry = iterator.next();
+        if (entry.pins == 0) {
+          this.bytes -= entry.bytes.length;
+          iterator.remove();
+        }
+      }
+    }
+  }
+
+  public int size() {
+    synchronized (this.entries) {
+      return this.entries.size();
+    }
+  }
+
+  /**
+   * The sum of the sizes of all cached chunks, including pinned ones.
+   *
+   * @return the cached bytes.
+   */
+  public long getBytes() {
+    synchronized (this.entries) {
+      return this.bytes;
+    }
+  }
+
+  /**
+   * Requests which did not decompress the chunk, including those which waited for a concurrent request to do so.
+   *
+   * @return the number of cache hits.
+   */
+  public long getHitCount() {
+    return this.hitCount.get();
+  }
+
+  public long getMissCount() {
+    return this.missCount.get();
+  }
+
+  public long getEvictionCount() {
+    return this.evictionCount.get();
+  }
+
+  private @Nullable PinnedChunk pin(final Key key, final long expectedLength) {
+    synchronized (this.entries) {
+      final Entry entry = this.entries.get(key);
+      if (entry == null || entry.bytes.length != expectedLength) {
+        return null;
+      }
+
+      entry.pins++;
+
+      return new PinnedChunk(this, entry, entry.bytes);
+    }
+  }
+
+  private PinnedChunk putPinned(final Key key, final byte[] decompressed) {
+    if (decompressed.length > this.maxBytes) {
+      return new PinnedChunk(this, null, decompressed);
+    }
+
+    synchronized (this.entries) {
+      final Entry entry = new Entry(decompressed);
+      entry.pins = 1;
+
+      final Entry previous = this.entries.put(key, entry);
+      if (previous != null) {
+        this.bytes -= previous.bytes.length;
+      }
+      this.bytes += decompressed.length;
+      evict();
+
+      return new PinnedChunk(this, entry, decompressed);
+    }
+  }
+
+  private void unpin(final Entry entry) {
+    synchronized (this.entries) {
+      entry.pins--;
+      evict();
+    }
+  }
+
+  /**
+   * Removes the least recently used unpinned entries until the cache fits into its budget. Must hold the lock.
+   */
+  private void evict() {
+    final Iterator<Entry> eldest = this.entries.values().iterator();
+
+    while (this.bytes > this.maxBytes && eldest.hasNext()) {
+      final Entry entry = eldest.next();
+      if (entry.pins == 0) {
+        this.bytes -= entry.bytes.length;
+        eldest.remove();
+        this.evictionCount.incrementAndGet();
+      }
+    }
+  }
+
+  private static byte[] join(final CompletableFuture<byte[]> future) throws IOException {
+    try {
+      return future.join();
+    } catch (final CompletionException completionEx) {
+      final Throwable cause = completionEx.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+
+      throw completionEx;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", DecompressedChunkCache.class.getSimpleName() + "[", "]")
+        .add("maxBytes=" + this.maxBytes)
+        .add("size=" + size())
+        .add("bytes=" + getBytes())
+        .add("hitCount=" + getHitCount())
+        .add("missCount=" + getMissCount())
+        .add("evictionCount=" + getEvictionCount())
+        .toString();
+  }
+
+  /**
+   * Decompresses a chunk on a cache miss. Must reject compressed chunks which do not match their checksum, e.g. with
+   * an {@link io.github.zchunk.fileformat.err.InvalidFileException}.
+   */
+  @FunctionalInterface
+  public interface ChunkLoader {
+
+    byte[] load() throws IOException;
+  }
+
+  /**
+   * A decompressed chunk which is not evicted until it is closed.
+   */
+  public static final class PinnedChunk implements AutoCloseable {
+
+    private final DecompressedChunkCache cache;
+
+    private @Nullable Entry entry;
+
+    private final byte[] bytes;
+
+    PinnedChunk(final DecompressedChunkCache cache, final @Nullable Entry entry, final byte[] bytes) {
+      this.cache = cache;
+      this.entry = entry;
+      this.bytes = bytes;
+    }
+
+    /**
+     * The decompressed chunk. The array is shared and must not be modified.
+     *
+     * @return the decompressed bytes.
+     */
+    public byte[] getBytes() {
+      return this.bytes;
+    }
+
+    @Override
+    public void close() {
+      final Entry pinned = this.entry;
+      if (pinned != null) {
+        this.entry = null;
+        this.cache.unpin(pinned);
+      }
+    }
+  }
+
+  private static final class Entry {
+
+    private final byte[] bytes;
+
+    /**
+     * Number of open {@link PinnedChunk}s, guarded by the cache lock.
+     */
+    private int pins;
+
+    Entry(final byte[] bytes) {
+      this.bytes = bytes;
+    }
+  }
+
+  /**
+   * Identifies the decompressed content of a chunk.
+   */
+  private static final class Key {
+
+    private static final byte[] NO_DICT = new byte[0];
+
+    private final long compressionType;
+
+    private final byte[] dictChecksum;
+
+    private final long chunkChecksumType;
+
+    private final byte[] chunkChecksum;
+
+    private Key(final long compressionType, final byte[] dictChecksum, final long chunkChecksumType, final byte[] chunkChecksum) {
+      this.compressionType = compressionType;
+      this.dictChecksum = dictChecksum;
+      this.chunkChecksumType = chunkChecksumType;
+      this.chunkChecksum = chunkChecksum;
+    }
+
+    static Key of(final ZChunkHeader header, final int chunkNumber) {
+      final ZChunkHeaderIndex index = header.getIndex();
+      // the declared checksum of a missing dict cannot be verified, so it must not select the entries of a dict.
+      final byte[] dictChecksum = index.getDictLength().getLongValue() == 0L ? NO_DICT : index.getDictChecksum();
+
+      return new Key(
+          header.getPreface().getCompressionAlgorithm().getCompressionTypeValue().getLongValue(),
+          dictChecksum,
+          index.getChunkChecksumTypeInt().getLongValue(),
+          index.getChunks().getChunkChecksum(chunkNumber));
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      if (this == other) {
+        return true;
+      }
+
+      if (!(other instanceof Key)) {
+        return false;
+      }
+
+      final Key that = (Key) other;
+
+      return this.compressionType == that.compressionType
+          && this.chunkChecksumType == that.chunkChecksumType
+          && Arrays.equals(this.chunkChecksum, that.chunkChecksum)
+          && Arrays.equals(this.dictChecksum, that.dictChecksum);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = Arrays.hashCode(this.chunkChecksum);
+      result = 31 * result + Arrays.hashCode(this.dictChecksum);
+      result = 31 * result + Long.hashCode(this.compressionType);
+      result = 31 * result + Long.hashCode(this.chunkChecksumType);
+
+      return result;
+    }
+  }
+}
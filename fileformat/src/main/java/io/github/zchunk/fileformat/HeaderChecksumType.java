@@ -19,7 +19,6 @@ package io.github.zchunk.fileformat;
 import java.math.BigInteger;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Arrays;
 import java.util.StringJoiner;
 import java.util.logging.Logger;
 
@@ -62,12 +61,31 @@ public enum HeaderChecksumType {
       return UNKNOWN;
     }
 
-    final long requestedId = unsignedLongValue.longValue();
+    return find(unsignedLongValue.longValue());
+  }
+
+  /**
+   * Finds the checksum type for the given identifier.
+   *
+   * @param unsignedLongValue
+   *     the identifier, interpreted as unsigned long.
+   * @return the checksum type or {@link #UNKNOWN}.
+   */
+  public static HeaderChecksumType find(final long unsignedLongValue) {
+    if (unsignedLongValue < 0L || unsignedLongValue > Integer.MAX_VALUE) {
+      final String message = String.format("Unknown Checksum type: [%s], exeeds [%d]!", Long.toUnsignedString(unsignedLongValue),
+          Integer.MAX_VALUE);
+      Logger.getLogger(HeaderChecksumType.class.getCanonicalName()).warning(message);
+      return UNKNOWN;
+    }
+
+    for (final HeaderChecksumType checksumType : values()) {
+      if (checksumType.identifier == unsignedLongValue) {
+        return checksumType;
+      }
+    }
 
-    return Arrays.stream(values())
-        .filter(algo -> algo.identifier == requestedId)
-        .findFirst()
-        .orElse(UNKNOWN);
+    return UNKNOWN;
   }
 
   public int getDigestLength() {
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+import io.github.zchunk.compressedint.BulkCompressedIntDecoder;
+import io.github.zchunk.fileformat.err.InvalidFileException;
+
+/**
+ * Chunk index on the heap: all checksums in one contiguous slab, the compressed and uncompressed lengths and their
+ * prefix sums in primitive arrays.
+ */
+final class HeapChunkIndex extends ChunkIndex {
+
+  private final int checksumLength;
+
+  private final byte[] checksums;
+
+  private final long[] lengths;
+
+  private final long[] uncompressedLengths;
+
+  /**
+   * {@code offsets[i]} is the sum of the lengths of all chunks before chunk {@code i}. Has one more element than
+   * there are chunks, so the last element is the total length.
+   */
+  private final long[] offsets;
+
+  private final long[] decompressedOffsets;
+
+  HeapChunkIndex(final int checksumLength, final byte[] checksums, final long[] lengths, final long[] uncompressedLengths) {
+    this.checksumLength = checksumLength;
+    this.checksums = checksums;
+    this.lengths = lengths;
+    this.uncompressedLengths = uncompressedLengths;
+    this.offsets = prefixSums(lengths);
+    this.decompressedOffsets = prefixSums(uncompressedLengths);
+  }
+
+  /**
+   * Decodes encoded chunk records, each consisting of the checksum and two compressed ints.
+   *
+   * @throws IllegalArgumentException
+   *     if the records exceed {@code end} or are invalid.
+   * @throws InvalidFileException
+   *     if a chunk length exceeds {@link Long#MAX_VALUE}.
+   */
+  static HeapChunkIndex decode(final byte[] src, final int offset, final int end, final int chunkCount, final int checksumLength) {
+    final long[] lengths = new long[chunkCount];
+    final long[] uncompressedLengths = new long[chunkCount];
+    final byte[] encodedLengths = new byte[2 * chunkCount];
+
+    final int recordsEnd = BulkCompressedIntDecoder.decodeRecords(
+        src, offset, chunkCount, checksumLength, lengths, uncompressedLengths, encodedLengths);
+    if (recordsEnd > end) {
+      throw new IllegalArgumentException("Chunk index exceeds input at offset [" + recordsEnd + "].");
+    }
+
+    // lengths of 2^63 and above are negative and would make the offsets go backwards.
+    for (int chunkNumber = 0; chunkNumber < chunkCount; chunkNumber++) {
+      if (lengths[chunkNumber] < 0L || uncompressedLengths[chunkNumber] < 0L) {
+        throw new InvalidFileException("Chunk [" + chunkNumber + "] has a length of ["
+            + Long.toUnsignedString(lengths[chunkNumber]) + "] compressed and ["
+            + Long.toUnsignedString(uncompressedLengths[chunkNumber]) + "] uncompressed bytes.");
+      }
+    }
+
+    final byte[] checksums = new byte[Math.multiplyExact(chunkCount, checksumLength)];
+    int recordOffset = offset;
+
+    for (int chunkNumber = 0; chunkNumber < chunkCount; chunkNumber++) {
+      System.arraycopy(src, recordOffset, checksums, chunkNumber * checksumLength, checksumLength);
+      recordOffset += checksumLength + encodedLengths[2 * chunkNumber] + encodedLengths[2 * chunkNumber + 1];
+    }
+
+    return new HeapChunkIndex(checksumLength, checksums, lengths, uncompressedLengths);
+  }
+
+  private static long[] prefixSums(final long[] values) {
+    final long[] sums = new long[values.length + 1];
+
+    for (int index = 0; index < values.length; index++) {
+      sums[index + 1] = Math.addExact(sums[index], values[index]);
+    }
+
+    return sums;
+  }
+
+  @Override
+  public int getChunkCount() {
+    return this.lengths.length;
+  }
+
+  @Override
+  public int getChecksumLength() {
+    return this.checksumLength;
+  }
+
+  @Override
+  public void copyChunkChecksum(final int chunkNumber, final byte[] dst, final int offset) {
+    System.arraycopy(this.checksums, checksumOffset(chunkNumber), dst, offset, this.checksumLength);
+  }
+
+  @Override
+  public boolean chunkChecksumEquals(final int chunkNumber, final byte[] src, final int offset) {
+    final int start = checksumOffset(chunkNumber);
+
+    for (int index = 0; index < this.checksumLength; index++) {
+      if (this.checksums[start + index] != src[offset + index]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public long getChunkLength(final int chunkNumber) {
+    return this.lengths[chunkNumber];
+  }
+
+  @Override
+  public long getUncompressedChunkLength(final int chunkNumber) {
+    return this.uncompressedLengths[chunkNumber];
+  }
+
+  @Override
+  public long getChunkOffset(final int chunkNumber) {
+    return this.offsets[chunkNumber];
+  }
+
+  @Override
+  public long getDecompressedChunkOffset(final int chunkNumber) {
+    return this.decompressedOffsets[chunkNumber];
+  }
+
+  private int checksumOffset(final int chunkNumber) {
+    if (chunkNumber < 0 || chunkNumber >= this.lengths.length) {
+      throw new IndexOutOfBoundsException("Chunk [" + chunkNumber + "] not in range [0, " + this.lengths.length + ").");
+    }
+
+    return chunkNumber * this.checksumLength;
+  }
+}
@@ -17,6 +17,7 @@
 package io.github.zchunk.fileformat;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
@@ -66,12 +67,31 @@ public enum IndexChecksumType {
       return UNKNOWN;
     }
 
-    final long requestedId = unsignedLongValue.longValue();
+    return find(unsignedLongValue.longValue());
+  }
+
+  /**
+   * Finds the checksum type for the given identifier.
+   *
+   * @param unsignedLongValue
+   *     the identifier, interpreted as unsigned long.
+   * @return the checksum type or {@link #UNKNOWN}.
+   */
+  public static IndexChecksumType find(final long unsignedLongValue) {
+    if (unsignedLongValue < 0L) {
+      final String message = String.format("Unknown Checksum type: [%s], exceeds [%d]!", Long.toUnsignedString(unsignedLongValue),
+          Long.MAX_VALUE);
+      Logger.getLogger(IndexChecksumType.class.getCanonicalName()).warning(message);
+      return UNKNOWN;
+    }
 
-    return Arrays.stream(values())
-        .filter(algo -> algo.identifier == requestedId)
-        .findFirst()
-        .orElse(UNKNOWN);
+    for (final IndexChecksumType checksumType : values()) {
+      if (checksumType.identifier == unsignedLongValue) {
+        return checksumType;
+      }
+    }
+
+    return UNKNOWN;
   }
 
   public int actualChecksumLength() {
@@ -90,6 +110,22 @@ public enum IndexChecksumType {
     return digest;
   }
 
+  /**
+   * Calculates the checksum of the remaining bytes of a buffer, e.g. a memory-mapped chunk, without copying it to an
+   * array first. The position of {@code input} is not changed.
+   *
+   * @param input
+   *     the bytes to hash.
+   * @return the checksum, truncated to {@link #actualChecksumLength()}.
+   */
+  public byte[] digest(final ByteBuffer input) {
+    final MessageDigest messageDigest = getMessageDigest();
+    messageDigest.update(input.duplicate());
+    final byte[] digest = messageDigest.digest();
+
+    return digest.length == this.length ? digest : Arrays.copyOf(digest, this.length);
+  }
+
   public MessageDigest getMessageDigest() {
     try {
       return MessageDigest.getInstance(this.digestAlgorithm);
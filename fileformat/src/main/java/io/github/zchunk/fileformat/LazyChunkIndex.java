@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+import java.util.Objects;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Chunk index over the encoded records of a header, which are decoded into a {@link HeapChunkIndex} on first access.
+ *
+ * <p>Parsing a header therefore only costs lead, preface and the fixed index fields until chunks are actually
+ * needed. Invalid records are reported on first access.</p>
+ */
+final class LazyChunkIndex extends ChunkIndex {
+
+  /**
+   * The encoded records, released after decoding.
+   */
+  private byte @Nullable [] src;
+
+  private final int offset;
+
+  private final int end;
+
+  private final int chunkCount;
+
+  private final int checksumLength;
+
+  private volatile @Nullable HeapChunkIndex decoded;
+
+  LazyChunkIndex(final byte[] src, final int offset, final int end, final int chunkCount, final int checksumLength) {
+    this.src = src;
+    this.offset = offset;
+    this.end = end;
+    this.chunkCount = chunkCount;
+    this.checksumLength = checksumLength;
+  }
+
+  private HeapChunkIndex decoded() {
+    HeapChunkIndex index = this.decoded;
+    if (index == null) {
+      synchronized (this) {
+        index = this.decoded;
+        if (index == null) {
+          final byte[] records = Objects.requireNonNull(this.src, "src");
+          index = HeapChunkIndex.decode(records, this.offset, this.end, this.chunkCount, this.checksumLength);
+          this.decoded = index;
+          this.src = null;
+        }
+      }
+    }
+
+    return index;
+  }
+
+  @Override
+  public int getChunkCount() {
+    return this.chunkCount;
+  }
+
+  @Override
+  public int getChecksumLength() {
+    return this.checksumLength;
+  }
+
+  @Override
+  public void copyChunkChecksum(final int chunkNumber, final byte[] dst, final int dstOffset) {
+    decoded().copyChunkChecksum(chunkNumber, dst, dstOffset);
+  }
+
+  @Override
+  public boolean chunkChecksumEquals(final int chunkNumber, final byte[] other, final int otherOffset) {
+    return decoded().chunkChecksumEquals(chunkNumber, other, otherOffset);
+  }
+
+  @Override
+  public long getChunkLength(final int chunkNumber) {
+    return decoded().getChunkLength(chunkNumber);
+  }
+
+  @Override
+  public long getUncompressedChunkLength(final int chunkNumber) {
+    return decoded().getUncompressedChunkLength(chunkNumber);
+  }
+
+  @Override
+  public long getChunkOffset(final int chunkNumber) {
+    return decoded().getChunkOffset(chunkNumber);
+  }
+
+  @Override
+  public long getDecompressedChunkOffset(final int chunkNumber) {
+    return decoded().getDecompressedChunkOffset(chunkNumber);
+  }
+}
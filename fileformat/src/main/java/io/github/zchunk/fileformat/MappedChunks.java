@@ -0,0 +1,254 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+import io.github.zchunk.fileformat.util.OffsetUtil;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Memory-mapped access to all chunks of a zchunk file, either to the compressed chunks of the {@code .zck} file or to
+ * the uncompressed chunks of an extracted file.
+ *
+ * <p>A single {@link MappedByteBuffer} is limited to 2 GiB. The chunks are therefore grouped into windows of at most
+ * {@link #DEFAULT_MAX_WINDOW_SIZE} bytes, each holding only complete chunks. A window is mapped on first access and
+ * stays mapped until this instance is garbage collected. The mappings stay valid after the channel is closed.</p>
+ *
+ * <p>Instances are thread safe. Each call to {@link #getChunk(int)} returns a new slice with its own position and
+ * limit, which can be handed to the direct buffer API of a compression algorithm without any copy.</p>
+ */
+public final class MappedChunks {
+
+  /**
+   * Upper bound of the size of a single mapped window.
+   */
+  public static final long DEFAULT_MAX_WINDOW_SIZE = 1L << 30;
+
+  private final FileChannel channel;
+
+  private final FileChannel.MapMode mode;
+
+  private final long[] chunkOffsets;
+
+  private final int[] chunkLengths;
+
+  private final int[] chunkWindows;
+
+  private final long[] windowOffsets;
+
+  private final long[] windowLengths;
+
+  private final AtomicReferenceArray<MappedByteBuffer> windows;
+
+  private MappedChunks(final FileChannel channel,
+                       final FileChannel.MapMode mode,
+                       final long[] chunkOffsets,
+                       final int[] chunkLengths,
+                       final long maxWindowSize) {
+    this.channel = channel;
+    this.mode = mode;
+    this.chunkOffsets = chunkOffsets;
+    this.chunkLengths = chunkLengths;
+    this.chunkWindows = new int[chunkOffsets.length];
+
+    final long[] offsets = new long[chunkOffsets.length];
+    final long[] lengths = new long[chunkOffsets.length];
+    int windowCount = 0;
+
+    for (int chunkNumber = 0; chunkNumber < chunkOffsets.length; chunkNumber++) {
+      final long chunkEnd = chunkOffsets[chunkNumber] + chunkLengths[chunkNumber];
+      final boolean fitsCurrentWindow = windowCount > 0 && chunkEnd - offsets[windowCount - 1] <= maxWindowSize;
+
+      if (!fitsCurrentWindow) {
+        offsets[windowCount] = chunkOffsets[chunkNumber];
+        windowCount++;
+      }
+
+      lengths[windowCount - 1] = chunkEnd - offsets[windowCount - 1];
+      this.chunkWindows[chunkNumber] = windowCount - 1;
+    }
+
+    this.windowOffsets = Arrays.copyOf(offsets, windowCount);
+    this.windowLengths = Arrays.copyOf(lengths, windowCount);
+    this.windows = new AtomicReferenceArray<>(windowCount);
+  }
+
+  /**
+   * Maps the compressed chunks of a zchunk file read-only.
+   *
+   * @param header
+   *     the header of the file.
+   * @param zckFile
+   *     a channel of the zchunk file, opened for reading.
+   * @return the mapped chunks.
+   * @throws IOException
+   *     if the file is shorter than the data described by the header.
+   */
+  public static MappedChunks mapCompressed(final ZChunkHeader header, final FileChannel zckFile) throws IOException {
+    return mapCompressed(header, zckFile, DEFAULT_MAX_WINDOW_SIZE);
+  }
+
+  public static MappedChunks mapCompressed(final ZChunkHeader header,
+                                           final FileChannel zckFile,
+                                           final long maxWindowSize) throws IOException {
+    final ChunkIndex chunks = header.getIndex().getChunks();
+    final long[] offsets = new long[chunks.getChunkCount()];
+    final int[] lengths = new int[chunks.getChunkCount()];
+
+    for (int chunkNumber = 0; chunkNumber < offsets.length; chunkNumber++) {
+      offsets[chunkNumber] = OffsetUtil.getChunkOffset(header, chunkNumber);
+      lengths[chunkNumber] = Math.toIntExact(chunks.getChunkLength(chunkNumber));
+    }
+
+    final long dataEnd = offsets.length == 0 ? 0L : offsets[offsets.length - 1] + lengths[lengths.length - 1];
+    if (zckFile.size() < dataEnd) {
+      throw new EOFException("File has [" + zckFile.size() + "] bytes, but the chunks end at [" + dataEnd + "].");
+    }
+
+    return new MappedChunks(zckFile, FileChannel.MapMode.READ_ONLY, offsets, lengths, checkWindowSize(maxWindowSize));
+  }
+
+  /**
+   * Maps the uncompressed chunks of an extracted file read-write, e.g. as the target of a decompression.
+   *
+   * <p>Writes through the slices go to the page cache directly, without any write calls.</p>
+   *
+   * @param header
+   *     the header of the zchunk file.
+   * @param target
+   *     a channel of the extracted file, opened for reading and writing. It is extended to the total uncompressed
+   *     length if it is shorter.
+   * @return the mapped chunks.
+   * @throws IOException
+   *     if the file size cannot be read.
+   */
+  public static MappedChunks mapUncompressed(final ZChunkHeader header, final FileChannel target) throws IOException {
+    return mapUncompressed(header, target, DEFAULT_MAX_WINDOW_SIZE);
+  }
+
+  public static MappedChunks mapUncompressed(final ZChunkHeader header,
+                                             final FileChannel target,
+                                             final long maxWindowSize) throws IOException {
+    final ChunkIndex chunks = header.getIndex().getChunks();
+    final long[] offsets = new long[chunks.getChunkCount()];
+    final int[] lengths = new int[chunks.getChunkCount()];
+
+    for (int chunkNumber = 0; chunkNumber < offsets.length; chunkNumber++) {
+      offsets[chunkNumber] = chunks.getDecompressedChunkOffset(chunkNumber);
+      lengths[chunkNumber] = Math.toIntExact(chunks.getUncompressedChunkLength(chunkNumber));
+    }
+
+    // sizes the file up front, instead of growing it window by window.
+    final long totalUncompressedLength = chunks.getTotalUncompressedLength();
+    if (target.size() < totalUncompressedLength) {
+      target.write(ByteBuffer.allocate(1), totalUncompressedLength - 1);
+    }
+
+    return new MappedChunks(target, FileChannel.MapMode.READ_WRITE, offsets, lengths, checkWindowSize(maxWindowSize));
+  }
+
+  private static long checkWindowSize(final long maxWindowSize) {
+    if (maxWindowSize < 1L || maxWindowSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Window size must be between 1 and [" + Integer.MAX_VALUE + "], got [" + maxWindowSize + "].");
+    }
+
+    return maxWindowSize;
+  }
+
+  public int getChunkCount() {
+    return this.chunkOffsets.length;
+  }
+
+  public int getWindowCount() {
+    return this.windowOffsets.length;
+  }
+
+  /**
+   * Returns a slice of the mapped file which holds exactly one chunk, mapping its window if needed.
+   *
+   * @param chunkNumber
+   *     the chunk number, starting at 0 for the first chunk after the dict.
+   * @return a new buffer with position {@code 0} and the chunk length as limit. Read-only for compressed chunks.
+   * @throws IllegalArgumentException
+   *     if the chunk number is out of range.
+   * @throws UncheckedIOException
+   *     if the window cannot be mapped.
+   */
+  public ByteBuffer getChunk(final int chunkNumber) {
+    if (chunkNumber < 0 || chunkNumber >= this.chunkOffsets.length) {
+      throw new IllegalArgumentException("Chunk [" + chunkNumber + "] not found, chunk count is [" + this.chunkOffsets.length + "].");
+    }
+
+    final int windowNumber = this.chunkWindows[chunkNumber];
+    // typed as ByteBuffer, as MappedByteBuffer only overrides duplicate() since Java 13.
+    final ByteBuffer window = getWindow(windowNumber);
+    final ByteBuffer chunk = window.duplicate();
+    final int offsetInWindow = (int) (this.chunkOffsets[chunkNumber] - this.windowOffsets[windowNumber]);
+    // through Buffer, as ByteBuffer only overrides limit(int) and position(int) since Java 9.
+    ((Buffer) chunk).limit(offsetInWindow + this.chunkLengths[chunkNumber]);
+    ((Buffer) chunk).position(offsetInWindow);
+
+    return chunk.slice();
+  }
+
+  /**
+   * Writes the changes to all mapped windows to the storage device. Windows which were never mapped have no changes.
+   */
+  public void force() {
+    for (int windowNumber = 0; windowNumber < this.windows.length(); windowNumber++) {
+      final MappedByteBuffer mapped = this.windows.get(windowNumber);
+      if (mapped != null) {
+        mapped.force();
+      }
+    }
+  }
+
+  private MappedByteBuffer getWindow(final int windowNumber) {
+    final MappedByteBuffer existing = this.windows.get(windowNumber);
+    if (existing != null) {
+      return existing;
+    }
+
+    final MappedByteBuffer mapped;
+    try {
+      mapped = this.channel.map(this.mode, this.windowOffsets[windowNumber], this.windowLengths[windowNumber]);
+    } catch (final IOException ioEx) {
+      final String message = String.format("Unable to map window [%d] at offset [%d].", windowNumber, this.windowOffsets[windowNumber]);
+      throw new UncheckedIOException(message, ioEx);
+    }
+
+    // a concurrent caller may have mapped the same window, the other mapping is released by the garbage collector.
+    return this.windows.compareAndSet(windowNumber, null, mapped) ? mapped : this.windows.get(windowNumber);
+  }
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", MappedChunks.class.getSimpleName() + "[", "]")
+        .add("mode=" + this.mode)
+        .add("chunkCount=" + getChunkCount())
+        .add("windowCount=" + getWindowCount())
+        .toString();
+  }
+}
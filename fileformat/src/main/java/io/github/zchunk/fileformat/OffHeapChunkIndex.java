@@ -0,0 +1,223 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Chunk index stored outside of the java heap in a direct or mapped {@link ByteBuffer}, using a fixed stride per chunk.
+ *
+ * <p>Layout, all numbers are little endian signed 64 bit values:</p>
+ *
+ * <pre>
+ * +================+========================+==================================+
+ * | Chunk checksum | Chunk offset (8 bytes) | Decompressed chunk offset (8 b.) |  x chunk count
+ * +================+========================+==================================+
+ *
+ * +========================+==================================+
+ * | Total length (8 bytes) | Total uncompressed length (8 b.) |
+ * +========================+==================================+
+ * </pre>
+ *
+ * <p>Lengths are the difference of two consecutive offsets. No objects are created per chunk, so the chunk metadata
+ * is out of the garbage collector's reach. All reads are absolute, so instances can be shared between threads.</p>
+ */
+public final class OffHeapChunkIndex extends ChunkIndex {
+
+  private static final int OFFSETS_LENGTH = 2 * Long.BYTES;
+
+  private final ByteBuffer buffer;
+
+  private final int chunkCount;
+
+  private final int checksumLength;
+
+  private final int stride;
+
+  private OffHeapChunkIndex(final ByteBuffer buffer, final int chunkCount, final int checksumLength) {
+    this.buffer = buffer;
+    this.chunkCount = chunkCount;
+    this.checksumLength = checksumLength;
+    this.stride = checksumLength + OFFSETS_LENGTH;
+  }
+
+  /**
+   * Copies a chunk index into a newly allocated direct buffer.
+   *
+   * @param chunks
+   *     the chunk index to copy.
+   * @return an off-heap copy.
+   */
+  public static OffHeapChunkIndex copyOf(final ChunkIndex chunks) {
+    if (chunks instanceof OffHeapChunkIndex) {
+      return (OffHeapChunkIndex) chunks;
+    }
+
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(byteSize(chunks.getChunkCount(), chunks.getChecksumLength()));
+    write(chunks, buffer);
+    ((Buffer) buffer).flip();
+
+    return wrap(buffer, chunks.getChunkCount(), chunks.getChecksumLength());
+  }
+
+  /**
+   * Creates an index over a buffer in the layout of this class, e.g. a mapped file.
+   *
+   * @param buffer
+   *     the buffer, starting at its position. Its position and limit are not changed.
+   * @param chunkCount
+   *     the number of chunks in the buffer.
+   * @param checksumLength
+   *     the length of each chunk checksum.
+   * @return an index reading from the buffer.
+   * @throws IllegalArgumentException
+   *     if the buffer is too small.
+   */
+  public static OffHeapChunkIndex wrap(final ByteBuffer buffer, final int chunkCount, final int checksumLength) {
+    final int byteSize = byteSize(chunkCount, checksumLength);
+    if (buffer.remaining() < byteSize) {
+      throw new IllegalArgumentException("Buffer of [" + buffer.remaining() + "] bytes cannot hold [" + chunkCount + "] chunks.");
+    }
+
+    final ByteBuffer slice = buffer.slice();
+    ((Buffer) slice).limit(byteSize);
+
+    return new OffHeapChunkIndex(slice.order(ByteOrder.LITTLE_ENDIAN), chunkCount, checksumLength);
+  }
+
+  /**
+   * Writes a chunk index in the layout of this class to the buffer's position and advances it.
+   *
+   * @param chunks
+   *     the index to write.
+   * @param dst
+   *     the buffer to write to. Must have {@link #byteSize(int, int)} bytes remaining.
+   */
+  public static void write(final ChunkIndex chunks, final ByteBuffer dst) {
+    final ByteBuffer target = dst.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    final byte[] checksum = new byte[chunks.getChecksumLength()];
+
+    for (int chunkNumber = 0; chunkNumber < chunks.getChunkCount(); chunkNumber++) {
+      chunks.copyChunkChecksum(chunkNumber, checksum, 0);
+      target.put(checksum);
+      target.putLong(chunks.getChunkOffset(chunkNumber));
+      target.putLong(chunks.getDecompressedChunkOffset(chunkNumber));
+    }
+
+    target.putLong(chunks.getTotalLength());
+    target.putLong(chunks.getTotalUncompressedLength());
+
+    ((Buffer) dst).position(target.position());
+  }
+
+  /**
+   * The number of bytes needed to store an index.
+   *
+   * @param chunkCount
+   *     the number of chunks.
+   * @param checksumLength
+   *     the length of each chunk checksum.
+   * @return the size in bytes.
+   * @throws IllegalArgumentException
+   *     if the index would exceed the maximum buffer size.
+   */
+  public static int byteSize(final int chunkCount, final int checksumLength) {
+    final long byteSize = (long) chunkCount * (checksumLength + OFFSETS_LENGTH) + OFFSETS_LENGTH;
+    if (byteSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Index of [" + chunkCount + "] chunks needs [" + byteSize + "] bytes, which exceeds a buffer.");
+    }
+
+    return (int) byteSize;
+  }
+
+  @Override
+  public int getChunkCount() {
+    return this.chunkCount;
+  }
+
+  @Override
+  public int getChecksumLength() {
+    return this.checksumLength;
+  }
+
+  @Override
+  public void copyChunkChecksum(final int chunkNumber, final byte[] dst, final int offset) {
+    final int start = checksumOffset(chunkNumber);
+
+    for (int index = 0; index < this.checksumLength; index++) {
+      dst[offset + index] = this.buffer.get(start + index);
+    }
+  }
+
+  @Override
+  public boolean chunkChecksumEquals(final int chunkNumber, final byte[] src, final int offset) {
+    final int start = checksumOffset(chunkNumber);
+
+    for (int index = 0; index < this.checksumLength; index++) {
+      if (this.buffer.get(start + index) != src[offset + index]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public long getChunkLength(final int chunkNumber) {
+    return getChunkOffset(chunkNumber + 1) - getChunkOffset(chunkNumber);
+  }
+
+  @Override
+  public long getUncompressedChunkLength(final int chunkNumber) {
+    return getDecompressedChunkOffset(chunkNumber + 1) - getDecompressedChunkOffset(chunkNumber);
+  }
+
+  @Override
+  public long getChunkOffset(final int chunkNumber) {
+    return this.buffer.getLong(offsetsPosition(chunkNumber));
+  }
+
+  @Override
+  public long getDecompressedChunkOffset(final int chunkNumber) {
+    return this.buffer.getLong(offsetsPosition(chunkNumber) + Long.BYTES);
+  }
+
+  private int checksumOffset(final int chunkNumber) {
+    if (chunkNumber < 0 || chunkNumber >= this.chunkCount) {
+      throw new IndexOutOfBoundsException("Chunk [" + chunkNumber + "] not in range [0, " + this.chunkCount + ").");
+    }
+
+    return chunkNumber * this.stride;
+  }
+
+  /**
+   * Position of the offsets of a chunk. For {@code chunkNumber == chunkCount}, this is the position of the totals.
+   */
+  private int offsetsPosition(final int chunkNumber) {
+    if (chunkNumber < 0 || chunkNumber > this.chunkCount) {
+      throw new IndexOutOfBoundsException("Chunk [" + chunkNumber + "] not in range [0, " + this.chunkCount + "].");
+    }
+
+    if (chunkNumber == this.chunkCount) {
+      return chunkNumber * this.stride;
+    }
+
+    return chunkNumber * this.stride + this.checksumLength;
+  }
+}
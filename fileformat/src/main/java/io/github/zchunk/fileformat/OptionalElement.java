@@ -17,7 +17,6 @@
 package io.github.zchunk.fileformat;
 
 import io.github.zchunk.compressedint.CompressedInt;
-import java.math.BigInteger;
 import org.immutables.value.Value;
 
 @Value.Immutable
@@ -31,10 +30,9 @@ public interface OptionalElement {
 
   @Value.Derived
   default long getTotalLength() {
-    return BigInteger.valueOf(getId().getCompressedBytes().length)
-        .add(BigInteger.valueOf(getDataSize().getCompressedBytes().length))
+    return Math.addExact(
+        getId().getCompressedLength() + (long) getDataSize().getCompressedLength(),
         // either this or getData().length
-        .add(getDataSize().getValue())
-        .longValueExact();
+        getDataSize().getLongValue());
   }
 }
@@ -0,0 +1,397 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+import io.github.zchunk.compression.api.DecompressionDictionary;
+import io.github.zchunk.fileformat.err.InvalidFileException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A stream of the complete uncompressed content of a zchunk file, which decompresses the following chunks on worker
+ * threads while the current one is read.
+ *
+ * <p>Chunks are always emitted strictly in order. The chunks which are decompressed ahead and the chunk currently
+ * being read form the reorder window, whose uncompressed size is bounded by {@code maxWindowBytes}. A new chunk is
+ * only scheduled if it fits into the window, except that a single chunk is always scheduled, even if it is larger than
+ * the window on its own. The memory used therefore stays bounded, while a fast consumer keeps all workers busy.</p>
+ *
+ * <p>If a chunk cannot be read or decompressed, the first failure is rethrown by every later read, so the content
+ * never continues after a missing chunk.</p>
+ *
+ * <p>Like most streams, instances are not thread safe. The positional reads of the workers do not change the position
+ * of the underlying channel.</p>
+ */
+public final class ParallelZChunkInputStream extends InputStream {
+
+  /**
+   * Default upper bound of the uncompressed bytes decompressed ahead, including the chunk currently being read.
+   */
+  public static final long DEFAULT_MAX_WINDOW_BYTES = 64L * 1024L * 1024L;
+
+  private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+  private final FileChannel channel;
+
+  private final ZChunkHeader header;
+
+  private final DecompressionDictionary dict;
+
+  private final Executor executor;
+
+  /**
+   * The executor created by {@link #open(Path)}, which is shut down on close.
+   */
+  private final @Nullable ExecutorService ownedExecutor;
+
+  private final long maxWindowBytes;
+
+  private final Deque<CompletableFuture<ByteBuffer>> pending = new ArrayDeque<>();
+
+  private int nextChunkToSchedule;
+
+  private int nextChunkToRead;
+
+  private long windowBytes;
+
+  private @Nullable ByteBuffer current;
+
+  private boolean closed;
+
+  /**
+   * The first failure of a worker, rethrown by all later reads.
+   */
+  private @Nullable Exception failure;
+
+  private ParallelZChunkInputStream(final FileChannel channel,
+                                    final ZChunkHeader header,
+                                    final DecompressionDictionary dict,
+                                    final Executor executor,
+                                    final @Nullable ExecutorService ownedExecutor,
+                                    final long maxWindowBytes) {
+    this.channel = channel;
+    this.header = header;
+    this.dict = dict;
+    this.executor = executor;
+    this.ownedExecutor = ownedExecutor;
+    this.maxWindowBytes = maxWindowBytes;
+  }
+
+  /**
+   * Opens a zchunk file with a window of {@link #DEFAULT_MAX_WINDOW_BYTES}. The chunks are decompressed ahead on a
+   * pool of one thread per processor, which belongs to the stream and is shut down when the stream is closed.
+   *
+   * @param file
+   *     the zchunk file.
+   * @return a stream, which must be closed after use.
+   * @throws InvalidFileException
+   *     if the file cannot be read.
+   * @throws IllegalArgumentException
+   *     if the file does not start with a valid header.
+   */
+  public static ParallelZChunkInputStream open(final Path file) {
+    final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), task -> {
+      final Thread thread = new Thread(task, "zchunk-stream-" + THREAD_NUMBER.incrementAndGet());
+      // a stream which is never closed must not keep the jvm alive.
+      thread.setDaemon(true);
+
+      return thread;
+    });
+
+    try {
+      return openChannel(file, null, executor, executor, DEFAULT_MAX_WINDOW_BYTES);
+    } catch (final RuntimeException ex) {
+      executor.shutdown();
+      throw ex;
+    }
+  }
+
+  /**
+   * Opens a zchunk file.
+   *
+   * @param file
+   *     the zchunk file.
+   * @param executor
+   *     the executor to decompress the chunks on.
+   * @param maxWindowBytes
+   *     the upper bound of uncompressed bytes held in memory, see {@link ParallelZChunkInputStream}.
+   * @return a stream, which must be closed after use.
+   * @throws InvalidFileException
+   *     if the file cannot be read.
+   * @throws IllegalArgumentException
+   *     if the file does not start with a valid header or the window size is not positive.
+   */
+  public static ParallelZChunkInputStream open(final Path file, final Executor executor, final long maxWindowBytes) {
+    return openChannel(file, null, executor, null, maxWindowBytes);
+  }
+
+  /**
+   * Opens a zchunk file whose header was already parsed, e.g. by {@link ZChunk#fromFile(java.io.File)}, so it is not
+   * parsed again.
+   *
+   * @param file
+   *     the zchunk file.
+   * @param header
+   *     the header read from the same file.
+   * @param executor
+   *     the executor to decompress the chunks on. Reads of the chunks block on disk IO.
+   * @param maxWindowBytes
+   *     the upper bound of uncompressed bytes held in memory, see {@link ParallelZChunkInputStream}.
+   * @return a stream, which must be closed after use.
+   * @throws InvalidFileException
+   *     if the file cannot be read.
+   * @throws IllegalArgumentException
+   *     if the window size is not positive.
+   */
+  public static ParallelZChunkInputStream open(final Path file,
+                                               final ZChunkHeader header,
+                                               final Executor executor,
+                                               final long maxWindowBytes) {
+    return openChannel(file, header, executor, null, maxWindowBytes);
+  }
+
+  /**
+   * Opens the channel and reads the header from it, unless it was parsed already.
+   */
+  private static ParallelZChunkInputStream openChannel(final Path file,
+                                                       final @Nullable ZChunkHeader parsedHeader,
+                                                       final Executor executor,
+                                                       final @Nullable ExecutorService ownedExecutor,
+                                                       final long maxWindowBytes) {
+    if (maxWindowBytes < 1L) {
+      throw new IllegalArgumentException("Window size must be positive, got [" + maxWindowBytes + "].");
+    }
+
+    try {
+      final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+
+      try {
+        final ZChunkHeader header = parsedHeader != null ? parsedHeader : ZChunkHeaderFactory.getZChunkFileHeader(channel);
+        final DecompressionDictionary dict = ZChunk.getDecompressionDictionary(header, file.toFile());
+
+        return new ParallelZChunkInputStream(channel, header, dict, executor, ownedExecutor, maxWindowBytes);
+      } catch (final IOException | RuntimeException ex) {
+        channel.close();
+        throw ex;
+      }
+    } catch (final IOException ioEx) {
+      throw new InvalidFileException("Unable to open file.", file.toFile(), ioEx);
+    }
+  }
+
+  public ZChunkHeader getHeader() {
+    return this.header;
+  }
+
+  /**
+   * The uncompressed bytes currently held by the reorder window, for monitoring.
+   *
+   * @return the uncompressed length of all scheduled chunks which were not read completely yet.
+   */
+  public long getWindowBytes() {
+    return this.windowBytes;
+  }
+
+  @Override
+  public int read() throws IOException {
+    final ByteBuffer chunk = nextReadableChunk();
+    if (chunk == null) {
+      return -1;
+    }
+
+    return chunk.get() & 0xff;
+  }
+
+  @Override
+  public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+    if (offset < 0 || length < 0 || length > buffer.length - offset) {
+      throw new IndexOutOfBoundsException("Range [" + offset + ", " + length + "] out of bounds for length [" + buffer.length + "].");
+    }
+
+    if (length == 0) {
+      return 0;
+    }
+
+    final ByteBuffer chunk = nextReadableChunk();
+    if (chunk == null) {
+      return -1;
+    }
+
+    final int count = Math.min(length, chunk.remaining());
+    chunk.get(buffer, offset, count);
+
+    return count;
+  }
+
+  @Override
+  public int available() throws IOException {
+    ensureOpen();
+    rethrowFailure();
+    final ByteBuffer chunk = this.current;
+
+    return chunk == null ? 0 : chunk.remaining();
+  }
+
+  /**
+   * Closes the file. Chunks which were not started yet are cancelled, chunks which are still being decompressed are
+   * discarded. An executor created by {@link #open(Path)} is shut down.
+   */
+  @Override
+  public void close() throws IOException {
+    if (this.closed) {
+      return;
+    }
+
+    this.closed = true;
+    this.current = null;
+    for (final CompletableFuture<ByteBuffer> scheduled : this.pending) {
+      // a cancelled task is skipped by the executor, a running one fails on the closed channel.
+      scheduled.cancel(false);
+    }
+    this.pending.clear();
+    this.windowBytes = 0L;
+    if (this.ownedExecutor != null) {
+      this.ownedExecutor.shutdown();
+    }
+    this.channel.close();
+  }
+
+  /**
+   * Returns the current chunk if it has bytes left, otherwise waits for the next one in order.
+   *
+   * @return a chunk with remaining bytes, or {@code null} at the end of the content.
+   */
+  private @Nullable ByteBuffer nextReadableChunk() throws IOException {
+    ensureOpen();
+    rethrowFailure();
+
+    ByteBuffer chunk = this.current;
+    while (chunk == null || !chunk.hasRemaining()) {
+      if (chunk != null) {
+        this.windowBytes -= chunk.capacity();
+        this.current = null;
+      }
+
+      scheduleAhead();
+      final CompletableFuture<ByteBuffer> next = this.pending.poll();
+      if (next == null) {
+        return null;
+      }
+
+      final int chunkNumber = this.nextChunkToRead++;
+      try {
+        chunk = await(next);
+      } catch (final IOException | RuntimeException ex) {
+        this.failure = ex;
+        this.windowBytes -= this.header.getIndex().getChunks().getUncompressedChunkLength(chunkNumber);
+        throw ex;
+      }
+      this.current = chunk;
+      // the slot of the chunk being read stays in the window until it is read completely.
+      scheduleAhead();
+    }
+
+    return chunk;
+  }
+
+  private void scheduleAhead() {
+    final int chunkCount = this.header.getIndex().getChunks().getChunkCount();
+
+    while (this.nextChunkToSchedule < chunkCount) {
+      final int chunkNumber = this.nextChunkToSchedule;
+      final long chunkLength = this.header.getIndex().getChunks().getUncompressedChunkLength(chunkNumber);
+      final boolean windowEmpty = this.windowBytes == 0L;
+
+      if (!windowEmpty && this.windowBytes + chunkLength > this.maxWindowBytes) {
+        return;
+      }
+
+      this.pending.add(CompletableFuture.supplyAsync(() -> decompress(chunkNumber), this.executor));
+      this.windowBytes += chunkLength;
+      this.nextChunkToSchedule++;
+    }
+  }
+
+  private ByteBuffer decompress(final int chunkNumber) {
+    try {
+      return ZChunk.readDecompressedChunk(this.header, this.channel, this.dict, chunkNumber);
+    } catch (final IOException ioEx) {
+      throw new UncheckedIOException(ioEx);
+    }
+  }
+
+  private static ByteBuffer await(final CompletableFuture<ByteBuffer> chunk) throws IOException {
+    try {
+      return chunk.join();
+    } catch (final CompletionException completionEx) {
+      final Throwable cause = completionEx.getCause();
+      if (cause instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) cause).getCause();
+      }
+
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+
+      throw completionEx;
+    }
+  }
+
+  private void rethrowFailure() throws IOException {
+    final Exception failed = this.failure;
+    if (failed instanceof IOException) {
+      throw (IOException) failed;
+    }
+
+    if (failed != null) {
+      throw (RuntimeException) failed;
+    }
+  }
+
+  private void ensureOpen() throws IOException {
+    if (this.closed) {
+      throw new ClosedChannelException();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", ParallelZChunkInputStream.class.getSimpleName() + "[", "]")
+        .add("maxWindowBytes=" + this.maxWindowBytes)
+        .add("windowBytes=" + this.windowBytes)
+        .add("nextChunkToSchedule=" + this.nextChunkToSchedule)
+        .add("closed=" + this.closed)
+        .add("failed=" + (this.failure != null))
+        .toString();
+  }
+}
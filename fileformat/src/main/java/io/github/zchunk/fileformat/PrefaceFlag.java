@@ -18,12 +18,9 @@ package io.github.zchunk.fileformat;
 
 import io.github.zchunk.compressedint.CompressedInt;
 import io.github.zchunk.fileformat.util.ByteUtils;
-import java.math.BigInteger;
-import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.Set;
 import java.util.StringJoiner;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
 
 /*
  * Current flags are:
@@ -41,19 +38,32 @@ public enum PrefaceFlag {
   }
 
   public static Set<PrefaceFlag> getPrefaceFlags(final CompressedInt ci) {
-    final AtomicReference<BigInteger> remainingFlagLong = new AtomicReference<>(ci.getValue());
-
-    return getPrefaceFlags(remainingFlagLong);
+    return getPrefaceFlags(ci.getUnsignedLongValue());
   }
 
-  private static Set<PrefaceFlag> getPrefaceFlags(final AtomicReference<BigInteger> remainingFlagLong) {
-    final Set<PrefaceFlag> foundFlags = Arrays.stream(PrefaceFlag.values())
-        .filter(currentFlag -> ByteUtils.decrease(remainingFlagLong, currentFlag.getBitflag()))
-        .collect(Collectors.toSet());
+  /**
+   * Decodes the flags bitmask of the preface.
+   *
+   * @param flags
+   *     the flags as unsigned long.
+   * @return the set of flags found.
+   * @throws UnsupportedOperationException
+   *     if an unknown flag is set.
+   */
+  public static Set<PrefaceFlag> getPrefaceFlags(final long flags) {
+    final Set<PrefaceFlag> foundFlags = EnumSet.noneOf(PrefaceFlag.class);
+    long remainingFlags = flags;
+
+    for (final PrefaceFlag currentFlag : values()) {
+      if ((remainingFlags & currentFlag.getBitflag()) == currentFlag.getBitflag()) {
+        foundFlags.add(currentFlag);
+        remainingFlags &= ~currentFlag.getBitflag();
+      }
+    }
 
-    if (remainingFlagLong.get().longValue() != 0L) {
+    if (remainingFlags != 0L) {
       throw new UnsupportedOperationException(
-          "Flags not supported yet: [" + ByteUtils.longToBinaryString(remainingFlagLong.get().longValue()) + "].");
+          "Flags not supported yet: [" + ByteUtils.longToBinaryString(remainingFlags) + "].");
     }
 
     return foundFlags;
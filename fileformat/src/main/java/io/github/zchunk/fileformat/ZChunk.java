@@ -16,15 +16,28 @@
 
 package io.github.zchunk.fileformat;
 
+import io.github.zchunk.compressedint.CompressedInt;
+import io.github.zchunk.compressedint.CompressedIntFactory;
+import io.github.zchunk.compressedint.CompressedIntView;
 import io.github.zchunk.compression.api.CompressionAlgorithm;
+import io.github.zchunk.compression.api.DecompressionDictionary;
+import io.github.zchunk.compression.api.err.DecompressionException;
 import io.github.zchunk.fileformat.err.InvalidFileException;
 import io.github.zchunk.fileformat.io.BoundedInputStream;
 import io.github.zchunk.fileformat.util.ChecksumUtil;
 import io.github.zchunk.fileformat.util.OffsetUtil;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.logging.Logger;
 
@@ -53,6 +66,23 @@ public final class ZChunk {
     return ImmutableZChunkFile.builder().header(header).build();
   }
 
+  /**
+   * Reads in a zchunk file, taking the header from a cache if the file did not change.
+   *
+   * @param input
+   *     the input file.
+   * @param headerCache
+   *     the cache to take the header from and to add it to.
+   * @return a {@link ZChunkFile} instance.
+   * @throws InvalidFileException
+   *     if the input file is not a zchunk file.
+   */
+  public static ZChunkFile fromFile(final File input, final ZChunkHeaderCache headerCache) {
+    final ZChunkHeader header = headerCache.getHeader(input.toPath());
+
+    return ImmutableZChunkFile.builder().header(header).build();
+  }
+
   public static boolean validateFile(final File file) {
     final ZChunkFile zChunkFile = fromFile(file);
     final ZChunkHeader header = zChunkFile.getHeader();
@@ -74,9 +104,129 @@ public final class ZChunk {
    *     if the chunk was not found.
    */
   public static ZChunkHeaderChunkInfo getChunkInfo(final ZChunkHeader header, final long chunkNumber) {
-    return header.getIndex().getChunkInfoSortedByIndex().stream()
-        .filter(currChunk -> currChunk.getCurrentIndex() == chunkNumber)
-        .findFirst().orElseThrow(IllegalArgumentException::new);
+    final ChunkIndex chunks = header.getIndex().getChunks();
+    if (chunkNumber < 0L || chunkNumber >= chunks.getChunkCount()) {
+      throw new IllegalArgumentException("Chunk [" + chunkNumber + "] not found, chunk count is [" + chunks.getChunkCount() + "].");
+    }
+
+    return chunks.getChunkInfo((int) chunkNumber);
+  }
+
+  /**
+   * Finds the chunks of {@code target} which are already present in {@code source}, compared by chunk checksum.
+   *
+   * @param source
+   *     the header of the file which is available, e.g. locally.
+   * @param target
+   *     the header of the file which should be assembled.
+   * @return the chunk numbers of {@code target} in ascending order.
+   * @throws IllegalArgumentException
+   *     if both headers use different chunk checksum types.
+   */
+  public static int[] getCommonChunks(final ZChunkHeader source, final ZChunkHeader target) {
+    return getChecksumIndex(source, target).intersection(target.getIndex().getChunks());
+  }
+
+  /**
+   * Finds the chunks of {@code target} which are not present in {@code source}, compared by chunk checksum.
+   *
+   * @param source
+   *     the header of the file which is available, e.g. locally.
+   * @param target
+   *     the header of the file which should be assembled.
+   * @return the chunk numbers of {@code target} in ascending order.
+   * @throws IllegalArgumentException
+   *     if both headers use different chunk checksum types.
+   */
+  public static int[] getMissingChunks(final ZChunkHeader source, final ZChunkHeader target) {
+    return getChecksumIndex(source, target).difference(target.getIndex().getChunks());
+  }
+
+  private static ChunkChecksumIndex getChecksumIndex(final ZChunkHeader source, final ZChunkHeader target) {
+    final IndexChecksumType sourceType = source.getIndex().getChunkChecksumType();
+    final IndexChecksumType targetType = target.getIndex().getChunkChecksumType();
+    if (sourceType != targetType) {
+      throw new IllegalArgumentException("Chunk checksum types differ: [" + sourceType + "] and [" + targetType + "].");
+    }
+
+    return source.getIndex().getChunks().getChecksumIndex();
+  }
+
+  /**
+   * Moves the chunk index of a header out of the java heap.
+   *
+   * <p>Use this for headers which are kept in memory for a long time, e.g. by a server. All index accessors stay
+   * the same, only their backing storage changes. The raw header bytes are dropped as well, the header checksum is
+   * then calculated from the header fields.</p>
+   *
+   * @param header
+   *     the header to convert.
+   * @return a copy of the header with an {@link OffHeapChunkIndex}, which does not reference the raw header bytes.
+   */
+  public static ZChunkHeader withOffHeapIndex(final ZChunkHeader header) {
+    return withDetachedIndex(header, OffHeapChunkIndex.copyOf(header.getIndex().getChunks()));
+  }
+
+  /**
+   * Replaces the chunk index of a header and drops the raw header bytes.
+   *
+   * <p>The parser wraps the compressed ints of the lead, preface, index and signatures as views into the raw
+   * header bytes, which would keep the complete array reachable. They are copied into standalone instances with the
+   * same encoding, so the header checksum calculated from the fields does not change.</p>
+   *
+   * @param header
+   *     the header to convert.
+   * @param chunks
+   *     the new chunk index.
+   * @return a copy of the header without any reference to the raw header bytes.
+   */
+  static ZChunkHeader withDetachedIndex(final ZChunkHeader header, final ChunkIndex chunks) {
+    final ZChunkHeaderLead lead = header.getLead();
+    final ZChunkHeaderPreface preface = header.getPreface();
+    final ZChunkHeaderIndex index = header.getIndex();
+    final ZChunkHeaderSignatures signatures = header.getSignatures();
+
+    final List<OptionalElement> optionalElements = new ArrayList<>(preface.getOptionalElements().size());
+    for (final OptionalElement element : preface.getOptionalElements()) {
+      optionalElements.add(ImmutableOptionalElement.copyOf(element)
+          .withId(detach(element.getId()))
+          .withDataSize(detach(element.getDataSize())));
+    }
+
+    final List<ZChunkHeaderSignature> signatureList = new ArrayList<>(signatures.getSignatures().size());
+    for (final ZChunkHeaderSignature signature : signatures.getSignatures()) {
+      signatureList.add(ImmutableZChunkHeaderSignature.copyOf(signature)
+          .withSignatureType(detach(signature.getSignatureType()))
+          .withSignatureSize(detach(signature.getSignatureSize())));
+    }
+
+    return ImmutableZChunkHeader.copyOf(header)
+        .withLead(ImmutableZChunkHeaderLead.copyOf(lead)
+            .withChecksumTypeInt(detach(lead.getChecksumTypeInt()))
+            .withHeaderSize(detach(lead.getHeaderSize())))
+        .withPreface(ImmutableZChunkHeaderPreface.copyOf(preface)
+            .withPrefaceFlagsInt(detach(preface.getPrefaceFlagsInt()))
+            .withOptionalElementCount(detach(preface.getOptionalElementCount()))
+            .withOptionalElements(optionalElements))
+        .withIndex(ImmutableZChunkHeaderIndex.copyOf(index)
+            .withIndexSize(detach(index.getIndexSize()))
+            .withChunkChecksumTypeInt(detach(index.getChunkChecksumTypeInt()))
+            .withChunkCount(detach(index.getChunkCount()))
+            .withDictLength(detach(index.getDictLength()))
+            .withUncompressedDictLength(detach(index.getUncompressedDictLength()))
+            .withChunks(chunks))
+        .withSignatures(ImmutableZChunkHeaderSignatures.copyOf(signatures)
+            .withSignatureCount(detach(signatures.getSignatureCount()))
+            .withSignatures(signatureList))
+        .withRawHeader(Optional.empty());
+  }
+
+  private static CompressedInt detach(final CompressedInt compressedInt) {
+    if (compressedInt instanceof CompressedIntView) {
+      return CompressedIntFactory.fromCompressedBytes(compressedInt.getCompressedBytes());
+    }
+
+    return compressedInt;
   }
 
   public static byte[] getDecompressedDict(final ZChunkHeader header, final File input) {
@@ -98,6 +248,26 @@ public final class ZChunk {
     }
   }
 
+  /**
+   * Reads the dict and prepares it once for all chunk decompressions of the file.
+   *
+   * @param header
+   *     the header of the file.
+   * @param input
+   *     the zchunk file.
+   * @return an immutable, thread safe dictionary handle, which is empty if the file has no dict.
+   * @throws IllegalArgumentException
+   *     if the dict cannot be read.
+   */
+  public static DecompressionDictionary getDecompressionDictionary(final ZChunkHeader header, final File input) {
+    final CompressionAlgorithm compressionAlgorithm = header.getPreface().getCompressionAlgorithm();
+    if (header.getIndex().getDictLength().getLongValue() == 0L) {
+      return compressionAlgorithm.prepareDictionary(new byte[0]);
+    }
+
+    return compressionAlgorithm.prepareDictionary(getDecompressedDict(header, input));
+  }
+
   public static InputStream getDecompressedDictStream(final ZChunkHeader header, final File input) {
     final long offset = OffsetUtil.getDictOffset(header);
     final CompressionAlgorithm compressionAlgorithm = header.getPreface().getCompressionAlgorithm();
@@ -131,4 +301,228 @@ public final class ZChunk {
 
     return decompressor.apply(fis, dict);
   }
+
+  /**
+   * Opens a stream of a single decompressed chunk, using a dictionary prepared by
+   * {@link #getDecompressionDictionary(ZChunkHeader, File)}.
+   *
+   * @param header
+   *     the header of the file.
+   * @param input
+   *     the zchunk file.
+   * @param dict
+   *     the prepared dictionary, shared by all chunks of the file.
+   * @param chunkNumber
+   *     the chunk number, starting at 0 for the first chunk after the dict.
+   * @return the decompressed chunk, which must be closed after use.
+   * @throws IOException
+   *     if the file cannot be opened.
+   */
+  public static InputStream getDecompressedChunk(final ZChunkHeader header,
+                                                 final File input,
+                                                 final DecompressionDictionary dict,
+                                                 final long chunkNumber) throws IOException {
+    final long chunkOffset = OffsetUtil.getChunkOffset(header, chunkNumber);
+    final ZChunkHeaderChunkInfo chunk = getChunkInfo(header, chunkNumber);
+    final CompressionAlgorithm compressionAlgorithm = header.getPreface().getCompressionAlgorithm();
+
+    // including skip
+    final long compressedBytesReadLimit = chunkOffset + chunk.getChunkLength().getLongValue();
+    final BoundedInputStream fis = new BoundedInputStream(new FileInputStream(input), compressedBytesReadLimit);
+    fis.skip(chunkOffset);
+
+    return compressionAlgorithm.decompressStream(fis, dict);
+  }
+
+  /**
+   * Reads a single chunk with one positional read and decompresses it with one block call into a buffer of
+   * exactly the uncompressed chunk length.
+   *
+   * <p>The position of the channel is not changed, so this method can be called concurrently for different chunks
+   * of the same channel.</p>
+   *
+   * @param header
+   *     the header of the file.
+   * @param input
+   *     the open zchunk file. Not closed.
+   * @param dict
+   *     the prepared dictionary, shared by all chunks of the file.
+   * @param chunkNumber
+   *     the chunk number, starting at 0 for the first chunk after the dict.
+   * @return the decompressed chunk, flipped for reading.
+   * @throws IOException
+   *     if the file ends within the chunk or cannot be read.
+   * @throws DecompressionException
+   *     if the chunk data is corrupt or does not decompress to the uncompressed chunk length.
+   */
+  public static ByteBuffer readDecompressedChunk(final ZChunkHeader header,
+                                                 final FileChannel input,
+                                                 final DecompressionDictionary dict,
+                                                 final long chunkNumber) throws IOException {
+    final ZChunkHeaderChunkInfo chunk = getChunkInfo(header, chunkNumber);
+    final long chunkOffset = OffsetUtil.getChunkOffset(header, chunkNumber);
+    final ByteBuffer compressed = ByteBuffer.allocate(chunk.getChunkLength().getIntValue());
+
+    while (compressed.hasRemaining()) {
+      if (input.read(compressed, chunkOffset + compressed.position()) == -1) {
+        throw new EOFException("Unexpected end of file reading chunk [" + chunkNumber + "] at offset [" + chunkOffset + "].");
+      }
+    }
+    ((Buffer) compressed).flip();
+
+    final ByteBuffer decompressed = ByteBuffer.allocate(chunk.getChunkUncompressedLength().getIntValue());
+    decompressChunk(header, compressed, dict, chunkNumber, decompressed);
+
+    ((Buffer) decompressed).flip();
+
+    return decompressed;
+  }
+
+  /**
+   * Decompresses a single chunk from a mapped zchunk file without copying it to the java heap.
+   *
+   * <p>If {@code dst} is a direct buffer, e.g. a chunk of {@link MappedChunks#mapUncompressed(ZChunkHeader,
+   * FileChannel)}, the chunk is decompressed from one mapping into the other with a single block call.</p>
+   *
+   * @param header
+   *     the header of the file.
+   * @param input
+   *     the compressed chunks of the same file.
+   * @param dict
+   *     the prepared dictionary, shared by all chunks of the file.
+   * @param chunkNumber
+   *     the chunk number, starting at 0 for the first chunk after the dict.
+   * @param dst
+   *     the buffer to write the decompressed chunk to. Its position is advanced by the uncompressed chunk length.
+   * @throws DecompressionException
+   *     if the chunk data is corrupt or does not decompress to the uncompressed chunk length.
+   */
+  public static void decompressChunk(final ZChunkHeader header,
+                                     final MappedChunks input,
+                                     final DecompressionDictionary dict,
+                                     final int chunkNumber,
+                                     final ByteBuffer dst) {
+    decompressChunk(header, input.getChunk(chunkNumber), dict, chunkNumber, dst);
+  }
+
+  private static void decompressChunk(final ZChunkHeader header,
+                                      final ByteBuffer compressed,
+                                      final DecompressionDictionary dict,
+                                      final long chunkNumber,
+                                      final ByteBuffer dst) {
+    final CompressionAlgorithm compressionAlgorithm = header.getPreface().getCompressionAlgorithm();
+    final long expected = header.getIndex().getChunks().getUncompressedChunkLength(Math.toIntExact(chunkNumber));
+    final int written = compressionAlgorithm.decompress(compressed, dst, dict);
+
+    if (written != expected) {
+      throw new DecompressionException("Chunk [" + chunkNumber + "] decompressed to [" + written + "] bytes, expected [" + expected + "].");
+    }
+  }
+
+  /**
+   * Copies uncompressed content of a file with a pass-through compression algorithm, e.g. type {@code none}, straight
+   * from the file to the target with {@link FileChannel#transferTo(long, long, WritableByteChannel)}.
+   *
+   * <p>The chunks of such a file are stored as they are and back to back, so the uncompressed content is a single
+   * range of the file. Depending on the target, the kernel moves the data without any copy in user space.</p>
+   *
+   * @param header
+   *     the header of the file.
+   * @param input
+   *     the open zchunk file. Neither its position is changed, nor is it closed.
+   * @param uncompressedPosition
+   *     the position in the uncompressed content to start at.
+   * @param count
+   *     the number of bytes to transfer, limited by the end of the uncompressed content.
+   * @param target
+   *     the channel to write to. Not closed.
+   * @return the number of bytes transferred.
+   * @throws IOException
+   *     if the file ends early, or the target cannot be written or does not accept any bytes.
+   * @throws UnsupportedOperationException
+   *     if the compression algorithm of the file is not pass-through.
+   * @throws InvalidFileException
+   *     if the file has a dict, or the stored length of a chunk differs from its uncompressed length.
+   * @throws IllegalArgumentException
+   *     if the position is negative.
+   */
+  public static long transferStoredContent(final ZChunkHeader header,
+                                           final FileChannel input,
+                                           final long uncompressedPosition,
+                                           final long count,
+                                           final WritableByteChannel target) throws IOException {
+    final CompressionAlgorithm compressionAlgorithm = header.getPreface().getCompressionAlgorithm();
+    if (!compressionAlgorithm.isPassThrough()) {
+      throw new UnsupportedOperationException("Compression algorithm [" + compressionAlgorithm.getName() + "] is not pass-through.");
+    }
+
+    if (uncompressedPosition < 0L) {
+      throw new IllegalArgumentException("Negative position: [" + uncompressedPosition + "].");
+    }
+
+    checkStoredLayout(header);
+
+    return transferStored(header, input, uncompressedPosition, count, target);
+  }
+
+  /**
+   * Checks that the chunks of a file with a pass-through compression algorithm form its uncompressed content, i.e.
+   * that there is no dict and every chunk is stored with its uncompressed length. Otherwise byte ranges of the file
+   * would be attributed to the wrong chunks.
+   *
+   * @param header
+   *     the header of the file.
+   * @throws InvalidFileException
+   *     if the file has a dict, or the stored length of a chunk differs from its uncompressed length.
+   */
+  static void checkStoredLayout(final ZChunkHeader header) {
+    final ZChunkHeaderIndex index = header.getIndex();
+    if (index.getDictLength().getLongValue() != 0L || index.getUncompressedDictLength().getLongValue() != 0L) {
+      throw new InvalidFileException("Stored content must not have a dict, got [" + index.getDictLength() + "] bytes.");
+    }
+
+    final ChunkIndex chunks = index.getChunks();
+    for (int chunkNumber = 0; chunkNumber < chunks.getChunkCount(); chunkNumber++) {
+      if (chunks.getChunkLength(chunkNumber) != chunks.getUncompressedChunkLength(chunkNumber)) {
+        throw new InvalidFileException("Stored chunk [" + chunkNumber + "] has [" + chunks.getChunkLength(chunkNumber)
+            + "] bytes, but [" + chunks.getUncompressedChunkLength(chunkNumber) + "] uncompressed bytes.");
+      }
+    }
+  }
+
+  /**
+   * Like {@link #transferStoredContent(ZChunkHeader, FileChannel, long, long, WritableByteChannel)}, for a header of
+   * which the algorithm and the layout were checked before.
+   */
+  static long transferStored(final ZChunkHeader header,
+                             final FileChannel input,
+                             final long uncompressedPosition,
+                             final long count,
+                             final WritableByteChannel target) throws IOException {
+    final ChunkIndex chunks = header.getIndex().getChunks();
+    final long length = Math.min(count, chunks.getTotalUncompressedLength() - uncompressedPosition);
+    if (length <= 0L) {
+      return 0L;
+    }
+
+    final long dataOffset = OffsetUtil.getChunkOffset(header, 0L);
+    long transferred = 0L;
+
+    while (transferred < length) {
+      final long position = dataOffset + uncompressedPosition + transferred;
+      final long written = input.transferTo(position, length - transferred, target);
+      if (written == 0L) {
+        if (position >= input.size()) {
+          throw new EOFException("Unexpected end of file at offset [" + position + "].");
+        }
+
+        // e.g. a non-blocking target which does not accept any bytes, retrying would spin.
+        throw new IOException("No bytes transferred at offset [" + position + "].");
+      }
+
+      transferred += written;
+    }
+
+    return transferred;
+  }
 }
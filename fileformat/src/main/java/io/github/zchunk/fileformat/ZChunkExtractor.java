@@ -0,0 +1,275 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+import io.github.zchunk.compression.api.CompressionAlgorithm;
+import io.github.zchunk.compression.api.DecompressionDictionary;
+import io.github.zchunk.fileformat.err.InvalidFileException;
+import io.github.zchunk.fileformat.util.ChecksumUtil;
+import io.github.zchunk.fileformat.util.IOUtil;
+import io.github.zchunk.fileformat.util.OffsetUtil;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Extracts a zchunk file and verifies all of its checksums in the same pass.
+ *
+ * <p>{@link ZChunk#validateFile(java.io.File)} reads the data once per checksum, and an extraction afterwards reads it
+ * again. Here, the file is mapped once and every compressed chunk is hashed with the index checksum type right before
+ * it is decompressed from the same memory. The total data checksum is accumulated over the dict and all chunks in
+ * file order, each chunk as soon as its task is done, while the following chunks are decompressed in parallel.</p>
+ *
+ * <p>The output is written to a temporary file next to the target, which is only moved into place if the header, the
+ * dict, every chunk and the total data checksum match, and after its content was forced to the storage device.
+ * Otherwise the target is left untouched.</p>
+ *
+ * <p>Reading a mapped chunk blocks on page faults, so the chunks are never processed on the common fork join pool, but
+ * on a fixed pool of daemon threads with one thread per processor, which is shared by all extractions, or on an
+ * executor supplied by the caller.</p>
+ */
+public final class ZChunkExtractor {
+
+  private ZChunkExtractor() {
+    // util class
+  }
+
+  /**
+   * Extracts the uncompressed content of a zchunk file, verifying all checksums in a single pass over the data.
+   *
+   * @param header
+   *     the header of the file.
+   * @param input
+   *     the zchunk file.
+   * @param target
+   *     the file to write the uncompressed content to. Replaced only if all checksums match.
+   * @throws InvalidFileException
+   *     if any checksum does not match.
+   * @throws IOException
+   *     if the input cannot be read or the target cannot be written.
+   * @throws io.github.zchunk.compression.api.err.DecompressionException
+   *     if the dict or a chunk cannot be decompressed.
+   * @throws UnsupportedOperationException
+   *     if the file has data streams.
+   */
+  public static void extractVerified(final ZChunkHeader header, final Path input, final Path target) throws IOException {
+    extractVerified(header, input, target, SharedExecutor.INSTANCE);
+  }
+
+  /**
+   * Extracts the uncompressed content of a zchunk file like {@link #extractVerified(ZChunkHeader, Path, Path)}, verifying
+   * and decompressing the chunks on the given executor.
+   *
+   * @param header
+   *     the header of the file.
+   * @param input
+   *     the zchunk file.
+   * @param target
+   *     the file to write the uncompressed content to. Replaced only if all checksums match.
+   * @param executor
+   *     the executor for the chunk tasks, which block on disk reads. Its number of threads bounds the parallelism.
+   * @throws InvalidFileException
+   *     if any checksum does not match.
+   * @throws IOException
+   *     if the input cannot be read or the target cannot be written.
+   * @throws io.github.zchunk.compression.api.err.DecompressionException
+   *     if the dict or a chunk cannot be decompressed.
+   * @throws UnsupportedOperationException
+   *     if the file has data streams.
+   */
+  public static void extractVerified(final ZChunkHeader header,
+                                     final Path input,
+                                     final Path target,
+                                     final Executor executor) throws IOException {
+    if (header.getPreface().getPrefaceFlags().contains(PrefaceFlag.HAS_DATA_STREAMS)) {
+      throw new UnsupportedOperationException("Data streams not supported yet.");
+    }
+
+    if (!ChecksumUtil.isValidHeader(header)) {
+      throw new InvalidFileException("Header checksum does not match.", input.toFile());
+    }
+
+    final Path absoluteTarget = target.toAbsolutePath();
+    // created with the default permissions, as the unverified extraction would.
+    final Path tempFile = IOUtil.createSiblingFile(absoluteTarget, ".part");
+
+    try {
+      try (final FileChannel zckFile = FileChannel.open(input, StandardOpenOption.READ);
+          final FileChannel output = FileChannel.open(tempFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        extract(header, input, zckFile, output, executor);
+      }
+
+      move(tempFile, absoluteTarget);
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+  }
+
+  private static void extract(final ZChunkHeader header,
+                              final Path input,
+                              final FileChannel zckFile,
+                              final FileChannel output,
+                              final Executor executor) throws IOException {
+    final ZChunkHeaderIndex index = header.getIndex();
+    final IndexChecksumType chunkChecksumType = index.getChunkChecksumType();
+    final MessageDigest dataDigest = header.getLead().getChecksumType().getMessageDigest();
+
+    // the dict comes first in file order.
+    final ByteBuffer compressedDict = readDict(header, zckFile);
+    dataDigest.update(compressedDict.duplicate());
+    final DecompressionDictionary dict = prepareDictionary(header, input, compressedDict);
+
+    final MappedChunks compressed = MappedChunks.mapCompressed(header, zckFile);
+    final MappedChunks uncompressed = MappedChunks.mapUncompressed(header, output);
+    final int chunkCount = compressed.getChunkCount();
+
+    final CompletableFuture<?>[] chunkTasks = new CompletableFuture<?>[chunkCount];
+    for (int chunkNumber = 0; chunkNumber < chunkCount; chunkNumber++) {
+      final int currentChunk = chunkNumber;
+      chunkTasks[chunkNumber] = CompletableFuture.runAsync(
+          () -> verifyAndDecompress(header, input, compressed, uncompressed, dict, chunkChecksumType, currentChunk),
+          executor);
+    }
+
+    // the results are collected in file order, and each chunk is added to the data digest right after its task read
+    // it, while its pages are still cached. There is no separate pass over the data afterwards.
+    for (int chunkNumber = 0; chunkNumber < chunkCount; chunkNumber++) {
+      try {
+        chunkTasks[chunkNumber].join();
+      } catch (final CompletionException completionEx) {
+        // tasks which did not start yet are skipped.
+        for (final CompletableFuture<?> chunkTask : chunkTasks) {
+          chunkTask.cancel(false);
+        }
+
+        if (completionEx.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) completionEx.getCause();
+        }
+
+        throw completionEx;
+      }
+
+      dataDigest.update(compressed.getChunk(chunkNumber));
+    }
+    final byte[] dataChecksum = dataDigest.digest();
+
+    if (!Arrays.equals(header.getPreface().getTotalDataChecksum(), dataChecksum)) {
+      throw new InvalidFileException("Data checksum does not match.", input.toFile());
+    }
+
+    // the content must be durable before the move, or a crash could leave a truncated target in place.
+    uncompressed.force();
+    output.force(true);
+  }
+
+  private static ByteBuffer readDict(final ZChunkHeader header, final FileChannel zckFile) throws IOException {
+    final long dictOffset = OffsetUtil.getDictOffset(header);
+    final ByteBuffer compressedDict = ByteBuffer.allocate(header.getIndex().getDictLength().getIntValue());
+
+    while (compressedDict.hasRemaining()) {
+      if (zckFile.read(compressedDict, dictOffset + compressedDict.position()) == -1) {
+        throw new EOFException("Unexpected end of file reading the dict at offset [" + dictOffset + "].");
+      }
+    }
+
+    ((Buffer) compressedDict).flip();
+
+    return compressedDict;
+  }
+
+  private static DecompressionDictionary prepareDictionary(final ZChunkHeader header,
+                                                           final Path input,
+                                                           final ByteBuffer compressedDict) {
+    final ZChunkHeaderIndex index = header.getIndex();
+    final CompressionAlgorithm compressionAlgorithm = header.getPreface().getCompressionAlgorithm();
+    if (!compressedDict.hasRemaining()) {
+      return compressionAlgorithm.prepareDictionary(new byte[0]);
+    }
+
+    if (!Arrays.equals(index.getDictChecksum(), index.getChunkChecksumType().digest(compressedDict))) {
+      throw new InvalidFileException("Dict checksum does not match.", input.toFile());
+    }
+
+    final byte[] dict = compressionAlgorithm.decompress(
+        compressedDict.array(),
+        compressionAlgorithm.prepareDictionary(new byte[0]),
+        index.getUncompressedDictLength().getIntValue());
+
+    return compressionAlgorithm.prepareDictionary(dict);
+  }
+
+  private static void verifyAndDecompress(final ZChunkHeader header,
+                                          final Path input,
+                                          final MappedChunks compressed,
+                                          final MappedChunks uncompressed,
+                                          final DecompressionDictionary dict,
+                                          final IndexChecksumType chunkChecksumType,
+                                          final int chunkNumber) {
+    final ByteBuffer compressedChunk = compressed.getChunk(chunkNumber);
+    final ChunkIndex chunks = header.getIndex().getChunks();
+
+    final byte[] checksum = chunkChecksumType.digest(compressedChunk);
+    if (checksum.length != chunks.getChecksumLength() || !chunks.chunkChecksumEquals(chunkNumber, checksum, 0)) {
+      throw new InvalidFileException("Checksum of chunk [" + chunkNumber + "] does not match.", input.toFile());
+    }
+
+    ZChunk.decompressChunk(header, compressed, dict, chunkNumber, uncompressed.getChunk(chunkNumber));
+  }
+
+  private static void move(final Path source, final Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (final AtomicMoveNotSupportedException atomicEx) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * The executor of {@link #extractVerified(ZChunkHeader, Path, Path)}, created on first use.
+   */
+  private static final class SharedExecutor {
+
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    static final ExecutorService INSTANCE = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), task -> {
+      final Thread thread = new Thread(task, "zchunk-extractor-" + THREAD_NUMBER.incrementAndGet());
+      // idle threads must not keep the jvm alive.
+      thread.setDaemon(true);
+
+      return thread;
+    });
+
+    private SharedExecutor() {
+      // holder class
+    }
+  }
+}
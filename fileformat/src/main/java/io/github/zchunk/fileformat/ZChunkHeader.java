@@ -16,6 +16,8 @@
 
 package io.github.zchunk.fileformat;
 
+import java.nio.ByteBuffer;
+import java.util.Optional;
 import org.immutables.value.Value;
 
 /**
@@ -39,4 +41,15 @@ public interface ZChunkHeader {
 
   ZChunkHeaderSignatures getSignatures();
 
+  /**
+   * The complete header as it was read, starting with the lead and ending with the signatures.
+   *
+   * <p>Present for parsed headers, so the header checksum can be verified over the original bytes. The buffer is
+   * read-only and shared, use {@link ByteBuffer#duplicate()} before changing its position.</p>
+   *
+   * @return the raw header bytes, if known.
+   */
+  @Value.Auxiliary
+  Optional<ByteBuffer> getRawHeader();
+
 }
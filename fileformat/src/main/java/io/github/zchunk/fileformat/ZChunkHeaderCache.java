@@ -0,0 +1,351 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+import io.github.zchunk.fileformat.err.InvalidFileException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A bounded cache of parsed headers with least-recently-used eviction.
+ *
+ * <p>Entries are keyed by the file's path, size, modification time, file key (e.g. the inode, if available) and the
+ * header checksum from its lead. A lookup therefore still opens the file and reads its attributes and the lead, but a
+ * modified file is never served from the cache. On a miss, the header is parsed from the same open channel.</p>
+ *
+ * <p>The cache is bounded by the number of entries and by the sum of the estimated memory retained by the headers,
+ * i.e. their raw header bytes and their decoded chunk index. Concurrent lookups of the same missing header are
+ * coalesced, so each header is parsed only once.</p>
+ */
+public final class ZChunkHeaderCache {
+
+  private final int maxEntries;
+
+  private final long maxBytes;
+
+  private final Map<Key, ZChunkHeader> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private final ConcurrentMap<Key, CompletableFuture<ZChunkHeader>> loading = new ConcurrentHashMap<>();
+
+  private final AtomicLong hitCount = new AtomicLong();
+
+  private final AtomicLong missCount = new AtomicLong();
+
+  private final AtomicLong loadCount = new AtomicLong();
+
+  private final AtomicLong evictionCount = new AtomicLong();
+
+  private long bytes;
+
+  /**
+   * Creates a cache.
+   *
+   * @param maxEntries
+   *     the maximum number of headers to keep.
+   * @param maxBytes
+   *     the maximum sum of the retained bytes of all headers. Larger headers are not cached at all.
+   * @throws IllegalArgumentException
+   *     if one of the bounds is not positive.
+   */
+  public ZChunkHeaderCache(final int maxEntries, final long maxBytes) {
+    if (maxEntries <= 0 || maxBytes <= 0L) {
+      throw new IllegalArgumentException("Bounds must be positive: [" + maxEntries + "] entries, [" + maxBytes + "] bytes.");
+    }
+
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Returns the cached header of the file, or parses and caches it.
+   *
+   * @param path
+   *     the zchunk file.
+   * @return the header.
+   * @throws InvalidFileException
+   *     if the file cannot be read.
+   * @throws IllegalArgumentException
+   *     if the file does not start with a valid header.
+   */
+  public ZChunkHeader getHeader(final Path path) {
+    final Path normalized = path.toAbsolutePath().normalize();
+
+    try (final FileChannel channel = FileChannel.open(normalized, StandardOpenOption.READ)) {
+      return getHeader(Key.of(normalized, channel), channel);
+    } catch (final IOException ioEx) {
+      throw new InvalidFileException("Unable to read header of file.", normalized.toFile(), ioEx);
+    }
+  }
+
+  private ZChunkHeader getHeader(final Key key, final FileChannel channel) throws IOException {
+    final ZChunkHeader cached = getEntry(key);
+    if (cached != null) {
+      this.hitCount.incrementAndGet();
+      return cached;
+    }
+
+    final CompletableFuture<ZChunkHeader> future = new CompletableFuture<>();
+    final CompletableFuture<ZChunkHeader> inFlight = this.loading.putIfAbsent(key, future);
+    if (inFlight != null) {
+      // another thread is parsing this header already.
+      this.hitCount.incrementAndGet();
+      return join(inFlight);
+    }
+
+    try {
+      // the entry might have been added after our first lookup, but before we started loading.
+      final ZChunkHeader loaded = getEntry(key);
+      if (loaded != null) {
+        this.hitCount.incrementAndGet();
+        future.complete(loaded);
+        return loaded;
+      }
+
+      this.missCount.incrementAndGet();
+      this.loadCount.incrementAndGet();
+      // parsed from the channel the key was read from, so a file replaced in between cannot be cached under this key.
+      final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(channel);
+      if (!Arrays.equals(header.getLead().getChecksum(), key.headerChecksum)) {
+        throw new InvalidFileException("File was modified while reading its header.", key.path.toFile());
+      }
+
+      putEntry(key, header);
+      future.complete(header);
+
+      return header;
+    } catch (final IOException | RuntimeException ex) {
+      future.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      this.loading.remove(key, future);
+    }
+  }
+
+  public void invalidate(final Path path) {
+    final Path normalized = path.toAbsolutePath().normalize();
+
+    synchronized (this.entries) {
+      final Iterator<Map.Entry<Key, ZChunkHeader>> iterator = this.entries.entrySet().iterator();
+      while (iterator.hasNext()) {
+        final Map.Entry<Key, ZChunkHeader> entry = iterator.next();
+        if (entry.getKey().path.equals(normalized)) {
+          this.bytes -= weigh(entry.getValue());
+          iterator.remove();
+        }
+      }
+    }
+  }
+
+  public void clear() {
+    synchronized (this.entries) {
+      this.entries.clear();
+      this.bytes = 0L;
+    }
+  }
+
+  public int size() {
+    synchronized (this.entries) {
+      return this.entries.size();
+    }
+  }
+
+  /**
+   * The sum of the estimated retained bytes of all cached headers.
+   *
+   * @return the cached header bytes.
+   */
+  public long getBytes() {
+    synchronized (this.entries) {
+      return this.bytes;
+    }
+  }
+
+  /**
+   * Lookups which did not parse the header, including those which waited for a concurrent lookup to parse it.
+   *
+   * @return the number of cache hits.
+   */
+  public long getHitCount() {
+    return this.hitCount.get();
+  }
+
+  public long getMissCount() {
+    return this.missCount.get();
+  }
+
+  /**
+   * The number of headers parsed, including failed attempts.
+   *
+   * @return the number of loads.
+   */
+  public long getLoadCount() {
+    return this.loadCount.get();
+  }
+
+  public long getEvictionCount() {
+    return this.evictionCount.get();
+  }
+
+  private @Nullable ZChunkHeader getEntry(final Key key) {
+    synchronized (this.entries) {
+      return this.entries.get(key);
+    }
+  }
+
+  private void putEntry(final Key key, final ZChunkHeader header) {
+    final long weight = weigh(header);
+    if (weight > this.maxBytes) {
+      return;
+    }
+
+    synchronized (this.entries) {
+      final ZChunkHeader previous = this.entries.put(key, header);
+      if (previous != null) {
+        this.bytes -= weigh(previous);
+      }
+      this.bytes += weight;
+
+      final Iterator<ZChunkHeader> eldest = this.entries.values().iterator();
+      while (this.entries.size() > this.maxEntries || this.bytes > this.maxBytes) {
+        this.bytes -= weigh(eldest.next());
+        eldest.remove();
+        this.evictionCount.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Estimates the memory retained by a header. The lazy chunk index shares the raw header bytes until it is decoded,
+   * the decoded index then holds the checksums plus the lengths and offsets as four longs per chunk. It is counted
+   * up front, so the weight of an entry never changes.
+   */
+  private static long weigh(final ZChunkHeader header) {
+    final long rawHeaderBytes = header.getRawHeader().map(ByteBuffer::capacity).orElse(0);
+    final ChunkIndex chunks = header.getIndex().getChunks();
+
+    return rawHeaderBytes + (long) chunks.getChunkCount() * (chunks.getChecksumLength() + 4L * Long.BYTES);
+  }
+
+  private static ZChunkHeader join(final CompletableFuture<ZChunkHeader> future) throws IOException {
+    try {
+      return future.join();
+    } catch (final CompletionException completionEx) {
+      final Throwable cause = completionEx.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+
+      throw completionEx;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", ZChunkHeaderCache.class.getSimpleName() + "[", "]")
+        .add("maxEntries=" + this.maxEntries)
+        .add("maxBytes=" + this.maxBytes)
+        .add("size=" + size())
+        .add("bytes=" + getBytes())
+        .add("hitCount=" + getHitCount())
+        .add("missCount=" + getMissCount())
+        .add("evictionCount=" + getEvictionCount())
+        .toString();
+  }
+
+  /**
+   * Identifies one version of a file.
+   */
+  private static final class Key {
+
+    private final Path path;
+
+    private final long size;
+
+    private final FileTime lastModified;
+
+    private final @Nullable Object fileKey;
+
+    private final byte[] headerChecksum;
+
+    private Key(final Path path, final long size, final FileTime lastModified, final @Nullable Object fileKey,
+        final byte[] headerChecksum) {
+      this.path = path;
+      this.size = size;
+      this.lastModified = lastModified;
+      this.fileKey = fileKey;
+      this.headerChecksum = headerChecksum;
+    }
+
+    static Key of(final Path normalized, final FileChannel channel) throws IOException {
+      final BasicFileAttributes attributes = Files.readAttributes(normalized, BasicFileAttributes.class);
+      final ZChunkHeaderLead lead = ZChunkHeaderFactory.readFileHeaderLead(channel);
+
+      return new Key(normalized, channel.size(), attributes.lastModifiedTime(), attributes.fileKey(), lead.getChecksum());
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      if (this == other) {
+        return true;
+      }
+
+      if (!(other instanceof Key)) {
+        return false;
+      }
+
+      final Key that = (Key) other;
+
+      return this.size == that.size
+          && this.path.equals(that.path)
+          && this.lastModified.equals(that.lastModified)
+          && Objects.equals(this.fileKey, that.fileKey)
+          && Arrays.equals(this.headerChecksum, that.headerChecksum);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = this.path.hashCode();
+      result = 31 * result + Long.hashCode(this.size);
+      result = 31 * result + this.lastModified.hashCode();
+      result = 31 * result + Arrays.hashCode(this.headerChecksum);
+
+      return result;
+    }
+  }
+}
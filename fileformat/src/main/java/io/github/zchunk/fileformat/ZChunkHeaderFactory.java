@@ -17,90 +17,120 @@
 package io.github.zchunk.fileformat;
 
 import static io.github.zchunk.fileformat.ZChunkConstants.Header.MAX_LEAD_SIZE;
-import static java.util.stream.Collectors.toConcurrentMap;
 
 import io.github.zchunk.compressedint.CompressedInt;
 import io.github.zchunk.compressedint.CompressedIntFactory;
-import io.github.zchunk.compression.algo.unknown.UnknownAlgorithm;
+import io.github.zchunk.compressedint.CompressedIntUtil;
 import io.github.zchunk.compression.api.CompressionAlgorithm;
 import io.github.zchunk.compression.api.CompressionAlgorithmFactory;
 import io.github.zchunk.fileformat.err.InvalidFileException;
-import io.github.zchunk.fileformat.parser.ZChunkIndexParser;
-import io.github.zchunk.fileformat.parser.ZChunkLeadParser;
-import io.github.zchunk.fileformat.parser.ZChunkPrefaceParser;
+import io.github.zchunk.fileformat.parser.ZChunkHeaderParser;
+import io.github.zchunk.fileformat.parser.ZChunkHeaderReader;
 import io.github.zchunk.fileformat.util.OffsetUtil;
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.RandomAccessFile;
-import java.math.BigInteger;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
-import java.util.Set;
-import java.util.function.Function;
-import java.util.logging.Logger;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 public final class ZChunkHeaderFactory {
 
-  private static final Logger LOG = Logger.getLogger(ZChunkHeaderFactory.class.getCanonicalName());
+  /**
+   * Number of bytes read up front when reading a header from a file. Larger headers need a second read.
+   */
+  public static final int SPECULATIVE_HEADER_READ_SIZE = 64 * 1024;
 
   private ZChunkHeaderFactory() {
     //
   }
 
   public static ZChunkHeader getZChunkFileHeader(final File input) {
-    final ZChunkHeaderLead lead = readFileHeaderLead(input);
-    if (lead.getChecksumType() == HeaderChecksumType.UNKNOWN) {
-      throw new UnsupportedOperationException("Unknown getMessageDigest type: [" + lead.getChecksumType() + "].");
-    }
-    final byte[] completeHeader = readCompleteHeader(input, lead);
-    final ZChunkHeaderPreface preface = readHeaderPreface(completeHeader, lead);
-    final ZChunkHeaderIndex index = readHeaderIndex(completeHeader, lead, preface);
-    final ZChunkHeaderSignatures signatures = readSignatureIndex(completeHeader, lead, preface, index);
-
-    return ImmutableZChunkHeader.builder()
-        .lead(lead)
-        .preface(preface)
-        .index(index)
-        .signatures(signatures)
-        .build();
+    return getZChunkFileHeader(input.toPath());
   }
 
-  public static ZChunkHeader fromStream(final InputStream byteStream) {
-    try {
-      final byte[] leadBytes = new byte[MAX_LEAD_SIZE];
-      final int read = byteStream.read(leadBytes);
+  /**
+   * Reads the complete header of a zchunk file, opening the file only once.
+   *
+   * @param input
+   *     the zchunk file.
+   * @return the parsed header.
+   * @throws InvalidFileException
+   *     if the file cannot be read.
+   * @throws IllegalArgumentException
+   *     if the file does not start with a complete zchunk header.
+   */
+  public static ZChunkHeader getZChunkFileHeader(final Path input) {
+    try (final FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+      return getZChunkFileHeader(channel);
+    } catch (final IOException ioEx) {
+      throw new InvalidFileException("Unable to read header of file.", input.toFile(), ioEx);
+    }
+  }
 
-      if (read < MAX_LEAD_SIZE) {
-        throw new IllegalArgumentException("Unable to read enough bytes from bytestream!");
-      }
+  /**
+   * Reads the complete header from the start of a file channel.
+   *
+   * <p>The first {@value #SPECULATIVE_HEADER_READ_SIZE} bytes are read with a single positional read, which covers the
+   * complete header of most files. Only if the header size from the lead is larger, the remaining bytes are read
+   * in a second step. The position of the channel is not changed, and the channel is not closed.</p>
+   *
+   * @param channel
+   *     the open channel to read from.
+   * @return the parsed header.
+   * @throws IOException
+   *     if reading from the channel fails.
+   * @throws IllegalArgumentException
+   *     if the channel does not start with a complete zchunk header.
+   */
+  public static ZChunkHeader getZChunkFileHeader(final FileChannel channel) throws IOException {
+    final int speculativeSize = (int) Math.min(SPECULATIVE_HEADER_READ_SIZE, channel.size());
+    final ByteBuffer buffer = ByteBuffer.allocate(speculativeSize);
+    readFully(channel, buffer, 0L);
+
+    ((Buffer) buffer).flip();
+
+    final ZChunkHeaderLead lead = ZChunkHeaderParser.fromBuffer(buffer).readLead();
+    if (lead.getChecksumType() == HeaderChecksumType.UNKNOWN) {
+      throw new UnsupportedOperationException("Unknown getMessageDigest type: [" + lead.getChecksumType() + "].");
+    }
 
-      final ZChunkHeaderLead lead = readFileHeaderLead(leadBytes);
-      final byte[] completeHeader = new byte[OffsetUtil.getTotalHeaderSize(lead)];
-      System.arraycopy(leadBytes, 0, completeHeader, 0, leadBytes.length);
-      final long bytesRemaining = OffsetUtil.getLeadLength(lead) - read;
+    final int totalHeaderSize = OffsetUtil.getTotalHeaderSize(lead);
+    if (totalHeaderSize <= buffer.limit()) {
+      return ZChunkHeaderParser.fromBuffer(buffer).parse();
+    }
 
-      if (BigInteger.valueOf(bytesRemaining).compareTo(BigInteger.valueOf(Integer.MAX_VALUE)) == 1) {
-        throw new IllegalStateException("Cannot read remaining [" + bytesRemaining + "] bytes. Value too large for integer.");
-      }
+    final ByteBuffer completeHeader = ByteBuffer.wrap(Arrays.copyOf(buffer.array(), totalHeaderSize));
+    ((Buffer) completeHeader).position(buffer.limit());
+    readFully(channel, completeHeader, 0L);
 
-      final byte[] headerBytesRemaining = new byte[Math.toIntExact(bytesRemaining)];
-      byteStream.read(headerBytesRemaining);
-      System.arraycopy(headerBytesRemaining, 0, completeHeader, leadBytes.length, headerBytesRemaining.length);
+    if (completeHeader.hasRemaining()) {
+      throw new IllegalArgumentException("Cannot read header, file too short?");
+    }
 
-      final ZChunkHeaderPreface headerPreface = readHeaderPreface(completeHeader, lead);
+    ((Buffer) completeHeader).flip();
 
-      final ZChunkHeaderIndex index = readHeaderIndex(completeHeader, lead, headerPreface);
-      final ZChunkHeaderSignatures signature = ImmutableZChunkHeaderSignatures.builder()
-          .signatureCount(CompressedIntFactory.valueOf(0L))
-          .build();
+    return ZChunkHeaderParser.fromBuffer(completeHeader).parse();
+  }
 
-      return ImmutableZChunkHeader.builder()
-          .lead(lead)
-          .preface(headerPreface)
-          .index(index)
-          .signatures(signature)
-          .build();
+  /**
+   * Reads exactly one header from the stream, tolerating short reads. No bytes after the header are consumed.
+   *
+   * @param byteStream
+   *     the stream to read from. Not closed.
+   * @return the parsed header.
+   * @throws IllegalArgumentException
+   *     if the stream ends within the header or the header is invalid.
+   * @see ZChunkHeaderReader
+   */
+  public static ZChunkHeader fromStream(final InputStream byteStream) {
+    try {
+      return ZChunkHeaderReader.read(Channels.newChannel(byteStream));
     } catch (final IOException ioEx) {
       throw new IllegalArgumentException("Unable to read enough bytes from bytestream!", ioEx);
     }
@@ -111,66 +141,55 @@ public final class ZChunkHeaderFactory {
       throw new IllegalArgumentException("No enough bytes to read lead.");
     }
 
-    final ZChunkLeadParser leadParser = ZChunkLeadParser.fromBytes(input);
-
-    return getZChunkFileHeaderLeadFromParser(leadParser);
+    return ZChunkHeaderParser.fromBytes(input).readLead();
   }
 
   public static ZChunkHeaderLead readFileHeaderLead(final File input) {
-    final ZChunkLeadParser leadParser = ZChunkLeadParser.fromFile(input);
-
-    return getZChunkFileHeaderLeadFromParser(leadParser);
-  }
+    final byte[] leadBytes = readBytes(input, MAX_LEAD_SIZE);
+    if (leadBytes.length < MAX_LEAD_SIZE) {
+      final String message = String.format("Unable to read [%d] bytes from file [%s].", MAX_LEAD_SIZE, input.getAbsolutePath());
+      throw new InvalidFileException(message, input);
+    }
 
-  private static ZChunkHeaderLead getZChunkFileHeaderLeadFromParser(final ZChunkLeadParser leadParser) {
-    return ImmutableZChunkHeaderLead.builder()
-        .id(leadParser.readLeadId())
-        .checksumTypeInt(leadParser.readLeadCksumType())
-        .headerSize(leadParser.readHeaderSize())
-        .checksum(leadParser.readHeaderChecksum())
-        .build();
+    return readFileHeaderLead(leadBytes);
   }
 
-  private static byte[] readCompleteHeader(final File input, final ZChunkHeaderLead lead) {
-    try (final FileInputStream fis = new FileInputStream(input)) {
-      final int totalHeaderSize = OffsetUtil.getTotalHeaderSize(lead);
-      final byte[] buffer = new byte[totalHeaderSize];
-      final int readCount = fis.read(buffer);
-
-      if (readCount < totalHeaderSize) {
-        throw new IllegalArgumentException("Cannot read header, file too short?");
-      }
-
-      return buffer;
-    } catch (final IOException ioEx) {
-      throw new InvalidFileException("File too short?", input, ioEx);
+  /**
+   * Reads the lead from the start of a file channel. The position of the channel is not changed, and the channel is
+   * not closed.
+   *
+   * @param channel
+   *     the channel of a zchunk file.
+   * @return the lead.
+   * @throws IOException
+   *     if the channel cannot be read, or is too short to contain a lead.
+   */
+  public static ZChunkHeaderLead readFileHeaderLead(final FileChannel channel) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(MAX_LEAD_SIZE);
+    readFully(channel, buffer, 0L);
+    if (buffer.hasRemaining()) {
+      throw new EOFException("Unable to read [" + MAX_LEAD_SIZE + "] bytes, channel has only [" + buffer.position() + "].");
     }
+
+    return readFileHeaderLead(buffer.array());
   }
 
+  /**
+   * Reads the preface from a complete header.
+   *
+   * @param completeHeader
+   *     the header bytes, starting with the lead.
+   * @param lead
+   *     the lead which was read from the same bytes before.
+   * @return the preface.
+   */
   public static ZChunkHeaderPreface readHeaderPreface(final byte[] completeHeader, final ZChunkHeaderLead lead) {
-    final ZChunkPrefaceParser prefaceParser = ZChunkPrefaceParser.fromBytes(completeHeader, lead);
+    final ZChunkHeaderParser parser = ZChunkHeaderParser.fromBytes(completeHeader);
+    parser.readLead();
 
-    return getZChunkFileHeaderPrefaceFromParser(prefaceParser);
+    return parser.readPreface(lead);
   }
 
-  private static ZChunkHeaderPreface getZChunkFileHeaderPrefaceFromParser(final ZChunkPrefaceParser prefaceParser) {
-    final CompressedInt prefaceFlagsInt = prefaceParser.readFlagsInt();
-    final Set<PrefaceFlag> flags = PrefaceFlag.getPrefaceFlags(prefaceFlagsInt);
-
-    final CompressedInt compressionTypeInt = prefaceParser.readCompressionType();
-    final CompressionAlgorithm compressionAlgorithm = CompressionAlgorithmFactory.forType(compressionTypeInt);
-    if (compressionAlgorithm.getClass().equals(UnknownAlgorithm.class)) {
-      throw new IllegalArgumentException("Unknown compression type for type " + compressionTypeInt);
-    }
-
-    return ImmutableZChunkHeaderPreface.builder()
-        .totalDataChecksum(prefaceParser.readTotalDataCksum())
-        .prefaceFlagsInt(prefaceFlagsInt)
-        .compressionAlgorithm(compressionAlgorithm)
-        .optionalElementCount(CompressedIntFactory.valueOf(0))
-        .addAllPrefaceFlags(flags)
-        .build();
-  }
 
   public static ZChunkHeaderPreface readFileHeaderPreface(final File input, final ZChunkHeaderLead lead) {
     return readFileHeaderPreface(input, lead.getChecksumType(), OffsetUtil.getLeadLength(lead));
@@ -179,15 +198,21 @@ public final class ZChunkHeaderFactory {
   public static ZChunkHeaderPreface readFileHeaderPreface(final File zckFile, final HeaderChecksumType headerChecksumType,
       final long leadLength) {
     final byte[] cksum = new byte[headerChecksumType.getDigestLength()];
+    // checksum, flags and compression type are read with a single positional read.
+    final ByteBuffer prefaceBuffer = ByteBuffer.allocate(cksum.length + 2 * CompressedIntUtil.MAX_COMPRESSED_INT_LENGTH);
 
-    try (final RandomAccessFile randomAccessFile = new RandomAccessFile(zckFile, "r")) {
-      randomAccessFile.seek(leadLength);
-      randomAccessFile.read(cksum);
+    try (final FileChannel channel = FileChannel.open(zckFile.toPath(), StandardOpenOption.READ)) {
+      readFully(channel, prefaceBuffer, leadLength);
+      ((Buffer) prefaceBuffer).flip();
 
-      final InputStream inputStream = Channels.newInputStream(randomAccessFile.getChannel());
-      final CompressedInt flags = getPrefaceFlagsFromInputStream(inputStream);
+      if (prefaceBuffer.remaining() < cksum.length) {
+        throw new InvalidFileException("File too short to read preface.", zckFile);
+      }
 
-      final CompressedInt compressionType = CompressedIntFactory.readCompressedInt(inputStream);
+      prefaceBuffer.get(cksum);
+      final CompressedInt flags = CompressedIntFactory.readCompressedInt(prefaceBuffer);
+
+      final CompressedInt compressionType = CompressedIntFactory.readCompressedInt(prefaceBuffer);
       final CompressionAlgorithm compressionAlgorithm = CompressionAlgorithmFactory.forType(compressionType.getLongValue());
 
       return ImmutableZChunkHeaderPreface.builder()
@@ -206,30 +231,32 @@ public final class ZChunkHeaderFactory {
     return CompressedIntFactory.readCompressedInt(inputStream);
   }
 
-  private static ZChunkHeaderIndex readHeaderIndex(final byte[] completeHeader, final ZChunkHeaderLead lead,
-      final ZChunkHeaderPreface preface) {
-    final ZChunkIndexParser parser = ZChunkIndexParser.fromBytes(completeHeader, lead, preface);
-
-    final CompressedInt indexChecksumType = parser.readIndexCksumType();
-
-    return ImmutableZChunkHeaderIndex.builder()
-        .indexSize(parser.readIndexSize())
-        .chunkChecksumTypeInt(indexChecksumType)
-        .chunkCount(parser.readChunkCount())
-        .dictChecksum(parser.readDictChecksum())
-        .dictLength(parser.readDictLength())
-        .uncompressedDictLength(parser.readUncompressedDictLength())
-        .putAllChunkInfo(parser.readChunkInfos().stream()
-            .collect(toConcurrentMap(ZChunkHeaderChunkInfo::getChunkChecksum, Function.identity())))
-        .build();
-  }
+  /**
+   * Reads up to {@code length} bytes from the start of the file with positional reads.
+   *
+   * @return the bytes read, which is less than {@code length} if the file is shorter.
+   */
+  private static byte[] readBytes(final File input, final int length) {
+    final ByteBuffer buffer = ByteBuffer.allocate(length);
 
-  private static ZChunkHeaderSignatures readSignatureIndex(
-      final byte[] completeHeader, final ZChunkHeaderLead lead, final ZChunkHeaderPreface preface, final ZChunkHeaderIndex index) {
+    try (final FileChannel channel = FileChannel.open(input.toPath(), StandardOpenOption.READ)) {
+      readFully(channel, buffer, 0L);
+    } catch (final IOException ioEx) {
+      throw new InvalidFileException("Unable to read [" + length + "] bytes from file.", input, ioEx);
+    }
 
-    return ImmutableZChunkHeaderSignatures.builder()
-        .signatureCount(CompressedIntFactory.valueOf(0L))
-        .build();
+    return Arrays.copyOf(buffer.array(), buffer.position());
   }
 
+  /**
+   * Fills the remaining bytes of {@code dst} from the channel, where the buffer position {@code 0} is at
+   * {@code fileOffset}. Stops early at the end of the channel.
+   */
+  private static void readFully(final FileChannel channel, final ByteBuffer dst, final long fileOffset) throws IOException {
+    while (dst.hasRemaining()) {
+      if (channel.read(dst, fileOffset + dst.position()) == -1) {
+        break;
+      }
+    }
+  }
 }
@@ -18,13 +18,13 @@ package io.github.zchunk.fileformat;
 
 import io.github.zchunk.compressedint.CompressedInt;
 import io.github.zchunk.fileformat.util.ByteUtils;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.SortedSet;
 import java.util.StringJoiner;
-import java.util.TreeSet;
-import java.util.function.Supplier;
-import java.util.stream.Collectors;
 import org.immutables.value.Value;
 
 /**
@@ -63,7 +63,7 @@ public abstract class ZChunkHeaderIndex {
 
   @Value.Derived
   public IndexChecksumType getChunkChecksumType() {
-    return IndexChecksumType.find(getChunkChecksumTypeInt().getValue());
+    return IndexChecksumType.find(getChunkChecksumTypeInt().getUnsignedLongValue());
   }
 
   public abstract CompressedInt getChunkCount();
@@ -86,16 +86,55 @@ public abstract class ZChunkHeaderIndex {
 
   public abstract CompressedInt getUncompressedDictLength();
 
-  public abstract Map<byte[], ZChunkHeaderChunkInfo> getChunkInfo();
+  /**
+   * The chunk records in columnar form, which allows constant time lookups by chunk number.
+   *
+   * @return the chunks, not including the dict chunk.
+   */
+  public abstract ChunkIndex getChunks();
 
+  /**
+   * All chunks by checksum.
+   *
+   * <p>Arrays use identity equality, so this map cannot be used to look up a chunk by checksum. Use the
+   * {@link ChunkIndex#getChecksumIndex() checksum index} of {@link #getChunks()} instead.</p>
+   *
+   * @return a map of chunk infos, keyed by their checksum arrays.
+   */
   @Value.Lazy
-  public SortedSet<ZChunkHeaderChunkInfo> getChunkInfoSortedByIndex() {
-    final Supplier<SortedSet<ZChunkHeaderChunkInfo>> IndexSortedList = () -> new TreeSet<>(ZChunkHeaderChunkInfo.INDEX_COMPARATOR);
+  public Map<byte[], ZChunkHeaderChunkInfo> getChunkInfo() {
+    final ChunkIndex chunks = getChunks();
+    final Map<byte[], ZChunkHeaderChunkInfo> chunkInfo = new HashMap<>(chunks.getChunkCount() * 4 / 3 + 1);
+
+    for (int chunkNumber = 0; chunkNumber < chunks.getChunkCount(); chunkNumber++) {
+      final ZChunkHeaderChunkInfo chunk = chunks.getChunkInfo(chunkNumber);
+      chunkInfo.put(chunk.getChunkChecksum(), chunk);
+    }
+
+    return Collections.unmodifiableMap(chunkInfo);
+  }
+
+  /**
+   * All chunks in the order of their chunk number.
+   *
+   * <p>This is a view of {@link #getChunks()}, each chunk info is created when it is accessed.</p>
+   *
+   * @return an unmodifiable list of chunk infos, where the chunk info at position {@code n} is chunk {@code n}.
+   */
+  public List<ZChunkHeaderChunkInfo> getChunkInfoSortedByIndex() {
+    final ChunkIndex chunks = getChunks();
+
+    return new AbstractList<ZChunkHeaderChunkInfo>() {
+      @Override
+      public ZChunkHeaderChunkInfo get(final int chunkNumber) {
+        return chunks.getChunkInfo(chunkNumber);
+      }
 
-    return getChunkInfo().values()
-        .stream()
-        .sorted(ZChunkHeaderChunkInfo.INDEX_COMPARATOR)
-        .collect(Collectors.toCollection(IndexSortedList));
+      @Override
+      public int size() {
+        return chunks.getChunkCount();
+      }
+    };
   }
 
   @Override
@@ -108,7 +147,7 @@ public abstract class ZChunkHeaderIndex {
         .add("dictChecksum=" + ByteUtils.byteArrayToHexString(getDictChecksum()))
         .add("dictLength=" + getDictLength())
         .add("dictUncompressedLength=" + getUncompressedDictLength())
-        .add("chunkInfo=" + getChunkInfo())
+        .add("chunks=" + getChunks())
         .toString();
   }
 }
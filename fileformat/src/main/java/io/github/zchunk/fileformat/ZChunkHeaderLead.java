@@ -41,7 +41,7 @@ public abstract class ZChunkHeaderLead {
 
   @Value.Derived
   public HeaderChecksumType getChecksumType() {
-    return HeaderChecksumType.find(getChecksumTypeInt().getValue());
+    return HeaderChecksumType.find(getChecksumTypeInt().getUnsignedLongValue());
   }
 
   /**
@@ -70,9 +70,9 @@ public abstract class ZChunkHeaderLead {
   public String toString() {
     return new StringJoiner(", ", ZChunkHeaderLead.class.getSimpleName() + "[", "]")
         .add("id='" + ByteUtils.byteArrayToHexString(getId()) + "'")
-        .add("cksumtype=" + getChecksumTypeInt().getValue().toString())
+        .add("cksumtype=" + Long.toUnsignedString(getChecksumTypeInt().getUnsignedLongValue()))
         .add("cksumtype='" + getChecksumType() + "'")
-        .add("headerSize=" + getHeaderSize().getValue().toString())
+        .add("headerSize=" + Long.toUnsignedString(getHeaderSize().getUnsignedLongValue()))
         .add("cksum='" + ByteUtils.byteArrayToHexString(getChecksum()) + "'")
         .toString();
   }
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+import io.github.zchunk.compressedint.CompressedInt;
+import io.github.zchunk.fileformat.util.ByteUtils;
+import java.util.StringJoiner;
+import org.immutables.value.Value;
+
+/**
+ * A single signature of the signatures part.
+ *
+ * <pre>
+ * [+=====================+=====================+===========+
+ * [| Signature type (ci) | Signature size (ci) | Signature |] ...
+ * [+=====================+=====================+===========+
+ * </pre>
+ */
+@Value.Immutable
+public abstract class ZChunkHeaderSignature {
+
+  public abstract CompressedInt getSignatureType();
+
+  public abstract CompressedInt getSignatureSize();
+
+  public abstract byte[] getSignature();
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", ZChunkHeaderSignature.class.getSimpleName() + "[", "]")
+        .add("signatureType=" + getSignatureType())
+        .add("signatureSize=" + getSignatureSize())
+        .add("signature='" + ByteUtils.byteArrayToHexString(getSignature()) + "'")
+        .toString();
+  }
+}
@@ -17,11 +17,27 @@
 package io.github.zchunk.fileformat;
 
 import io.github.zchunk.compressedint.CompressedInt;
+import java.util.List;
 import org.immutables.value.Value;
 
+/**
+ * The signatures part, the last part of the header.
+ *
+ * <pre>
+ * +=======================+
+ * | Signature count (ci)  |
+ * +=======================+
+ *
+ * [+=====================+=====================+===========+
+ * [| Signature type (ci) | Signature size (ci) | Signature |] ...
+ * [+=====================+=====================+===========+
+ * </pre>
+ */
 @Value.Immutable
 public abstract class ZChunkHeaderSignatures {
 
   public abstract CompressedInt getSignatureCount();
 
+  public abstract List<ZChunkHeaderSignature> getSignatures();
+
 }
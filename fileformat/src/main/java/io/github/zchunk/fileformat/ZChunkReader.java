@@ -0,0 +1,499 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+import io.github.zchunk.compression.api.CompressionAlgorithm;
+import io.github.zchunk.compression.api.DecompressionDictionary;
+import io.github.zchunk.fileformat.err.InvalidFileException;
+import io.github.zchunk.fileformat.util.OffsetUtil;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.StringJoiner;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Random access to the uncompressed content of a zchunk file.
+ *
+ * <p>Reads locate the chunks overlapping the requested range with a binary search over the decompressed chunk
+ * offsets and only decompress those. The compressed chunks are read with positional reads, so a reader can be used
+ * by many threads at once. The most recently decompressed chunk is kept, so sequential small reads do not
+ * decompress a chunk more than once. Readers sharing a {@link DecompressedChunkCache} decompress hot chunks only
+ * once.</p>
+ *
+ * <p>Positions are relative to the start of the uncompressed content, i.e. the dict is not part of it.</p>
+ */
+public final class ZChunkReader implements Closeable {
+
+  /**
+   * Upper bound of the buffer used by {@link #transferTo(long, long, WritableByteChannel)} for compressed chunks.
+   */
+  private static final int TRANSFER_BUFFER_SIZE = 64 * 1024;
+
+  private final FileChannel channel;
+
+  private final ZChunkHeader header;
+
+  /**
+   * The dict, prepared once by the compression algorithm and shared by all chunk decompressions.
+   */
+  private final DecompressionDictionary dict;
+
+  private final long dataOffset;
+
+  private final @Nullable DecompressedChunkCache chunkCache;
+
+  private volatile @Nullable DecompressedChunk lastChunk;
+
+  private ZChunkReader(final FileChannel channel, final ZChunkHeader header, final DecompressionDictionary dict,
+      final @Nullable DecompressedChunkCache chunkCache) {
+    if (header.getPreface().getCompressionAlgorithm().isPassThrough()) {
+      // checked once, so reads and transfers of stored chunks treat an invalid layout the same way.
+      ZChunk.checkStoredLayout(header);
+    }
+
+    this.channel = channel;
+    this.header = header;
+    this.dict = dict;
+    this.dataOffset = OffsetUtil.getChunkOffset(header, 0L);
+    this.chunkCache = chunkCache;
+  }
+
+  /**
+   * Opens a zchunk file and reads its header and dict.
+   *
+   * @param file
+   *     the zchunk file.
+   * @return a reader, which must be closed after use.
+   * @throws InvalidFileException
+   *     if the file cannot be read.
+   * @throws IllegalArgumentException
+   *     if the file does not start with a valid header.
+   */
+  public static ZChunkReader open(final Path file) {
+    return open(file, null);
+  }
+
+  /**
+   * Opens a zchunk file and reads its header and dict, taking decompressed chunks from a shared cache.
+   *
+   * @param file
+   *     the zchunk file.
+   * @param chunkCache
+   *     the cache to take decompressed chunks from, or {@code null} to keep only the last chunk.
+   * @return a reader, which must be closed after use.
+   * @throws InvalidFileException
+   *     if the file cannot be read.
+   * @throws IllegalArgumentException
+   *     if the file does not start with a valid header.
+   */
+  public static ZChunkReader open(final Path file, final @Nullable DecompressedChunkCache chunkCache) {
+    try {
+      final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+
+      try {
+        return open(channel, ZChunkHeaderFactory.getZChunkFileHeader(channel), chunkCache);
+      } catch (final IOException | RuntimeException ex) {
+        channel.close();
+        throw ex;
+      }
+    } catch (final IOException ioEx) {
+      throw new InvalidFileException("Unable to open file.", file.toFile(), ioEx);
+    }
+  }
+
+  /**
+   * Creates a reader for a file of which the header is already known, e.g. from a {@link ZChunkHeaderCache}.
+   *
+   * @param channel
+   *     the open channel of the zchunk file. It is closed when the reader is closed.
+   * @param header
+   *     the header of the file.
+   * @return a reader, which must be closed after use.
+   * @throws IOException
+   *     if the dict cannot be read.
+   */
+  public static ZChunkReader open(final FileChannel channel, final ZChunkHeader header) throws IOException {
+    return open(channel, header, null);
+  }
+
+  /**
+   * Creates a reader for a file of which the header is already known, taking decompressed chunks from a shared cache.
+   *
+   * @param channel
+   *     the open channel of the zchunk file. It is closed when the reader is closed.
+   * @param header
+   *     the header of the file.
+   * @param chunkCache
+   *     the cache to take decompressed chunks from, or {@code null} to keep only the last chunk.
+   * @return a reader, which must be closed after use.
+   * @throws IOException
+   *     if the dict cannot be read.
+   * @throws InvalidFileException
+   *     if a cache is given and the dict does not match its checksum, or if stored chunks do not have their
+   *     uncompressed lengths.
+   */
+  public static ZChunkReader open(final FileChannel channel, final ZChunkHeader header,
+      final @Nullable DecompressedChunkCache chunkCache) throws IOException {
+    final ZChunkHeaderIndex index = header.getIndex();
+    final CompressionAlgorithm compressionAlgorithm = header.getPreface().getCompressionAlgorithm();
+    if (index.getDictLength().getLongValue() == 0L) {
+      return new ZChunkReader(channel, header, compressionAlgorithm.prepareDictionary(new byte[0]), chunkCache);
+    }
+
+    final byte[] compressedDict = readFully(channel, OffsetUtil.getDictOffset(header), index.getDictLength().getIntValue());
+    // cached chunks are keyed by the declared dict checksum, so the dict must really have it.
+    if (chunkCache != null
+        && !Arrays.equals(index.getDictChecksum(), index.getChunkChecksumType().digest(ByteBuffer.wrap(compressedDict)))) {
+      throw new InvalidFileException("Dict checksum does not match.");
+    }
+
+    final byte[] dict = compressionAlgorithm.decompress(
+        compressedDict,
+        compressionAlgorithm.prepareDictionary(new byte[0]),
+        index.getUncompressedDictLength().getIntValue());
+
+    return new ZChunkReader(channel, header, compressionAlgorithm.prepareDictionary(dict), chunkCache);
+  }
+
+  public ZChunkHeader getHeader() {
+    return this.header;
+  }
+
+  /**
+   * The length of the uncompressed content.
+   *
+   * @return the total uncompressed length of all chunks.
+   */
+  public long size() {
+    return this.header.getIndex().getChunks().getTotalUncompressedLength();
+  }
+
+  /**
+   * Reads uncompressed content starting at the given position into {@code dst}.
+   *
+   * <p>Reads until {@code dst} is full or the end of the content is reached. The buffer's position is advanced by
+   * the number of bytes read.</p>
+   *
+   * @param uncompressedPosition
+   *     the position in the uncompressed content to start reading at.
+   * @param dst
+   *     the buffer to read into.
+   * @return the number of bytes read, or {@code -1} if the position is at or after the end of the content.
+   * @throws IOException
+   *     if reading a chunk fails.
+   * @throws io.github.zchunk.compression.api.err.DecompressionException
+   *     if a chunk cannot be decompressed.
+   * @throws IllegalArgumentException
+   *     if the position is negative.
+   */
+  public int read(final long uncompressedPosition, final ByteBuffer dst) throws IOException {
+    if (uncompressedPosition < 0L) {
+      throw new IllegalArgumentException("Negative position: [" + uncompressedPosition + "].");
+    }
+
+    if (!this.channel.isOpen()) {
+      throw new ClosedChannelException();
+    }
+
+    if (this.header.getPreface().getCompressionAlgorithm().isPassThrough()) {
+      return readStored(uncompressedPosition, dst);
+    }
+
+    final ChunkIndex chunks = this.header.getIndex().getChunks();
+    int chunkNumber = chunks.findChunk(uncompressedPosition);
+    if (chunkNumber == -1) {
+      return -1;
+    }
+
+    long position = uncompressedPosition;
+    while (dst.hasRemaining() && chunkNumber < chunks.getChunkCount()) {
+      final int offsetInChunk = (int) (position - chunks.getDecompressedChunkOffset(chunkNumber));
+      position += copyChunk(chunkNumber, offsetInChunk, dst);
+      chunkNumber++;
+    }
+
+    return (int) (position - uncompressedPosition);
+  }
+
+  /**
+   * Transfers uncompressed content starting at the given position to {@code target}.
+   *
+   * <p>If the chunks are stored as they are, i.e. with compression type {@code none}, the bytes are moved with
+   * {@link FileChannel#transferTo(long, long, WritableByteChannel)} and may not pass user space at all. Otherwise the
+   * chunks are decompressed like in {@link #read(long, ByteBuffer)}.</p>
+   *
+   * @param uncompressedPosition
+   *     the position in the uncompressed content to start at.
+   * @param count
+   *     the maximum number of bytes to transfer.
+   * @param target
+   *     the channel to write to. Not closed.
+   * @return the number of bytes transferred, which is less than {@code count} only at the end of the content.
+   * @throws IOException
+   *     if reading a chunk or writing to the target fails, or the target does not accept any bytes.
+   * @throws IllegalArgumentException
+   *     if the position is negative.
+   */
+  public long transferTo(final long uncompressedPosition, final long count, final WritableByteChannel target) throws IOException {
+    if (uncompressedPosition < 0L) {
+      throw new IllegalArgumentException("Negative position: [" + uncompressedPosition + "].");
+    }
+
+    if (!this.channel.isOpen()) {
+      throw new ClosedChannelException();
+    }
+
+    if (this.header.getPreface().getCompressionAlgorithm().isPassThrough()) {
+      return ZChunk.transferStored(this.header, this.channel, uncompressedPosition, count, target);
+    }
+
+    final ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(TRANSFER_BUFFER_SIZE, Math.max(0L, count)));
+    long transferred = 0L;
+
+    while (transferred < count) {
+      ((Buffer) buffer).clear();
+      ((Buffer) buffer).limit((int) Math.min(buffer.capacity(), count - transferred));
+      if (read(uncompressedPosition + transferred, buffer) <= 0) {
+        break;
+      }
+
+      ((Buffer) buffer).flip();
+      while (buffer.hasRemaining()) {
+        final int written = target.write(buffer);
+        if (written == 0) {
+          // e.g. a non-blocking target which does not accept any bytes, retrying would spin.
+          throw new IOException("No bytes transferred at position [" + (uncompressedPosition + transferred) + "].");
+        }
+
+        transferred += written;
+      }
+    }
+
+    return transferred;
+  }
+
+  /**
+   * Creates a read-only channel over the uncompressed content, starting at position 0.
+   *
+   * <p>Each channel keeps its own position. Closing the channel does not close this reader.</p>
+   *
+   * @return a new channel view.
+   */
+  public SeekableByteChannel newChannel() {
+    return new ReaderChannel();
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.lastChunk = null;
+    this.channel.close();
+  }
+
+  /**
+   * Reads stored chunks straight from the file, as they need no decompression.
+   */
+  private int readStored(final long uncompressedPosition, final ByteBuffer dst) throws IOException {
+    final long available = size() - uncompressedPosition;
+    if (available <= 0L) {
+      return -1;
+    }
+
+    final ByteBuffer window = dst.duplicate();
+    ((Buffer) window).limit(window.position() + (int) Math.min(window.remaining(), available));
+    final long fileOffset = this.dataOffset + uncompressedPosition - window.position();
+
+    while (window.hasRemaining()) {
+      if (this.channel.read(window, fileOffset + window.position()) == -1) {
+        throw new EOFException("Unexpected end of file at offset [" + (fileOffset + window.position()) + "].");
+      }
+    }
+
+    final int read = window.position() - dst.position();
+    ((Buffer) dst).position(window.position());
+
+    return read;
+  }
+
+  /**
+   * Copies as much of a decompressed chunk as fits into {@code dst}.
+   *
+   * @return the number of bytes copied.
+   */
+  private int copyChunk(final int chunkNumber, final int offsetInChunk, final ByteBuffer dst) throws IOException {
+    final DecompressedChunkCache cache = this.chunkCache;
+    if (cache != null) {
+      // the cache serves the chunk to every file with the same checksum, so it must really have that checksum.
+      final DecompressedChunkCache.ChunkLoader loader = () -> decompressChunk(chunkNumber, true);
+      try (final DecompressedChunkCache.PinnedChunk chunk = cache.acquire(this.header, chunkNumber, loader)) {
+        return copy(chunk.getBytes(), offsetInChunk, dst);
+      }
+    }
+
+    final DecompressedChunk cached = this.lastChunk;
+    if (cached != null && cached.chunkNumber == chunkNumber) {
+      return copy(cached.bytes, offsetInChunk, dst);
+    }
+
+    final byte[] decompressed = decompressChunk(chunkNumber, false);
+    this.lastChunk = new DecompressedChunk(chunkNumber, decompressed);
+
+    return copy(decompressed, offsetInChunk, dst);
+  }
+
+  private static int copy(final byte[] chunk, final int offsetInChunk, final ByteBuffer dst) {
+    final int count = Math.min(dst.remaining(), chunk.length - offsetInChunk);
+    dst.put(chunk, offsetInChunk, count);
+
+    return count;
+  }
+
+  private byte[] decompressChunk(final int chunkNumber, final boolean verify) throws IOException {
+    final ChunkIndex chunks = this.header.getIndex().getChunks();
+    final byte[] compressed = readFully(
+        this.channel,
+        this.dataOffset + chunks.getChunkOffset(chunkNumber),
+        Math.toIntExact(chunks.getChunkLength(chunkNumber)));
+
+    if (verify) {
+      final byte[] checksum = this.header.getIndex().getChunkChecksumType().digest(ByteBuffer.wrap(compressed));
+      if (checksum.length != chunks.getChecksumLength() || !chunks.chunkChecksumEquals(chunkNumber, checksum, 0)) {
+        throw new InvalidFileException("Checksum of chunk [" + chunkNumber + "] does not match.");
+      }
+    }
+    final int uncompressedLength = Math.toIntExact(chunks.getUncompressedChunkLength(chunkNumber));
+
+    return this.header.getPreface().getCompressionAlgorithm().decompress(compressed, this.dict, uncompressedLength);
+  }
+
+  private static byte[] readFully(final FileChannel channel, final long fileOffset, final int length) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(length);
+
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, fileOffset + buffer.position()) == -1) {
+        throw new EOFException("Unexpected end of file reading [" + length + "] bytes at offset [" + fileOffset + "].");
+      }
+    }
+
+    return buffer.array();
+  }
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", ZChunkReader.class.getSimpleName() + "[", "]")
+        .add("size=" + size())
+        .add("dictLength=" + this.dict.getBytes().length)
+        .add("open=" + this.channel.isOpen())
+        .toString();
+  }
+
+  private static final class DecompressedChunk {
+
+    private final int chunkNumber;
+
+    private final byte[] bytes;
+
+    DecompressedChunk(final int chunkNumber, final byte[] bytes) {
+      this.chunkNumber = chunkNumber;
+      this.bytes = bytes;
+    }
+  }
+
+  /**
+   * A read-only channel with its own position.
+   */
+  private final class ReaderChannel implements SeekableByteChannel {
+
+    private long position;
+
+    private boolean open = true;
+
+    @Override
+    public int read(final ByteBuffer dst) throws IOException {
+      ensureOpen();
+
+      final int read = ZChunkReader.this.read(this.position, dst);
+      if (read > 0) {
+        this.position += read;
+      }
+
+      return read;
+    }
+
+    @Override
+    public int write(final ByteBuffer src) {
+      throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws IOException {
+      ensureOpen();
+
+      return this.position;
+    }
+
+    @Override
+    public SeekableByteChannel position(final long newPosition) throws IOException {
+      ensureOpen();
+      if (newPosition < 0L) {
+        throw new IllegalArgumentException("Negative position: [" + newPosition + "].");
+      }
+
+      this.position = newPosition;
+
+      return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+      ensureOpen();
+
+      return ZChunkReader.this.size();
+    }
+
+    @Override
+    public SeekableByteChannel truncate(final long size) {
+      throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+      return this.open && ZChunkReader.this.channel.isOpen();
+    }
+
+    @Override
+    public void close() {
+      this.open = false;
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+      if (!isOpen()) {
+        throw new ClosedChannelException();
+      }
+    }
+  }
+}
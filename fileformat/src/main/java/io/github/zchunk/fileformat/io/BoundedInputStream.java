@@ -39,4 +39,27 @@ public class BoundedInputStream extends InputStream {
     this.readCount++;
     return this.in.read();
   }
+
+  @Override
+  public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+
+    if (this.readCount >= this.limit) {
+      return -1;
+    }
+
+    final int read = this.in.read(buffer, offset, (int) Math.min(length, this.limit - this.readCount));
+    if (read > 0) {
+      this.readCount += read;
+    }
+
+    return read;
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.in.close();
+  }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat.parser;
+
+import static io.github.zchunk.fileformat.ZChunkConstants.Header.FILE_MAGIC;
+
+import io.github.zchunk.compressedint.CompressedIntChannelReader;
+import io.github.zchunk.fileformat.ChunkInfoVisitor;
+import io.github.zchunk.fileformat.HeaderChecksumType;
+import io.github.zchunk.fileformat.IndexChecksumType;
+import io.github.zchunk.fileformat.PrefaceFlag;
+import io.github.zchunk.fileformat.err.InvalidFileException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Set;
+
+/**
+ * Streams the chunk records of a header straight off a channel into a {@link ChunkInfoVisitor}.
+ *
+ * <p>Unlike {@link ZChunkHeaderParser}, neither the header bytes nor a header model are held in memory. Lead,
+ * preface and the fixed index fields are skipped, only the chunk records are passed on. Use this to scan the index
+ * of very large files.</p>
+ *
+ * <p>All reads are bounded by the header and index sizes of the lead and the index, so a corrupt header is rejected
+ * instead of being read into the data section.</p>
+ */
+public final class ChunkInfoStreamReader {
+
+  private ChunkInfoStreamReader() {
+    // util class
+  }
+
+  /**
+   * Reads a header from the channel's position and passes each chunk record to the visitor.
+   *
+   * <p>The channel is read in bulk and will usually be positioned behind the end of the index afterwards. Does not
+   * close the channel.</p>
+   *
+   * @param channel
+   *     the channel positioned at the start of a zchunk file.
+   * @param visitor
+   *     the visitor to call for each chunk.
+   * @return the number of chunks visited.
+   * @throws IOException
+   *     if reading from the channel fails.
+   * @throws InvalidFileException
+   *     if the channel does not start with the zchunk file magic, or the file has data streams.
+   * @throws IllegalArgumentException
+   *     if the header is invalid, a field exceeds the header or index size, or the channel ends within the header.
+   * @throws UnsupportedOperationException
+   *     if the header uses a checksum type which is not supported.
+   */
+  public static int visitChunks(final ReadableByteChannel channel, final ChunkInfoVisitor visitor) throws IOException {
+    final CompressedIntChannelReader reader = new CompressedIntChannelReader(channel);
+
+    try {
+      return visitChunks(reader, visitor);
+    } catch (final EOFException eofEx) {
+      throw new IllegalArgumentException("Unexpected end of channel after [" + reader.getBytesRead() + "] bytes.", eofEx);
+    }
+  }
+
+  private static int visitChunks(final CompressedIntChannelReader reader, final ChunkInfoVisitor visitor) throws IOException {
+
+    // lead
+    final byte[] magic = new byte[FILE_MAGIC.length];
+    reader.readFully(magic);
+    ZChunkHeaderParser.checkMagic(magic);
+    final HeaderChecksumType headerChecksumType = HeaderChecksumType.find(reader.readUnsignedLong());
+    if (headerChecksumType == HeaderChecksumType.UNKNOWN) {
+      throw new UnsupportedOperationException("Unknown getMessageDigest type: [" + headerChecksumType + "].");
+    }
+    final long headerSize = reader.readUnsignedLong();
+    final byte[] headerChecksum = new byte[headerChecksumType.getDigestLength()];
+    reader.readFully(headerChecksum);
+    // the header size does not include the lead.
+    final long headerEnd = end(reader.getBytesRead(), headerSize, "Header");
+
+    // preface
+    reader.readFully(headerChecksum);
+    final Set<PrefaceFlag> flags = PrefaceFlag.getPrefaceFlags(reader.readUnsignedLong());
+    ZChunkHeaderParser.checkNoDataStreams(flags);
+    reader.readUnsignedLong();
+    if (flags.contains(PrefaceFlag.HAS_OPTIONAL_ELEMENTS)) {
+      final long optionalElementCount = reader.readUnsignedLong();
+      for (long element = 0L; Long.compareUnsigned(element, optionalElementCount) < 0; element++) {
+        reader.readUnsignedLong();
+        final long dataSize = reader.readUnsignedLong();
+        checkWithin(end(reader.getBytesRead(), dataSize, "Optional element"), headerEnd, "header");
+        reader.skipFully(dataSize);
+      }
+    }
+
+    // index
+    final long indexSize = reader.readUnsignedLong();
+    // the index size does not include its own compressed int.
+    final long indexEnd = end(reader.getBytesRead(), indexSize, "Index");
+    checkWithin(indexEnd, headerEnd, "header");
+    final IndexChecksumType chunkChecksumType = IndexChecksumType.find(reader.readUnsignedLong());
+    if (chunkChecksumType == IndexChecksumType.UNKNOWN) {
+      throw new UnsupportedOperationException("Unknown index checksum type: [" + chunkChecksumType + "].");
+    }
+    final long chunkCount = reader.readUnsignedLong();
+    // each record has at least the checksum and two single byte compressed ints.
+    final long maxRecordCount = Long.divideUnsigned(indexSize, chunkChecksumType.actualChecksumLength() + 2L);
+    if (chunkCount < 0L || chunkCount - 1L > Math.min(maxRecordCount, Integer.MAX_VALUE)) {
+      throw new IllegalArgumentException("Chunk count [" + Long.toUnsignedString(chunkCount) + "] exceeds index of ["
+          + Long.toUnsignedString(indexSize) + "] bytes.");
+    }
+    final byte[] checksum = new byte[chunkChecksumType.actualChecksumLength()];
+    reader.readFully(checksum);
+    reader.readUnsignedLong();
+    reader.readUnsignedLong();
+    checkWithin(reader.getBytesRead(), indexEnd, "index");
+
+    // first chunk is the dict chunk.
+    final int recordCount = (int) Math.max(0L, chunkCount - 1L);
+
+    for (int chunkNumber = 0; chunkNumber < recordCount; chunkNumber++) {
+      reader.readFully(checksum);
+      final long chunkLength = reader.readUnsignedLong();
+      final long uncompressedChunkLength = reader.readUnsignedLong();
+      // the records must not run into the signatures or the data, even if the channel continues.
+      checkWithin(reader.getBytesRead(), indexEnd, "index");
+
+      visitor.visitChunk(chunkNumber, checksum, chunkLength, uncompressedChunkLength);
+    }
+
+    return recordCount;
+  }
+
+  /**
+   * Returns the offset after a part of {@code size} bytes starting at {@code start}.
+   */
+  private static long end(final long start, final long size, final String part) {
+    if (size < 0L || start + size < start) {
+      throw new IllegalArgumentException(part + " size [" + Long.toUnsignedString(size) + "] at offset [" + start
+          + "] is out of range.");
+    }
+
+    return start + size;
+  }
+
+  private static void checkWithin(final long end, final long limit, final String part) {
+    if (end > limit) {
+      throw new IllegalArgumentException("Reading up to offset [" + end + "] exceeds the " + part + ", which ends at offset ["
+          + limit + "].");
+    }
+  }
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat.parser;
+
+import static io.github.zchunk.fileformat.ZChunkConstants.Header.FILE_MAGIC;
+
+import io.github.zchunk.compressedint.CompressedInt;
+import io.github.zchunk.compressedint.CompressedIntFactory;
+import io.github.zchunk.compression.algo.unknown.UnknownAlgorithm;
+import io.github.zchunk.compression.api.CompressionAlgorithm;
+import io.github.zchunk.compression.api.CompressionAlgorithmFactory;
+import io.github.zchunk.fileformat.ChunkIndex;
+import io.github.zchunk.fileformat.HeaderChecksumType;
+import io.github.zchunk.fileformat.ImmutableOptionalElement;
+import io.github.zchunk.fileformat.ImmutableZChunkHeader;
+import io.github.zchunk.fileformat.ImmutableZChunkHeaderIndex;
+import io.github.zchunk.fileformat.ImmutableZChunkHeaderLead;
+import io.github.zchunk.fileformat.ImmutableZChunkHeaderPreface;
+import io.github.zchunk.fileformat.ImmutableZChunkHeaderSignature;
+import io.github.zchunk.fileformat.ImmutableZChunkHeaderSignatures;
+import io.github.zchunk.fileformat.IndexChecksumType;
+import io.github.zchunk.fileformat.OptionalElement;
+import io.github.zchunk.fileformat.PrefaceFlag;
+import io.github.zchunk.fileformat.ZChunkHeader;
+import io.github.zchunk.fileformat.ZChunkHeaderIndex;
+import io.github.zchunk.fileformat.ZChunkHeaderLead;
+import io.github.zchunk.fileformat.ZChunkHeaderPreface;
+import io.github.zchunk.fileformat.ZChunkHeaderSignature;
+import io.github.zchunk.fileformat.ZChunkHeaderSignatures;
+import io.github.zchunk.fileformat.err.InvalidFileException;
+import io.github.zchunk.fileformat.util.ByteUtils;
+import io.github.zchunk.fileformat.util.OffsetUtil;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A forward-only parser which walks lead, preface, index and signatures in a single pass.
+ *
+ * <p>Each field is read exactly once at the current cursor position. Compressed ints are flyweight views into the
+ * header bytes, other fields are copied out of them. A header from {@link #parse()} additionally keeps a read-only
+ * view of the raw header bytes, so its checksum can be verified without serializing the model again.</p>
+ *
+ * <p>The chunk records are skipped using the index size and only decoded on first access to the chunks, so
+ * invalid records are reported late. The compressed ints, the chunk index and the raw header refer to the header
+ * bytes, which therefore must not be modified afterwards. {@link #parse()} first copies the header out of a larger input, so the header
+ * never keeps e.g. a speculative read alive.</p>
+ *
+ * <p>The parts must be read in order. Use {@link #parse()} to read the complete header at once.</p>
+ */
+public final class ZChunkHeaderParser {
+
+  private byte[] header;
+
+  /**
+   * Absolute offset of the first byte of the header in {@link #header}.
+   */
+  private int start;
+
+  /**
+   * Absolute offset of the first byte after the available input.
+   */
+  private int end;
+
+  private int position;
+
+  private Part nextPart = Part.LEAD;
+
+  private ZChunkHeaderParser(final byte[] header, final int start, final int end) {
+    this.header = header;
+    this.start = start;
+    this.end = end;
+    this.position = start;
+  }
+
+  /**
+   * Creates a parser for a header starting at index 0 of {@code header}.
+   *
+   * @param header
+   *     the header bytes. Trailing bytes after the header are ignored.
+   * @return a parser positioned at the lead.
+   */
+  public static ZChunkHeaderParser fromBytes(final byte[] header) {
+    return new ZChunkHeaderParser(header, 0, header.length);
+  }
+
+  /**
+   * Creates a parser for a header starting at the buffer's position.
+   *
+   * <p>Heap buffers are parsed in place. The remaining bytes of direct and mapped buffers are copied once.
+   * The buffer's position is not changed.</p>
+   *
+   * @param buffer
+   *     the buffer holding the header.
+   * @return a parser positioned at the lead.
+   */
+  public static ZChunkHeaderParser fromBuffer(final ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      final int offset = buffer.arrayOffset() + buffer.position();
+
+      return new ZChunkHeaderParser(buffer.array(), offset, offset + buffer.remaining());
+    }
+
+    final byte[] copy = new byte[buffer.remaining()];
+    buffer.duplicate().get(copy);
+
+    return fromBytes(copy);
+  }
+
+  /**
+   * Parses the complete header.
+   *
+   * @return the header.
+   * @throws InvalidFileException
+   *     if the input does not start with the zchunk file magic, or the file has data streams.
+   * @throws IllegalArgumentException
+   *     if the input is not a complete zchunk header.
+   * @throws UnsupportedOperationException
+   *     if the header uses a checksum type or feature which is not supported.
+   */
+  public ZChunkHeader parse() {
+    ZChunkHeaderLead lead = readLead();
+    final int totalHeaderSize = OffsetUtil.getTotalHeaderSize(lead);
+    // the input may be a larger speculative read, which must neither be retained by the compressed ints, the lazy
+    // chunk index nor the raw header. A too short input is rejected by readPreface.
+    final boolean exactInput = this.start == 0 && this.header.length == totalHeaderSize;
+    if (!exactInput && this.end - this.start >= totalHeaderSize) {
+      this.header = Arrays.copyOfRange(this.header, this.start, this.start + totalHeaderSize);
+      this.position = 0;
+      this.start = 0;
+      this.end = totalHeaderSize;
+      // the lead's compressed ints still point into the larger input.
+      this.nextPart = Part.LEAD;
+      lead = readLead();
+    }
+
+    final ZChunkHeaderPreface preface = readPreface(lead);
+    final ZChunkHeaderIndex index = readIndex(preface);
+    final ZChunkHeaderSignatures signatures = readSignatures();
+    final ByteBuffer rawHeader = ByteBuffer.wrap(this.header, this.start, totalHeaderSize).slice();
+
+    return ImmutableZChunkHeader.builder()
+        .lead(lead)
+        .preface(preface)
+        .index(index)
+        .signatures(signatures)
+        .rawHeader(rawHeader.asReadOnlyBuffer())
+        .build();
+  }
+
+  /**
+   * Returns the number of bytes read so far.
+   *
+   * @return the cursor position relative to the start of the header.
+   */
+  public int getBytesRead() {
+    return this.position - this.start;
+  }
+
+  public ZChunkHeaderLead readLead() {
+    advance(Part.LEAD);
+
+    final byte[] id = readBytes(FILE_MAGIC.length);
+    checkMagic(id);
+    final CompressedInt checksumTypeInt = readCompressedInt();
+    final CompressedInt headerSize = readCompressedInt();
+    final HeaderChecksumType checksumType = HeaderChecksumType.find(checksumTypeInt.getUnsignedLongValue());
+    final byte[] checksum = readBytes(checksumType.getDigestLength());
+
+    return ImmutableZChunkHeaderLead.builder()
+        .id(id)
+        .checksumTypeInt(checksumTypeInt)
+        .headerSize(headerSize)
+        .checksum(checksum)
+        .build();
+  }
+
+  public ZChunkHeaderPreface readPreface(final ZChunkHeaderLead lead) {
+    advance(Part.PREFACE);
+
+    if (lead.getChecksumType() == HeaderChecksumType.UNKNOWN) {
+      throw new UnsupportedOperationException("Unknown getMessageDigest type: [" + lead.getChecksumType() + "].");
+    }
+
+    final long totalHeaderSize = OffsetUtil.getTotalHeaderSize(lead);
+    if (this.end - this.start < totalHeaderSize) {
+      throw new IllegalArgumentException(
+          "Cannot read header of [" + totalHeaderSize + "] bytes, only [" + (this.end - this.start) + "] bytes available.");
+    }
+
+    final byte[] totalDataChecksum = readBytes(lead.getChecksumType().getDigestLength());
+    final CompressedInt prefaceFlagsInt = readCompressedInt();
+    final Set<PrefaceFlag> flags = PrefaceFlag.getPrefaceFlags(prefaceFlagsInt.getUnsignedLongValue());
+    checkNoDataStreams(flags);
+
+    final CompressedInt compressionTypeInt = readCompressedInt();
+    final CompressionAlgorithm compressionAlgorithm = CompressionAlgorithmFactory.forType(compressionTypeInt);
+    if (compressionAlgorithm.getClass().equals(UnknownAlgorithm.class)) {
+      throw new IllegalArgumentException("Unknown compression type for type " + compressionTypeInt);
+    }
+
+    CompressedInt optionalElementCount = CompressedIntFactory.valueOf(0L);
+    final List<OptionalElement> optionalElements = new ArrayList<>();
+    if (flags.contains(PrefaceFlag.HAS_OPTIONAL_ELEMENTS)) {
+      optionalElementCount = readCompressedInt();
+      for (long element = 0L; element < optionalElementCount.getLongValue(); element++) {
+        final CompressedInt id = readCompressedInt();
+        final CompressedInt dataSize = readCompressedInt();
+
+        optionalElements.add(ImmutableOptionalElement.builder()
+            .id(id)
+            .dataSize(dataSize)
+            .data(readBytes(dataSize.getIntValue()))
+            .build());
+      }
+    }
+
+    return ImmutableZChunkHeaderPreface.builder()
+        .totalDataChecksum(totalDataChecksum)
+        .prefaceFlagsInt(prefaceFlagsInt)
+        .compressionAlgorithm(compressionAlgorithm)
+        .optionalElementCount(optionalElementCount)
+        .addAllPrefaceFlags(flags)
+        .addAllOptionalElements(optionalElements)
+        .build();
+  }
+
+  public ZChunkHeaderIndex readIndex(final ZChunkHeaderPreface preface) {
+    advance(Part.INDEX);
+
+    checkNoDataStreams(preface.getPrefaceFlags());
+
+    final int indexStart = this.position;
+    final CompressedInt indexSize = readCompressedInt();
+    // the index size does not include its own compressed int.
+    final long indexEnd = this.position + indexSize.getLongValue();
+    if (indexSize.getLongValue() < 0L || indexEnd > this.end) {
+      throw new IllegalArgumentException("Index of [" + indexSize + "] bytes at offset [" + (indexStart - this.start)
+          + "] exceeds input.");
+    }
+
+    final CompressedInt chunkChecksumTypeInt = readCompressedInt();
+    final CompressedInt chunkCount = readCompressedInt();
+    final IndexChecksumType chunkChecksumType = IndexChecksumType.find(chunkChecksumTypeInt.getUnsignedLongValue());
+    if (chunkChecksumType == IndexChecksumType.UNKNOWN) {
+      throw new IllegalArgumentException("Cannot find index type.");
+    }
+    final int checksumLength = chunkChecksumType.actualChecksumLength();
+
+    final byte[] dictChecksum = readBytes(checksumLength);
+    final CompressedInt dictLength = readCompressedInt();
+    final CompressedInt uncompressedDictLength = readCompressedInt();
+
+    return ImmutableZChunkHeaderIndex.builder()
+        .indexSize(indexSize)
+        .chunkChecksumTypeInt(chunkChecksumTypeInt)
+        .chunkCount(chunkCount)
+        .dictChecksum(dictChecksum)
+        .dictLength(dictLength)
+        .uncompressedDictLength(uncompressedDictLength)
+        .chunks(skipChunks(chunkCount, checksumLength, (int) indexEnd))
+        .build();
+  }
+
+  public ZChunkHeaderSignatures readSignatures() {
+    advance(Part.SIGNATURES);
+
+    final CompressedInt signatureCount = readCompressedInt();
+    final List<ZChunkHeaderSignature> signatures = new ArrayList<>();
+
+    for (long signature = 0L; signature < signatureCount.getLongValue(); signature++) {
+      final CompressedInt signatureType = readCompressedInt();
+      final CompressedInt signatureSize = readCompressedInt();
+
+      signatures.add(ImmutableZChunkHeaderSignature.builder()
+          .signatureType(signatureType)
+          .signatureSize(signatureSize)
+          .signature(readBytes(signatureSize.getIntValue()))
+          .build());
+    }
+
+    return ImmutableZChunkHeaderSignatures.builder()
+        .signatureCount(signatureCount)
+        .addAllSignatures(signatures)
+        .build();
+  }
+
+  /**
+   * Creates a lazy index over the chunk records, which are only decoded on first access, and moves the cursor to the
+   * end of the index.
+   */
+  private ChunkIndex skipChunks(final CompressedInt chunkCount, final int checksumLength, final int indexEnd) {
+    final long declaredCount = chunkCount.getUnsignedLongValue();
+    // each record has at least the checksum and two single byte compressed ints.
+    final long maxRecordCount = (indexEnd - this.position) / (checksumLength + 2L);
+    // first chunk is the dict chunk.
+    if (declaredCount < 0L || declaredCount - 1L > maxRecordCount) {
+      throw new IllegalArgumentException("Chunk count [" + Long.toUnsignedString(declaredCount) + "] exceeds index of ["
+          + (indexEnd - this.position) + "] bytes.");
+    }
+
+    final int recordCount = (int) Math.max(0L, declaredCount - 1L);
+    final ChunkIndex chunks = ChunkIndex.lazy(this.header, this.position, indexEnd, recordCount, checksumLength);
+    this.position = indexEnd;
+
+    return chunks;
+  }
+
+  private void advance(final Part part) {
+    if (this.nextPart != part) {
+      throw new IllegalStateException("Cannot read " + part + ", next part is " + this.nextPart + ".");
+    }
+
+    this.nextPart = Part.values()[part.ordinal() + 1];
+  }
+
+  private byte[] readBytes(final int length) {
+    if (length > this.end - this.position) {
+      throw new IllegalArgumentException(
+          "Cannot read [" + length + "] bytes at offset [" + getBytesRead() + "], input too short.");
+    }
+
+    final byte[] bytes = Arrays.copyOfRange(this.header, this.position, this.position + length);
+    this.position += length;
+
+    return bytes;
+  }
+
+  private CompressedInt readCompressedInt() {
+    final CompressedInt compressedInt = CompressedIntFactory.wrap(this.header, this.position);
+    if (compressedInt.getCompressedLength() > this.end - this.position) {
+      throw new IllegalArgumentException("Cannot read compressed int at offset [" + getBytesRead() + "], input too short.");
+    }
+
+    this.position += compressedInt.getCompressedLength();
+
+    return compressedInt;
+  }
+
+  private enum Part {
+    LEAD,
+    PREFACE,
+    INDEX,
+    SIGNATURES,
+    DONE
+  }
+
+  /**
+   * Rejects input which does not start with the zchunk file magic.
+   *
+   * @param magic
+   *     the first {@code FILE_MAGIC.length} bytes of the input.
+   * @throws InvalidFileException
+   *     if the bytes differ from the file magic.
+   */
+  static void checkMagic(final byte[] magic) {
+    if (!Arrays.equals(FILE_MAGIC, magic)) {
+      throw new InvalidFileException("file magic differs: [" + ByteUtils.byteArrayToHexString(magic) + "].");
+    }
+  }
+
+  /**
+   * Rejects files with data streams, whose chunks carry a stream id which is not read by this library.
+   *
+   * @param flags
+   *     the preface flags.
+   * @throws InvalidFileException
+   *     if the flag {@link PrefaceFlag#HAS_DATA_STREAMS} is set.
+   */
+  static void checkNoDataStreams(final Set<PrefaceFlag> flags) {
+    if (flags.contains(PrefaceFlag.HAS_DATA_STREAMS)) {
+      throw new InvalidFileException("Files with data streams are not supported, preface flag [" + PrefaceFlag.HAS_DATA_STREAMS + "] is set.");
+    }
+  }
+}
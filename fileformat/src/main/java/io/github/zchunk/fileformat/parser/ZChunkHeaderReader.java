@@ -0,0 +1,241 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat.parser;
+
+import static io.github.zchunk.fileformat.ZChunkConstants.Header.FILE_MAGIC;
+
+import io.github.zchunk.compressedint.CompressedIntUtil;
+import io.github.zchunk.fileformat.HeaderChecksumType;
+import io.github.zchunk.fileformat.ZChunkHeader;
+import io.github.zchunk.fileformat.err.InvalidFileException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Collects a header from bytes as they arrive, e.g. from a socket, a pipe or an HTTP response body.
+ *
+ * <p>The reader always knows the minimum number of bytes it still needs: until the checksum type and header size of
+ * the lead are complete, that is the next compressed int byte. From then on, the exact number of bytes up to the end
+ * of the header is known. It never consumes bytes after the header, so the source is positioned at the dict
+ * afterwards.</p>
+ *
+ * <p>The file magic is checked as soon as it has arrived. The buffer only grows by doubling, capped at the header
+ * size, so a lead declaring a huge header size cannot allocate much more memory than was actually received.</p>
+ *
+ * <p>Bytes can either be pushed via {@link #update(ByteBuffer)} or pulled with {@link #read(ReadableByteChannel)}.
+ * Instances are not thread safe.</p>
+ */
+public final class ZChunkHeaderReader {
+
+  private static final int CHECKSUM_TYPE_OFFSET = FILE_MAGIC.length;
+
+  private byte[] header = new byte[CHECKSUM_TYPE_OFFSET + 2];
+
+  private int received;
+
+  /**
+   * The number of bytes known to be needed so far. Exact once the header size is known.
+   */
+  private int needed = FILE_MAGIC.length;
+
+  /**
+   * The total header size, or {@code -1} while the lead is incomplete.
+   */
+  private int totalHeaderSize = -1;
+
+  /**
+   * Reads exactly one header from the channel. Short reads are retried until the header is complete.
+   *
+   * <p>Does not close the channel. No bytes after the header are read.</p>
+   *
+   * @param channel
+   *     the channel to read from.
+   * @return the parsed header.
+   * @throws EOFException
+   *     if the channel ends within the header.
+   * @throws IOException
+   *     if reading from the channel fails.
+   * @throws IllegalArgumentException
+   *     if the header is invalid.
+   * @throws InvalidFileException
+   *     if the channel does not start with the file magic.
+   */
+  public static ZChunkHeader read(final ReadableByteChannel channel) throws IOException {
+    final ZChunkHeaderReader reader = new ZChunkHeaderReader();
+
+    while (!reader.isComplete()) {
+      // read straight into the header array, but never beyond the bytes needed.
+      reader.ensureCapacity(reader.received + 1);
+      final int count = Math.min(reader.getBytesNeeded(), reader.header.length - reader.received);
+      final ByteBuffer target = ByteBuffer.wrap(reader.header, reader.received, count);
+      final int read = channel.read(target);
+      if (read == -1) {
+        throw new EOFException("Unexpected end of channel after [" + reader.received + "] header bytes.");
+      }
+
+      reader.received += read;
+      reader.updateBytesNeeded();
+    }
+
+    return reader.getHeader();
+  }
+
+  /**
+   * Consumes as many bytes from {@code src} as are needed to complete the header. Remaining bytes are left in the
+   * buffer.
+   *
+   * @param src
+   *     the buffer to consume from.
+   * @return {@code true} if the header is complete.
+   * @throws IllegalArgumentException
+   *     if the lead is invalid.
+   * @throws InvalidFileException
+   *     if the bytes do not start with the file magic.
+   */
+  public boolean update(final ByteBuffer src) {
+    while (!isComplete() && src.hasRemaining()) {
+      final int count = Math.min(getBytesNeeded(), src.remaining());
+      ensureCapacity(this.received + count);
+      src.get(this.header, this.received, count);
+      this.received += count;
+      updateBytesNeeded();
+    }
+
+    return isComplete();
+  }
+
+  /**
+   * The minimum number of bytes still needed. Exact once the header size is known.
+   *
+   * @return the number of bytes needed, or {@code 0} if the header is complete.
+   */
+  public int getBytesNeeded() {
+    return this.needed - this.received;
+  }
+
+  /**
+   * The total size of the header, which is known as soon as the lead's header size was received.
+   *
+   * @return the total header size, or {@code -1} if not yet known.
+   */
+  public int getTotalHeaderSize() {
+    return this.totalHeaderSize;
+  }
+
+  public boolean isComplete() {
+    return this.totalHeaderSize != -1 && this.received == this.totalHeaderSize;
+  }
+
+  /**
+   * Parses the complete header.
+   *
+   * @return the header.
+   * @throws IllegalStateException
+   *     if the header is not complete yet.
+   * @throws IllegalArgumentException
+   *     if the header is invalid.
+   */
+  public ZChunkHeader getHeader() {
+    if (!isComplete()) {
+      throw new IllegalStateException("Header incomplete, [" + getBytesNeeded() + "] more bytes needed.");
+    }
+
+    return ZChunkHeaderParser.fromBytes(this.header).parse();
+  }
+
+  /**
+   * Updates the number of bytes known to be needed from the bytes received so far.
+   */
+  private void updateBytesNeeded() {
+    if (this.totalHeaderSize != -1 || this.received < this.needed) {
+      return;
+    }
+
+    if (this.received == FILE_MAGIC.length) {
+      ZChunkHeaderParser.checkMagic(Arrays.copyOf(this.header, FILE_MAGIC.length));
+
+      this.needed = CHECKSUM_TYPE_OFFSET + 2;
+      return;
+    }
+
+    final int checksumTypeLength = terminatedLength(CHECKSUM_TYPE_OFFSET);
+    if (checksumTypeLength == -1) {
+      this.needed = this.received + 1;
+      return;
+    }
+
+    final int headerSizeOffset = CHECKSUM_TYPE_OFFSET + checksumTypeLength;
+    final int headerSizeLength = headerSizeOffset < this.received ? terminatedLength(headerSizeOffset) : -1;
+    if (headerSizeLength == -1) {
+      this.needed = this.received + 1;
+      return;
+    }
+
+    final HeaderChecksumType checksumType = HeaderChecksumType.find(
+        CompressedIntUtil.decodeUnsignedLong(this.header, CHECKSUM_TYPE_OFFSET, checksumTypeLength));
+    if (checksumType == HeaderChecksumType.UNKNOWN) {
+      throw new UnsupportedOperationException("Unknown getMessageDigest type: [" + checksumType + "].");
+    }
+
+    final long headerSize = CompressedIntUtil.decodeUnsignedLong(this.header, headerSizeOffset, headerSizeLength);
+    final long leadLength = (long) headerSizeOffset + headerSizeLength + checksumType.getDigestLength();
+    if (headerSize < 0L || leadLength + headerSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Header size [" + Long.toUnsignedString(headerSize) + "] too large.");
+    }
+
+    this.totalHeaderSize = (int) (leadLength + headerSize);
+    this.needed = this.totalHeaderSize;
+  }
+
+  /**
+   * The length of the compressed int at {@code offset} within the received bytes.
+   *
+   * @return the length, or {@code -1} if more bytes are needed.
+   */
+  private int terminatedLength(final int offset) {
+    for (int index = offset; index < this.received; index++) {
+      if (index - offset >= CompressedIntUtil.MAX_COMPRESSED_INT_LENGTH) {
+        break;
+      }
+
+      if ((this.header[index] & CompressedIntUtil.COMPRESSED_INT_LAST_BYTE_FLAG) != 0) {
+        return index - offset + 1;
+      }
+    }
+
+    if (this.received - offset >= CompressedIntUtil.MAX_COMPRESSED_INT_LENGTH) {
+      throw new IllegalArgumentException("Compressed int at offset [" + offset + "] is too long.");
+    }
+
+    return -1;
+  }
+
+  /**
+   * Grows the header array to hold at least {@code size} bytes by doubling it, but never beyond the bytes needed.
+   */
+  private void ensureCapacity(final int size) {
+    if (size <= this.header.length) {
+      return;
+    }
+
+    final int doubled = (int) Math.min(Integer.MAX_VALUE, 2L * this.header.length);
+    this.header = Arrays.copyOf(this.header, Math.min(this.needed, Math.max(size, doubled)));
+  }
+}
@@ -16,25 +16,29 @@
 
 package io.github.zchunk.fileformat.util;
 
-import static java.util.Arrays.asList;
-import static java.util.stream.Collectors.toList;
-
+import io.github.zchunk.compressedint.CompressedIntUtil;
+import io.github.zchunk.fileformat.ChunkIndex;
 import io.github.zchunk.fileformat.HeaderChecksumType;
+import io.github.zchunk.fileformat.OptionalElement;
 import io.github.zchunk.fileformat.PrefaceFlag;
 import io.github.zchunk.fileformat.ZChunkHeader;
-import io.github.zchunk.fileformat.ZChunkHeaderChunkInfo;
 import io.github.zchunk.fileformat.ZChunkHeaderIndex;
 import io.github.zchunk.fileformat.ZChunkHeaderLead;
 import io.github.zchunk.fileformat.ZChunkHeaderPreface;
+import io.github.zchunk.fileformat.ZChunkHeaderSignature;
 import io.github.zchunk.fileformat.ZChunkHeaderSignatures;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -58,127 +62,115 @@ public final class ChecksumUtil {
     return Arrays.equals(expectedChecksum, calculatedChecksum);
   }
 
+  /**
+   * Calculates the header checksum, which covers the complete header except the checksum field in the lead.
+   *
+   * <p>For parsed headers, the raw header bytes are hashed directly in a single pass. Otherwise the header is
+   * serialized from the model field by field.</p>
+   *
+   * @param header
+   *     the header to calculate the checksum for.
+   * @return the calculated checksum.
+   */
   public static byte[] calculateHeaderChecksum(final ZChunkHeader header) {
     final HeaderChecksumType digestAlgorithm = header.getLead().getChecksumType();
     final MessageDigest digest = digestAlgorithm.getMessageDigest();
 
-    digest.update(getLeadBytes(header.getLead()));
-    digest.update(getPrefaceBytes(header.getPreface()));
-    digest.update(getIndexBytes(header.getIndex()));
-    digest.update(getSignatureBytes(header.getSignatures()));
-
-    return digest.digest();
-  }
-
-  public static byte[] getHeaderWithoutChecksum(final ZChunkHeader header) {
-    final ZChunkHeaderLead lead = header.getLead();
-    final byte[] leadBytes = getLeadBytes(lead);
+    final Optional<ByteBuffer> rawHeader = header.getRawHeader();
+    if (rawHeader.isPresent()) {
+      final ByteBuffer raw = rawHeader.get().duplicate();
+      final int checksumOffset = getChecksumOffset(header.getLead());
 
-    final ZChunkHeaderPreface preface = header.getPreface();
-    final byte[] prefaceBytes = getPrefaceBytes(preface);
+      ((Buffer) raw).limit(checksumOffset);
+      digest.update(raw);
+      ((Buffer) raw).limit(raw.capacity());
+      ((Buffer) raw).position(checksumOffset + header.getLead().getChecksum().length);
+      digest.update(raw);
 
-    final ZChunkHeaderIndex index = header.getIndex();
-    final byte[] indexBytes = getIndexBytes(index);
-
-    final byte[] sigs = getSignatureBytes(header.getSignatures());
+      return digest.digest();
+    }
 
-    return concat(leadBytes, prefaceBytes, indexBytes, sigs);
-  }
+    writeHeaderWithoutChecksum(header, digest::update);
 
-  private static byte[] getSignatureBytes(final ZChunkHeaderSignatures signatures) {
-    return concat(
-        signatures.getSignatureCount().getCompressedBytes()
-    );
+    return digest.digest();
   }
 
-  private static byte[] getIndexBytes(final ZChunkHeaderIndex index) {
-
-    final byte[] chunkInfos = getChunkInfoBytes(index.getChunkInfoSortedByIndex());
-
-    final byte[] indexBytes = concat(
-        index.getIndexSize().getCompressedBytes(),
-        index.getChunkChecksumTypeInt().getCompressedBytes(),
-        index.getChunkCount().getCompressedBytes(),
-        index.getDictStream().orElse(new byte[0]),
-        index.getDictChecksum(),
-        index.getDictLength().getCompressedBytes(),
-        index.getUncompressedDictLength().getCompressedBytes(),
-        chunkInfos
-    );
-
-    return indexBytes;
-  }
+  public static byte[] getHeaderWithoutChecksum(final ZChunkHeader header) {
+    final Optional<ByteBuffer> rawHeader = header.getRawHeader();
+    if (rawHeader.isPresent()) {
+      final ByteBuffer raw = rawHeader.get().duplicate();
+      final int checksumOffset = getChecksumOffset(header.getLead());
+      final int checksumLength = header.getLead().getChecksum().length;
+
+      final byte[] headerWithoutChecksum = new byte[raw.capacity() - checksumLength];
+      raw.get(headerWithoutChecksum, 0, checksumOffset);
+      ((Buffer) raw).position(checksumOffset + checksumLength);
+      raw.get(headerWithoutChecksum, checksumOffset, raw.remaining());
+
+      return headerWithoutChecksum;
+    }
 
-  private static byte[] getChunkInfoBytes(final Collection<ZChunkHeaderChunkInfo> chunkInfos) {
-    final List<byte[]> collect = chunkInfos.stream()
-        .map(ChecksumUtil::getChunkInfoBytes)
-        .collect(toList());
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(OffsetUtil.getTotalHeaderSize(header.getLead()));
+    writeHeaderWithoutChecksum(header, bytes -> out.write(bytes, 0, bytes.length));
 
-    return concatByteArrays(collect);
+    return out.toByteArray();
   }
 
-  private static byte[] getChunkInfoBytes(final ZChunkHeaderChunkInfo info) {
-    return concat(
-        info.getChunkStream().orElse(new byte[0]),
-        info.getChunkChecksum(),
-        info.getChunkLength().getCompressedBytes(),
-        info.getChunkUncompressedLength().getCompressedBytes()
-    );
+  /**
+   * The checksum is the last field of the lead.
+   */
+  private static int getChecksumOffset(final ZChunkHeaderLead lead) {
+    return OffsetUtil.getLeadLength(lead) - lead.getChecksum().length;
   }
 
+  /**
+   * Serializes a header from its model, omitting the header checksum.
+   */
+  private static void writeHeaderWithoutChecksum(final ZChunkHeader header, final Consumer<byte[]> sink) {
+    final ZChunkHeaderLead lead = header.getLead();
+    sink.accept(lead.getId());
+    sink.accept(lead.getChecksumTypeInt().getCompressedBytes());
+    sink.accept(lead.getHeaderSize().getCompressedBytes());
 
-  private static byte[] getPrefaceBytes(final ZChunkHeaderPreface preface) {
-    final byte[] prefaceBytes = concat(
-        preface.getTotalDataChecksum(),
-        preface.getPrefaceFlagsInt().getCompressedBytes(),
-        preface.getCompressionAlgorithm().getCompressionTypeValue().getCompressedBytes()
-    );
-
+    final ZChunkHeaderPreface preface = header.getPreface();
+    sink.accept(preface.getTotalDataChecksum());
+    sink.accept(preface.getPrefaceFlagsInt().getCompressedBytes());
+    sink.accept(preface.getCompressionAlgorithm().getCompressionTypeValue().getCompressedBytes());
     if (preface.hasOptionalElements()) {
-      // TODO: optional elements header
-      final byte[] prefaceWithOptional = concat(
-          prefaceBytes,
-          preface.getOptionalElementCount().getCompressedBytes()
-      );
+      sink.accept(preface.getOptionalElementCount().getCompressedBytes());
 
-      return prefaceWithOptional;
+      for (final OptionalElement element : preface.getOptionalElements()) {
+        sink.accept(element.getId().getCompressedBytes());
+        sink.accept(element.getDataSize().getCompressedBytes());
+        sink.accept(element.getData());
+      }
     }
 
-    return prefaceBytes;
-  }
-
-  private static byte[] getLeadBytes(final ZChunkHeaderLead lead) {
-    final byte[] leadBytes = concat(
-        lead.getId(),
-        lead.getChecksumTypeInt().getCompressedBytes(),
-        lead.getHeaderSize().getCompressedBytes()
-    );
-
-    return leadBytes;
-  }
-
-  private static byte[] concat(final byte[]... bytes) {
-    final List<byte[]> bytes1 = asList(bytes);
-
-    return concatByteArrays(bytes1);
-  }
-
-  private static byte[] concatByteArrays(final List<byte[]> byteList) {
-    final int totalLength = byteList.stream()
-        .mapToInt(by -> by.length)
-        .sum();
-
-    final AtomicInteger targetOffset = new AtomicInteger();
-    final byte[] target = new byte[totalLength];
+    final ZChunkHeaderIndex index = header.getIndex();
+    sink.accept(index.getIndexSize().getCompressedBytes());
+    sink.accept(index.getChunkChecksumTypeInt().getCompressedBytes());
+    sink.accept(index.getChunkCount().getCompressedBytes());
+    index.getDictStream().ifPresent(sink);
+    sink.accept(index.getDictChecksum());
+    sink.accept(index.getDictLength().getCompressedBytes());
+    sink.accept(index.getUncompressedDictLength().getCompressedBytes());
+
+    final ChunkIndex chunks = index.getChunks();
+    for (int chunkNumber = 0; chunkNumber < chunks.getChunkCount(); chunkNumber++) {
+      sink.accept(chunks.getChunkChecksum(chunkNumber));
+      sink.accept(CompressedIntUtil.compress(chunks.getChunkLength(chunkNumber)));
+      sink.accept(CompressedIntUtil.compress(chunks.getUncompressedChunkLength(chunkNumber)));
+    }
 
-    byteList.forEach(by -> targetOffset.getAndUpdate(off -> {
-      System.arraycopy(by, 0, target, off, by.length);
-      return off + by.length;
-    }));
-    return target;
+    final ZChunkHeaderSignatures signatures = header.getSignatures();
+    sink.accept(signatures.getSignatureCount().getCompressedBytes());
+    for (final ZChunkHeaderSignature signature : signatures.getSignatures()) {
+      sink.accept(signature.getSignatureType().getCompressedBytes());
+      sink.accept(signature.getSignatureSize().getCompressedBytes());
+      sink.accept(signature.getSignature());
+    }
   }
 
-
   public static boolean isValidData(final ZChunkHeader zChunkHeader, final File fileToCheck) {
     if (zChunkHeader.getPreface().getPrefaceFlags().contains(PrefaceFlag.HAS_DATA_STREAMS)) {
       throw new UnsupportedOperationException("Data streams not supported yet.");
@@ -188,16 +180,8 @@ public final class ChecksumUtil {
     final HeaderChecksumType chunkChecksumType = zChunkHeader.getLead().getChecksumType();
     final MessageDigest messageDigest = chunkChecksumType.getMessageDigest();
 
-    try (final FileInputStream fis = new FileInputStream(fileToCheck)) {
-      fis.skip(totalHeaderSize);
-      final byte[] buffer = new byte[BUFFER_SIZE];
-      int read = 0;
-      while ((read = fis.read(buffer)) == BUFFER_SIZE) {
-        messageDigest.update(buffer);
-      }
-      final byte[] lastChunk = new byte[read];
-      System.arraycopy(buffer, 0, lastChunk, 0, read);
-      messageDigest.update(lastChunk);
+    try (final FileChannel channel = FileChannel.open(fileToCheck.toPath(), StandardOpenOption.READ)) {
+      digest(channel, totalHeaderSize, channel.size() - totalHeaderSize, messageDigest, ByteBuffer.allocate(BUFFER_SIZE));
 
       final byte[] expected = zChunkHeader.getPreface().getTotalDataChecksum();
       final byte[] actual = messageDigest.digest();
@@ -210,38 +194,68 @@ public final class ChecksumUtil {
 
   }
 
+  /**
+   * Checks the checksums of all chunks, walking the chunk index by number over a single channel.
+   *
+   * @param zchunkFile
+   *     the header of the file.
+   * @param file
+   *     the zchunk file.
+   * @return {@code true} if all chunks match their checksum, {@code false} if any does not or the file cannot be read.
+   */
   public static boolean allChunksAreValid(final ZChunkHeader zchunkFile, final File file) {
-    return zchunkFile.getIndex().getChunkInfoSortedByIndex().stream()
-        .allMatch(chunk -> chunkIsValid(chunk, zchunkFile, file));
-  }
-
-  private static boolean chunkIsValid(final ZChunkHeaderChunkInfo chunk, final ZChunkHeader zchunkFile, final File file) {
-    final long chunkOffset = OffsetUtil.getChunkOffset(zchunkFile, chunk.getCurrentIndex());
-
-    try (final FileInputStream fis = new FileInputStream(file)) {
-      fis.skip(chunkOffset);
-      final byte[] chunkData = new byte[chunk.getChunkLength().getIntValue()];
-      fis.read(chunkData);
-      final byte[] digest = zchunkFile.getIndex().getChunkChecksumType().digest(chunkData);
+    final ChunkIndex chunks = zchunkFile.getIndex().getChunks();
+    final MessageDigest messageDigest = zchunkFile.getIndex().getChunkChecksumType().getMessageDigest();
+    final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    final long firstChunkOffset = OffsetUtil.getChunkOffset(zchunkFile, 0L);
+
+    try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      for (int chunkNumber = 0; chunkNumber < chunks.getChunkCount(); chunkNumber++) {
+        digest(channel, firstChunkOffset + chunks.getChunkOffset(chunkNumber), chunks.getChunkLength(chunkNumber),
+            messageDigest, buffer);
+
+        // only the leading bytes of a longer digest are compared.
+        if (!chunks.chunkChecksumEquals(chunkNumber, messageDigest.digest(), 0)) {
+          return false;
+        }
+      }
 
-      return Arrays.equals(chunk.getChunkChecksum(), digest);
+      return true;
     } catch (final IOException ioEx) {
-      LOG.log(Level.SEVERE, ioEx, () -> "Unable to seek [" + chunkOffset + "] bytes into the file.");
+      LOG.log(Level.SEVERE, ioEx, () -> "Unable to read the chunks of file [" + file.getAbsolutePath() + "].");
       return false;
     }
   }
 
   public static byte[] calculateFileChecksum(final File input, final MessageDigest digest) throws IOException {
-    final byte[] buffer = new byte[BUFFER_SIZE];
+    try (final FileChannel channel = FileChannel.open(input.toPath(), StandardOpenOption.READ)) {
+      digest(channel, 0L, channel.size(), digest, ByteBuffer.allocate(BUFFER_SIZE));
 
-    try (final FileInputStream fis = new FileInputStream(input)) {
-      int readCount;
+      return digest.digest();
+    }
+  }
 
-      while ((readCount = fis.read(buffer)) != -1) {
-        digest.update(buffer, 0, readCount);
+  /**
+   * Feeds {@code length} bytes of the channel starting at {@code position} into the digest, using positional reads.
+   */
+  private static void digest(final FileChannel channel,
+                             final long position,
+                             final long length,
+                             final MessageDigest digest,
+                             final ByteBuffer buffer) throws IOException {
+    long done = 0L;
+
+    while (done < length) {
+      ((Buffer) buffer).clear();
+      ((Buffer) buffer).limit((int) Math.min(buffer.capacity(), length - done));
+      final int read = channel.read(buffer, position + done);
+      if (read == -1) {
+        throw new EOFException("Unexpected end of file at offset [" + (position + done) + "].");
       }
 
-      return digest.digest();
+      ((Buffer) buffer).flip();
+      digest.update(buffer);
+      done += read;
     }
   }
 }
@@ -20,6 +20,11 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
 
 public final class IOUtil {
 
@@ -66,4 +71,34 @@ public final class IOUtil {
     return totalWritten;
   }
 
+  /**
+   * Creates an empty file with a random name next to {@code target}, to be moved over the target once it is written.
+   *
+   * <p>Unlike {@link Files#createTempFile(Path, String, String, java.nio.file.attribute.FileAttribute[])}, which
+   * restricts the file to its owner, the file gets the default permissions of new files. The target therefore ends up
+   * readable like any other file after the move.</p>
+   *
+   * @param target
+   *     the file which will be replaced.
+   * @param suffix
+   *     the suffix of the file name.
+   * @return the path of the new, empty file.
+   * @throws IOException
+   *     if the file cannot be created.
+   */
+  public static Path createSiblingFile(final Path target, final String suffix) throws IOException {
+    final Path absoluteTarget = target.toAbsolutePath();
+
+    while (true) {
+      final String name = absoluteTarget.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + suffix;
+      final Path candidate = absoluteTarget.resolveSibling(name);
+
+      try {
+        Files.newByteChannel(candidate, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE).close();
+        return candidate;
+      } catch (final FileAlreadyExistsException existsEx) {
+        // very unlikely, try another name.
+      }
+    }
+  }
 }
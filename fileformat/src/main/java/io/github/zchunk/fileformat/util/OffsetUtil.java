@@ -23,8 +23,6 @@ import io.github.zchunk.fileformat.ZChunkHeaderChunkInfo;
 import io.github.zchunk.fileformat.ZChunkHeaderIndex;
 import io.github.zchunk.fileformat.ZChunkHeaderLead;
 import io.github.zchunk.fileformat.ZChunkHeaderPreface;
-import java.math.BigInteger;
-import java.util.SortedSet;
 
 public final class OffsetUtil {
 
@@ -38,15 +36,14 @@ public final class OffsetUtil {
    * @return the lead length (id/magic length + checksum ci length + headersize ci length + cksum length).
    */
   public static int getLeadLength(final ZChunkHeaderLead lead) {
-    return BigInteger.valueOf(lead.getId().length)
-        .add(BigInteger.valueOf(lead.getChecksumTypeInt().getCompressedBytes().length))
-        .add(BigInteger.valueOf(lead.getHeaderSize().getCompressedBytes().length))
-        .add(BigInteger.valueOf(lead.getChecksum().length))
-        .intValueExact();
+    return lead.getId().length
+        + lead.getChecksumTypeInt().getCompressedLength()
+        + lead.getHeaderSize().getCompressedLength()
+        + lead.getChecksum().length;
   }
 
   public static int getTotalHeaderSize(final ZChunkHeaderLead lead) {
-    return getLeadLength(lead) + lead.getHeaderSize().getIntValue();
+    return Math.addExact(getLeadLength(lead), lead.getHeaderSize().getIntValue());
   }
 
   public static long getPrefaceLength(final ZChunkHeaderPreface preface) {
@@ -54,24 +51,18 @@ public final class OffsetUtil {
      * optional element count only exists if the flag is set.
      */
     final long optElementCountBytes = getOptElementCountBytes(preface);
-    final BigInteger totalDataCksumLength = BigInteger.valueOf(preface.getTotalDataChecksum().length);
-    final BigInteger prefaceFlagsLength = BigInteger.valueOf(preface.getPrefaceFlagsInt().getCompressedBytes().length);
-    final BigInteger compressionTypeLength = BigInteger
-        .valueOf(preface.getCompressionAlgorithm().getCompressionTypeValue().getCompressedBytes().length);
+    final long optElementsLength = preface.getOptionalElements().stream()
+        .mapToLong(OptionalElement::getTotalLength)
+        .reduce(0L, Math::addExact);
 
-    return totalDataCksumLength
+    return preface.getTotalDataChecksum().length
         // plus highest preface flag
-        .add(prefaceFlagsLength)
+        + preface.getPrefaceFlagsInt().getCompressedLength()
         // plus length of compression type
-        .add(compressionTypeLength)
+        + preface.getCompressionAlgorithm().getCompressionTypeValue().getCompressedLength()
         // this might even be 0 if the flag was not set.
-        .add(BigInteger.valueOf(optElementCountBytes))
-        .add(BigInteger.valueOf(
-            preface.getOptionalElements().stream()
-                .mapToLong(OptionalElement::getTotalLength)
-                .sum()
-        ))
-        .longValueExact();
+        + optElementCountBytes
+        + optElementsLength;
   }
 
   private static long getOptElementCountBytes(final ZChunkHeaderPreface preface) {
@@ -79,18 +70,13 @@ public final class OffsetUtil {
       return 0L;
     }
 
-    return preface.getOptionalElementCount().getCompressedBytes().length;
+    return preface.getOptionalElementCount().getCompressedLength();
   }
 
   public static long getChunkOffset(final ZChunkHeader zChunkHeader, final long chunkId) {
     final long totalHeaderSize = OffsetUtil.getTotalHeaderSize(zChunkHeader.getLead());
     final CompressedInt dictLength = zChunkHeader.getIndex().getDictLength();
-
-    final long chunkOffset = zChunkHeader.getIndex().getChunkInfoSortedByIndex().stream()
-        .limit(chunkId)
-        .map(ZChunkHeaderChunkInfo::getChunkLength)
-        .mapToLong(CompressedInt::getLongValue)
-        .sum();
+    final long chunkOffset = zChunkHeader.getIndex().getChunks().getChunkOffset(Math.toIntExact(chunkId));
 
     return totalHeaderSize + dictLength.getLongValue() + chunkOffset;
   }
@@ -100,10 +86,6 @@ public final class OffsetUtil {
   }
 
   public static long getDecompressedChunkOffset(final ZChunkHeaderIndex index, final ZChunkHeaderChunkInfo chunk) {
-    final SortedSet<ZChunkHeaderChunkInfo> chunks = index.getChunkInfoSortedByIndex();
-    return chunks.stream().limit(chunk.getCurrentIndex())
-        .map(ZChunkHeaderChunkInfo::getChunkUncompressedLength)
-        .mapToLong(CompressedInt::getLongValue)
-        .sum();
+    return index.getChunks().getDecompressedChunkOffset(Math.toIntExact(chunk.getCurrentIndex()));
   }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ChunkChecksumIndexTest {
+
+  private static final ChunkIndex LOCAL = ChunkIndex.of(2, new byte[]{1, 1, 2, 2, 1, 1, 3, 3}, new long[4], new long[4]);
+
+  private static final ChunkIndex REMOTE = ChunkIndex.of(2, new byte[]{3, 3, 4, 4, 1, 1}, new long[3], new long[3]);
+
+  @Test
+  public void testLookup() {
+    final ChunkChecksumIndex index = LOCAL.getChecksumIndex();
+
+    Assertions.assertAll(
+        () -> Assertions.assertSame(index, LOCAL.getChecksumIndex()),
+        () -> Assertions.assertEquals(0, index.indexOf(new byte[]{1, 1})),
+        () -> Assertions.assertArrayEquals(new int[]{0, 2}, index.indicesOf(new byte[]{1, 1})),
+        () -> Assertions.assertEquals(3, index.indexOf(new byte[]{3, 3})),
+        () -> Assertions.assertEquals(-1, index.indexOf(new byte[]{4, 4})),
+        () -> Assertions.assertEquals(-1, index.indexOf(new byte[]{1, 1, 1})),
+        () -> Assertions.assertArrayEquals(new int[0], index.indicesOf(new byte[]{4, 4})),
+        () -> Assertions.assertFalse(index.contains(new byte[]{2, 1}))
+    );
+  }
+
+  @Test
+  public void testSetOperations() {
+    final ChunkChecksumIndex index = LOCAL.getChecksumIndex();
+
+    Assertions.assertAll(
+        () -> Assertions.assertArrayEquals(new int[]{0, 2}, index.intersection(REMOTE)),
+        () -> Assertions.assertArrayEquals(new int[]{1}, index.difference(REMOTE)),
+        () -> Assertions.assertArrayEquals(new int[]{0, 2, 3}, REMOTE.getChecksumIndex().intersection(LOCAL)),
+        () -> Assertions.assertThrows(IllegalArgumentException.class,
+            () -> index.intersection(ChunkIndex.of(1, new byte[1], new long[1], new long[1])))
+    );
+  }
+
+  @Test
+  public void testHeaderAgainstItself() {
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(ZChunkFileTest.TEST_FILE);
+    final ChunkIndex chunks = header.getIndex().getChunks();
+
+    for (int chunkNumber = 0; chunkNumber < chunks.getChunkCount(); chunkNumber++) {
+      final int found = chunks.getChecksumIndex().indexOf(chunks.getChunkChecksum(chunkNumber));
+      Assertions.assertArrayEquals(chunks.getChunkChecksum(chunkNumber), chunks.getChunkChecksum(found));
+    }
+
+    Assertions.assertEquals(chunks.getChunkCount(), ZChunk.getCommonChunks(header, header).length);
+    Assertions.assertEquals(0, ZChunk.getMissingChunks(header, header).length);
+  }
+
+  @Test
+  public void testDuplicatesAndCommonPrefix() {
+    final int chunkCount = 1000;
+    final byte[] checksums = new byte[chunkCount * 8];
+    for (int chunkNumber = 0; chunkNumber < chunkCount; chunkNumber++) {
+      // every other chunk is a duplicate, all checksums share their first 6 bytes.
+      checksums[chunkNumber * 8 + 6] = (byte) ((chunkNumber / 2) >>> 8);
+      checksums[chunkNumber * 8 + 7] = (byte) (chunkNumber / 2);
+    }
+    final ChunkChecksumIndex index = ChunkIndex.of(8, checksums, new long[chunkCount], new long[chunkCount]).getChecksumIndex();
+
+    Assertions.assertAll(
+        () -> Assertions.assertArrayEquals(new int[]{998, 999}, index.indicesOf(new byte[]{0, 0, 0, 0, 0, 0, 1, (byte) 243})),
+        () -> Assertions.assertEquals(2, index.indexOf(new byte[]{0, 0, 0, 0, 0, 0, 0, 1})),
+        () -> Assertions.assertFalse(index.contains(new byte[]{0, 0, 0, 0, 0, 0, 1, (byte) 244}))
+    );
+  }
+}
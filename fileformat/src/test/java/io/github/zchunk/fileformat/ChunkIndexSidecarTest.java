@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+import io.github.zchunk.compressedint.CompressedIntView;
+import io.github.zchunk.fileformat.util.ChecksumUtil;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ChunkIndexSidecarTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  public void testWriteAndRead() throws IOException {
+    final Path zckFile = Files.copy(ZChunkFileTest.TEST_FILE.toPath(), this.tempDir.resolve("test.zck"));
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(zckFile);
+
+    final Path sidecar = ChunkIndexSidecar.write(zckFile, header);
+    final Optional<OffHeapChunkIndex> chunks = ChunkIndexSidecar.read(zckFile, header);
+    final ZChunkHeader withSidecar = ChunkIndexSidecar.withSidecarIndex(zckFile, header);
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(this.tempDir.resolve("test.zck.idx"), sidecar),
+        () -> Assertions.assertTrue(chunks.isPresent()),
+        () -> Assertions.assertEquals(header.getIndex().getChunks(), chunks.get()),
+        () -> Assertions.assertTrue(withSidecar.getIndex().getChunks() instanceof OffHeapChunkIndex),
+        () -> Assertions.assertEquals(header.getIndex().getChunkInfoSortedByIndex(), withSidecar.getIndex().getChunkInfoSortedByIndex()),
+        () -> Assertions.assertFalse(withSidecar.getRawHeader().isPresent()),
+        () -> Assertions.assertFalse(withSidecar.getIndex().getChunkCount() instanceof CompressedIntView),
+        () -> Assertions.assertTrue(ChecksumUtil.isValidHeader(withSidecar))
+    );
+  }
+
+  @Test
+  public void testDefaultPermissions() throws IOException {
+    Assumptions.assumeTrue(this.tempDir.getFileSystem().supportedFileAttributeViews().contains("posix"));
+    final Path zckFile = Files.copy(ZChunkFileTest.TEST_FILE.toPath(), this.tempDir.resolve("test.zck"));
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(zckFile);
+
+    final Path sidecar = ChunkIndexSidecar.write(zckFile, header);
+    final Path plainFile = Files.createFile(this.tempDir.resolve("plain"));
+
+    Assertions.assertEquals(Files.getPosixFilePermissions(plainFile), Files.getPosixFilePermissions(sidecar));
+  }
+
+  @Test
+  public void testMissingSidecar() {
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(ZChunkFileTest.TEST_FILE);
+
+    Assertions.assertAll(
+        () -> Assertions.assertFalse(ChunkIndexSidecar.read(this.tempDir.resolve("missing.zck"), header).isPresent()),
+        () -> Assertions.assertSame(header, ChunkIndexSidecar.withSidecarIndex(this.tempDir.resolve("missing.zck"), header))
+    );
+  }
+
+  @Test
+  public void testStaleSidecarIsIgnored() {
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(ZChunkFileTest.TEST_FILE);
+    final ByteBuffer content = ChunkIndexSidecar.encode(header);
+
+    final ByteBuffer otherHeaderChecksum = copy(content);
+    // first byte of the header checksum.
+    otherHeaderChecksum.put(20, (byte) (otherHeaderChecksum.get(20) ^ 1));
+
+    final ByteBuffer badMagic = copy(content);
+    badMagic.put(0, (byte) 1);
+
+    final ByteBuffer truncated = copy(content);
+    ((Buffer) truncated).limit(truncated.limit() - 1);
+
+    Assertions.assertAll(
+        () -> Assertions.assertTrue(ChunkIndexSidecar.decode(content, header).isPresent()),
+        () -> Assertions.assertFalse(ChunkIndexSidecar.decode(otherHeaderChecksum, header).isPresent()),
+        () -> Assertions.assertFalse(ChunkIndexSidecar.decode(badMagic, header).isPresent()),
+        () -> Assertions.assertFalse(ChunkIndexSidecar.decode(truncated, header).isPresent()),
+        () -> Assertions.assertFalse(ChunkIndexSidecar.decode(ByteBuffer.allocate(4), header).isPresent())
+    );
+  }
+
+  private static ByteBuffer copy(final ByteBuffer content) {
+    final ByteBuffer copy = ByteBuffer.allocate(content.remaining());
+    copy.put(content.duplicate());
+
+    ((Buffer) copy).flip();
+
+    return copy;
+  }
+}
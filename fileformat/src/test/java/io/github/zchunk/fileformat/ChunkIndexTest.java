@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+import io.github.zchunk.compressedint.CompressedIntUtil;
+import io.github.zchunk.fileformat.err.InvalidFileException;
+import io.github.zchunk.fileformat.util.OffsetUtil;
+import java.io.ByteArrayOutputStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ChunkIndexTest {
+
+  @Test
+  public void testPrefixSums() {
+    final ChunkIndex chunks = ChunkIndex.of(2, new byte[]{1, 2, 3, 4, 5, 6}, new long[]{10L, 20L, 30L}, new long[]{100L, 200L, 300L});
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(3, chunks.getChunkCount()),
+        () -> Assertions.assertArrayEquals(new byte[]{3, 4}, chunks.getChunkChecksum(1)),
+        () -> Assertions.assertEquals(0L, chunks.getChunkOffset(0)),
+        () -> Assertions.assertEquals(30L, chunks.getChunkOffset(2)),
+        () -> Assertions.assertEquals(60L, chunks.getTotalLength()),
+        () -> Assertions.assertEquals(300L, chunks.getDecompressedChunkOffset(2)),
+        () -> Assertions.assertEquals(600L, chunks.getTotalUncompressedLength()),
+        () -> Assertions.assertEquals(2L, chunks.getChunkInfo(2).getCurrentIndex()),
+        () -> Assertions.assertEquals(30L, chunks.getChunkInfo(2).getChunkLength().getLongValue()),
+        () -> Assertions.assertThrows(IndexOutOfBoundsException.class, () -> chunks.getChunkChecksum(3)),
+        () -> Assertions.assertThrows(IllegalArgumentException.class, () -> ChunkIndex.of(2, new byte[3], new long[2], new long[2]))
+    );
+  }
+
+  @Test
+  public void testOffsetsMatchChunkInfo() {
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(ZChunkFileTest.TEST_FILE);
+    final ChunkIndex chunks = header.getIndex().getChunks();
+    final long firstChunkOffset = OffsetUtil.getTotalHeaderSize(header.getLead()) + header.getIndex().getDictLength().getLongValue();
+
+    long expectedOffset = firstChunkOffset;
+    long expectedDecompressedOffset = 0L;
+
+    for (final ZChunkHeaderChunkInfo chunk : header.getIndex().getChunkInfoSortedByIndex()) {
+      Assertions.assertEquals(expectedOffset, OffsetUtil.getChunkOffset(header, chunk.getCurrentIndex()));
+      Assertions.assertEquals(expectedDecompressedOffset, OffsetUtil.getDecompressedChunkOffset(header.getIndex(), chunk));
+      Assertions.assertArrayEquals(chunk.getChunkChecksum(), ZChunk.getChunkInfo(header, chunk.getCurrentIndex()).getChunkChecksum());
+
+      expectedOffset += chunk.getChunkLength().getLongValue();
+      expectedDecompressedOffset += chunk.getChunkUncompressedLength().getLongValue();
+    }
+
+    Assertions.assertEquals(16, chunks.getChunkCount());
+    Assertions.assertEquals(expectedDecompressedOffset, chunks.getTotalUncompressedLength());
+    Assertions.assertThrows(IllegalArgumentException.class, () -> ZChunk.getChunkInfo(header, 16L));
+  }
+
+  @Test
+  public void testDecode_negativeLength() {
+    final ByteArrayOutputStream records = new ByteArrayOutputStream();
+    records.write(7);
+    final byte[] hugeLength = CompressedIntUtil.compress(1L << 63);
+    records.write(hugeLength, 0, hugeLength.length);
+    records.write(CompressedIntUtil.compress(1L), 0, 1);
+    final byte[] src = records.toByteArray();
+
+    final ChunkIndex chunks = ChunkIndex.lazy(src, 0, src.length, 1, 1);
+
+    Assertions.assertThrows(InvalidFileException.class, () -> chunks.getChunkLength(0));
+  }
+
+  @Test
+  public void testFindChunk() {
+    final ChunkIndex chunks = ChunkIndex.of(1, new byte[4], new long[]{1L, 1L, 1L, 1L}, new long[]{10L, 0L, 5L, 1L});
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(-1, chunks.findChunk(-1L)),
+        () -> Assertions.assertEquals(0, chunks.findChunk(0L)),
+        () -> Assertions.assertEquals(0, chunks.findChunk(9L)),
+        // chunk 1 is empty.
+        () -> Assertions.assertEquals(2, chunks.findChunk(10L)),
+        () -> Assertions.assertEquals(3, chunks.findChunk(15L)),
+        () -> Assertions.assertEquals(-1, chunks.findChunk(16L))
+    );
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+import io.github.zchunk.fileformat.DecompressedChunkCache.PinnedChunk;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class DecompressedChunkCacheTest {
+
+  private static final ZChunkHeader HEADER = ZChunkHeaderFactory.getZChunkFileHeader(ZChunkFileTest.TEST_FILE);
+
+  /**
+   * Chunks with uncompressed lengths of 8504, 8809, 14400 and 131072 bytes.
+   */
+  private static final int SMALL = 7;
+
+  private static final int SMALL2 = 11;
+
+  private static final int MEDIUM = 9;
+
+  private static final int LARGE = 1;
+
+  @Test
+  public void testHitAndMiss() throws IOException {
+    final DecompressedChunkCache cache = new DecompressedChunkCache(100_000L);
+    final AtomicInteger loads = new AtomicInteger();
+    final byte[] first;
+    final byte[] second;
+
+    try (final PinnedChunk chunk = cache.acquire(HEADER, SMALL, () -> load(loads, SMALL))) {
+      first = chunk.getBytes();
+    }
+
+    try (final PinnedChunk chunk = cache.acquire(HEADER, SMALL, () -> load(loads, SMALL))) {
+      second = chunk.getBytes();
+    }
+
+    Assertions.assertAll(
+        () -> Assertions.assertSame(first, second),
+        () -> Assertions.assertEquals(1, loads.get()),
+        () -> Assertions.assertEquals(1L, cache.getHitCount()),
+        () -> Assertions.assertEquals(1L, cache.getMissCount()),
+        () -> Assertions.assertEquals(8504L, cache.getBytes()),
+        () -> Assertions.assertThrows(IllegalArgumentException.class, () -> new DecompressedChunkCache(0L))
+    );
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    final DecompressedChunkCache cache = new DecompressedChunkCache(25_000L);
+    final AtomicInteger loads = new AtomicInteger();
+
+    for (final int chunkNumber : new int[]{SMALL, SMALL2, SMALL, MEDIUM, SMALL}) {
+      cache.acquire(HEADER, chunkNumber, () -> load(loads, chunkNumber)).close();
+    }
+
+    // larger than the budget, never cached.
+    cache.acquire(HEADER, LARGE, () -> load(loads, LARGE)).close();
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(2, cache.size()),
+        () -> Assertions.assertEquals(8504L + 14400L, cache.getBytes()),
+        () -> Assertions.assertEquals(1L, cache.getEvictionCount()),
+        () -> Assertions.assertEquals(2L, cache.getHitCount()),
+        () -> Assertions.assertEquals(4L, cache.getMissCount())
+    );
+  }
+
+  @Test
+  public void testPinnedChunksAreNotEvicted() throws IOException {
+    final DecompressedChunkCache cache = new DecompressedChunkCache(15_000L);
+    final AtomicInteger loads = new AtomicInteger();
+
+    final PinnedChunk first = cache.acquire(HEADER, SMALL, () -> load(loads, SMALL));
+    final PinnedChunk second = cache.acquire(HEADER, SMALL2, () -> load(loads, SMALL2));
+    final long bytesWhilePinned = cache.getBytes();
+
+    second.close();
+    final long bytesAfterUnpin = cache.getBytes();
+    first.close();
+    first.close();
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(8504L + 8809L, bytesWhilePinned),
+        () -> Assertions.assertEquals(8504L, bytesAfterUnpin),
+        () -> Assertions.assertEquals(1, cache.size()),
+        () -> Assertions.assertEquals(1L, cache.getEvictionCount())
+    );
+
+    // the first chunk was kept, although it was the least recently used one.
+    cache.acquire(HEADER, SMALL, () -> load(loads, SMALL)).close();
+    Assertions.assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void testLengthMismatch() throws IOException {
+    final DecompressedChunkCache cache = new DecompressedChunkCache(100_000L);
+    final AtomicInteger loads = new AtomicInteger();
+
+    // does not match the uncompressed length declared by the header, never cached.
+    cache.acquire(HEADER, SMALL, () -> {
+      loads.incrementAndGet();
+      return new byte[10];
+    }).close();
+    cache.acquire(HEADER, SMALL, () -> load(loads, SMALL)).close();
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(2, loads.get()),
+        () -> Assertions.assertEquals(1, cache.size()),
+        () -> Assertions.assertEquals(8504L, cache.getBytes()),
+        () -> Assertions.assertEquals(0L, cache.getHitCount())
+    );
+  }
+
+  @Test
+  public void testFailedLoad() {
+    final DecompressedChunkCache cache = new DecompressedChunkCache(100L);
+
+    Assertions.assertAll(
+        () -> Assertions.assertThrows(IOException.class, () -> cache.acquire(HEADER, 0, () -> {
+          throw new IOException("test");
+        })),
+        () -> Assertions.assertEquals(0, cache.size()),
+        () -> Assertions.assertEquals(1L, cache.getMissCount())
+    );
+  }
+
+  private static byte[] load(final AtomicInteger loads, final int chunkNumber) {
+    loads.incrementAndGet();
+
+    return new byte[(int) HEADER.getIndex().getChunks().getUncompressedChunkLength(chunkNumber)];
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+import io.github.zchunk.compression.api.DecompressionDictionary;
+import io.github.zchunk.fileformat.util.OffsetUtil;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MappedChunksTest {
+
+  private static final ZChunkHeader HEADER = ZChunkHeaderFactory.getZChunkFileHeader(ZChunkFileTest.TEST_FILE);
+
+  @Test
+  public void testCompressedSlices() throws IOException {
+    final byte[] file = Files.readAllBytes(ZChunkFileTest.TEST_FILE.toPath());
+    final ChunkIndex chunks = HEADER.getIndex().getChunks();
+
+    try (final FileChannel channel = FileChannel.open(ZChunkFileTest.TEST_FILE.toPath(), StandardOpenOption.READ)) {
+      // small windows, so the chunks are spread over several mappings.
+      final MappedChunks mapped = MappedChunks.mapCompressed(HEADER, channel, 4096L);
+      final MappedChunks single = MappedChunks.mapCompressed(HEADER, channel);
+
+      for (int chunkNumber = 0; chunkNumber < chunks.getChunkCount(); chunkNumber++) {
+        final int offset = (int) OffsetUtil.getChunkOffset(HEADER, chunkNumber);
+        final byte[] expected = Arrays.copyOfRange(file, offset, offset + (int) chunks.getChunkLength(chunkNumber));
+        final ByteBuffer chunk = mapped.getChunk(chunkNumber);
+        final ByteBuffer fromSingleWindow = single.getChunk(chunkNumber);
+
+        Assertions.assertAll(
+            () -> Assertions.assertTrue(chunk.isReadOnly()),
+            () -> Assertions.assertEquals(0, chunk.position()),
+            () -> Assertions.assertArrayEquals(expected, toArray(chunk)),
+            () -> Assertions.assertEquals(chunk, fromSingleWindow)
+        );
+      }
+
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(chunks.getChunkCount(), mapped.getChunkCount()),
+          () -> Assertions.assertTrue(mapped.getWindowCount() > 1),
+          () -> Assertions.assertEquals(1, single.getWindowCount()),
+          () -> Assertions.assertThrows(IllegalArgumentException.class, () -> mapped.getChunk(chunks.getChunkCount())),
+          () -> Assertions.assertThrows(IllegalArgumentException.class, () -> mapped.getChunk(-1)),
+          () -> Assertions.assertThrows(IllegalArgumentException.class, () -> MappedChunks.mapCompressed(HEADER, channel, 0L))
+      );
+    }
+  }
+
+  @Test
+  public void testDecompressIntoMappedFile(@TempDir final Path tempDir) throws IOException {
+    final Path target = tempDir.resolve("LICENSE.fodt");
+    final DecompressionDictionary dict = ZChunk.getDecompressionDictionary(HEADER, ZChunkFileTest.TEST_FILE);
+    final ChunkIndex chunks = HEADER.getIndex().getChunks();
+
+    try (final FileChannel input = FileChannel.open(ZChunkFileTest.TEST_FILE.toPath(), StandardOpenOption.READ);
+        final FileChannel output = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      final MappedChunks compressed = MappedChunks.mapCompressed(HEADER, input, 4096L);
+      final MappedChunks uncompressed = MappedChunks.mapUncompressed(HEADER, output, 8192L);
+
+      for (int chunkNumber = 0; chunkNumber < chunks.getChunkCount(); chunkNumber++) {
+        final ByteBuffer dst = uncompressed.getChunk(chunkNumber);
+        ZChunk.decompressChunk(HEADER, compressed, dict, chunkNumber, dst);
+        Assertions.assertFalse(dst.hasRemaining());
+      }
+
+      Assertions.assertEquals(chunks.getTotalUncompressedLength(), output.size());
+    }
+
+    try (final ZChunkReader reader = ZChunkReader.open(ZChunkFileTest.TEST_FILE.toPath())) {
+      final ByteBuffer expected = ByteBuffer.allocate((int) reader.size());
+      reader.read(0L, expected);
+
+      Assertions.assertArrayEquals(expected.array(), Files.readAllBytes(target));
+    }
+  }
+
+  @Test
+  public void testTruncatedFile(@TempDir final Path tempDir) throws IOException {
+    final byte[] file = Files.readAllBytes(ZChunkFileTest.TEST_FILE.toPath());
+    final Path truncated = Files.write(tempDir.resolve("truncated.zck"), Arrays.copyOf(file, file.length - 1));
+
+    try (final FileChannel channel = FileChannel.open(truncated, StandardOpenOption.READ)) {
+      Assertions.assertThrows(EOFException.class, () -> MappedChunks.mapCompressed(HEADER, channel));
+    }
+  }
+
+  private static byte[] toArray(final ByteBuffer chunk) {
+    final byte[] bytes = new byte[chunk.remaining()];
+    chunk.duplicate().get(bytes);
+
+    return bytes;
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+import io.github.zchunk.compressedint.CompressedInt;
+import io.github.zchunk.compressedint.CompressedIntView;
+import io.github.zchunk.fileformat.util.ChecksumUtil;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class OffHeapChunkIndexTest {
+
+  @Test
+  public void testCopyOf() {
+    final ChunkIndex heap = ChunkIndex.of(2, new byte[]{1, 2, 3, 4, 5, 6}, new long[]{10L, 20L, 30L}, new long[]{100L, 200L, 300L});
+    final OffHeapChunkIndex offHeap = OffHeapChunkIndex.copyOf(heap);
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(heap, offHeap),
+        () -> Assertions.assertEquals(heap.hashCode(), offHeap.hashCode()),
+        () -> Assertions.assertArrayEquals(new byte[]{5, 6}, offHeap.getChunkChecksum(2)),
+        () -> Assertions.assertEquals(20L, offHeap.getChunkLength(1)),
+        () -> Assertions.assertEquals(300L, offHeap.getUncompressedChunkLength(2)),
+        () -> Assertions.assertEquals(30L, offHeap.getChunkOffset(2)),
+        () -> Assertions.assertEquals(600L, offHeap.getTotalUncompressedLength()),
+        () -> Assertions.assertEquals(1, offHeap.getChecksumIndex().indexOf(new byte[]{3, 4})),
+        () -> Assertions.assertThrows(IndexOutOfBoundsException.class, () -> offHeap.getChunkLength(3)),
+        () -> Assertions.assertSame(offHeap, OffHeapChunkIndex.copyOf(offHeap))
+    );
+  }
+
+  @Test
+  public void testWrap() {
+    final ChunkIndex heap = ChunkIndex.of(1, new byte[]{7}, new long[]{5L}, new long[]{9L});
+    final ByteBuffer buffer = ByteBuffer.allocate(3 + OffHeapChunkIndex.byteSize(1, 1));
+    buffer.position(3);
+    OffHeapChunkIndex.write(heap, buffer);
+
+    Assertions.assertEquals(buffer.capacity(), buffer.position());
+
+    buffer.position(3);
+    final OffHeapChunkIndex wrapped = OffHeapChunkIndex.wrap(buffer, 1, 1);
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(3, buffer.position()),
+        () -> Assertions.assertEquals(heap, wrapped),
+        () -> Assertions.assertThrows(IllegalArgumentException.class, () -> OffHeapChunkIndex.wrap(buffer, 2, 1))
+    );
+  }
+
+  @Test
+  public void testWithOffHeapIndex() {
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(ZChunkFileTest.TEST_FILE);
+    final ZChunkHeader offHeapHeader = ZChunk.withOffHeapIndex(header);
+
+    Assertions.assertAll(
+        () -> Assertions.assertTrue(offHeapHeader.getIndex().getChunks() instanceof OffHeapChunkIndex),
+        () -> Assertions.assertEquals(header.getIndex().getChunks(), offHeapHeader.getIndex().getChunks()),
+        () -> Assertions.assertEquals(OffHeapChunkIndex.class, ZChunk.withOffHeapIndex(offHeapHeader).getIndex().getChunks().getClass()),
+        () -> Assertions.assertFalse(offHeapHeader.getRawHeader().isPresent()),
+        () -> Assertions.assertTrue(ChecksumUtil.isValidHeader(offHeapHeader))
+    );
+  }
+
+  @Test
+  public void testWithOffHeapIndexDetachesRawHeader() {
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(ZChunkFileTest.TEST_FILE);
+    final ZChunkHeader offHeapHeader = ZChunk.withOffHeapIndex(header);
+
+    Assertions.assertAll(
+        () -> Assertions.assertTrue(compressedInts(header).stream().anyMatch(CompressedIntView.class::isInstance)),
+        () -> Assertions.assertFalse(compressedInts(offHeapHeader).stream().anyMatch(CompressedIntView.class::isInstance)),
+        () -> Assertions.assertEquals(compressedInts(header), compressedInts(offHeapHeader)),
+        () -> Assertions.assertArrayEquals(header.getLead().getChecksum(), ChecksumUtil.calculateHeaderChecksum(offHeapHeader))
+    );
+  }
+
+  private static List<CompressedInt> compressedInts(final ZChunkHeader header) {
+    final List<CompressedInt> fields = new ArrayList<>();
+    fields.add(header.getLead().getChecksumTypeInt());
+    fields.add(header.getLead().getHeaderSize());
+    fields.add(header.getPreface().getPrefaceFlagsInt());
+    fields.add(header.getPreface().getOptionalElementCount());
+    for (final OptionalElement element : header.getPreface().getOptionalElements()) {
+      fields.add(element.getId());
+      fields.add(element.getDataSize());
+    }
+    fields.add(header.getIndex().getIndexSize());
+    fields.add(header.getIndex().getChunkChecksumTypeInt());
+    fields.add(header.getIndex().getChunkCount());
+    fields.add(header.getIndex().getDictLength());
+    fields.add(header.getIndex().getUncompressedDictLength());
+    fields.add(header.getSignatures().getSignatureCount());
+    for (final ZChunkHeaderSignature signature : header.getSignatures().getSignatures()) {
+      fields.add(signature.getSignatureType());
+      fields.add(signature.getSignatureSize());
+    }
+
+    return fields;
+  }
+}
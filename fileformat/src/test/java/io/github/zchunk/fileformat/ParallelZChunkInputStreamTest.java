@@ -0,0 +1,185 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+import io.github.zchunk.compression.api.err.DecompressionException;
+import io.github.zchunk.fileformat.util.OffsetUtil;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ParallelZChunkInputStreamTest {
+
+  private static final Path TEST_FILE = ZChunkFileTest.TEST_FILE.toPath();
+
+  private static byte[] expected = new byte[0];
+
+  private static long largestChunk;
+
+  @BeforeAll
+  public static void readContent() throws IOException {
+    try (final ZChunkReader reader = ZChunkReader.open(TEST_FILE)) {
+      final ByteBuffer content = ByteBuffer.allocate((int) reader.size());
+      reader.read(0L, content);
+      expected = content.array();
+
+      final ChunkIndex chunks = reader.getHeader().getIndex().getChunks();
+      for (int chunkNumber = 0; chunkNumber < chunks.getChunkCount(); chunkNumber++) {
+        largestChunk = Math.max(largestChunk, chunks.getUncompressedChunkLength(chunkNumber));
+      }
+    }
+  }
+
+  @Test
+  public void testReadAll() throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    try (final ParallelZChunkInputStream in = ParallelZChunkInputStream.open(TEST_FILE)) {
+      final byte[] buffer = new byte[1000];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(-1, in.read()),
+          () -> Assertions.assertEquals(0L, in.getWindowBytes())
+      );
+    }
+
+    Assertions.assertArrayEquals(expected, out.toByteArray());
+  }
+
+  @Test
+  public void testBoundedWindow() throws IOException {
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    final long maxWindowBytes = 3L * largestChunk;
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long maxObserved = 0L;
+
+    try (final ParallelZChunkInputStream in = ParallelZChunkInputStream.open(TEST_FILE, executor, maxWindowBytes)) {
+      int read;
+      while ((read = in.read()) != -1) {
+        out.write(read);
+        maxObserved = Math.max(maxObserved, in.getWindowBytes());
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    final long observed = maxObserved;
+    Assertions.assertAll(
+        () -> Assertions.assertArrayEquals(expected, out.toByteArray()),
+        () -> Assertions.assertTrue(observed <= maxWindowBytes),
+        () -> Assertions.assertTrue(observed > largestChunk)
+    );
+  }
+
+  @Test
+  public void testParsedHeader() throws IOException {
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(TEST_FILE);
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    try (final ParallelZChunkInputStream in = ParallelZChunkInputStream.open(TEST_FILE, header, Runnable::run,
+        ParallelZChunkInputStream.DEFAULT_MAX_WINDOW_BYTES)) {
+      final byte[] buffer = new byte[4096];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+
+      Assertions.assertSame(header, in.getHeader());
+    }
+
+    Assertions.assertArrayEquals(expected, out.toByteArray());
+  }
+
+  @Test
+  public void testWindowSmallerThanChunk() throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // one chunk is always scheduled, so a tiny window degrades to sequential decompression.
+    try (final ParallelZChunkInputStream in = ParallelZChunkInputStream.open(TEST_FILE, Runnable::run, 1L)) {
+      final byte[] buffer = new byte[4096];
+      int read;
+      while ((read = in.read(buffer, 10, 100)) != -1) {
+        out.write(buffer, 10, read);
+        Assertions.assertTrue(in.getWindowBytes() <= largestChunk);
+      }
+    }
+
+    Assertions.assertArrayEquals(expected, out.toByteArray());
+  }
+
+  @Test
+  public void testClose() throws IOException {
+    final ParallelZChunkInputStream in = ParallelZChunkInputStream.open(TEST_FILE);
+    final int first = in.read();
+    in.close();
+    in.close();
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(expected[0] & 0xff, first),
+        () -> Assertions.assertThrows(IOException.class, in::read),
+        () -> Assertions.assertThrows(IOException.class, in::available),
+        () -> Assertions.assertThrows(IllegalArgumentException.class,
+            () -> ParallelZChunkInputStream.open(TEST_FILE, Runnable::run, 0L))
+    );
+  }
+
+  @Test
+  public void testFailureIsLatched(@TempDir final Path tempDir) throws IOException {
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(TEST_FILE.toFile());
+    final byte[] file = Files.readAllBytes(TEST_FILE);
+    // breaks the zstd frame magic of the fourth chunk.
+    file[(int) OffsetUtil.getChunkOffset(header, 3L)] ^= 0x01;
+    final Path corrupt = Files.write(tempDir.resolve("corrupt.zck"), file);
+    final ChunkIndex chunks = header.getIndex().getChunks();
+    final long expectedBytes = chunks.getDecompressedChunkOffset(3);
+
+    try (final ParallelZChunkInputStream in = ParallelZChunkInputStream.open(corrupt, Runnable::run, 1L)) {
+      final byte[] buffer = new byte[4096];
+      long readBytes = 0L;
+      RuntimeException failure = null;
+
+      while (failure == null) {
+        try {
+          readBytes += in.read(buffer);
+        } catch (final DecompressionException decompressionEx) {
+          failure = decompressionEx;
+        }
+      }
+
+      final long totalRead = readBytes;
+      final RuntimeException firstFailure = failure;
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(expectedBytes, totalRead),
+          () -> Assertions.assertSame(firstFailure, Assertions.assertThrows(DecompressionException.class, in::read)),
+          () -> Assertions.assertSame(firstFailure, Assertions.assertThrows(DecompressionException.class, in::available)),
+          () -> Assertions.assertEquals(0L, in.getWindowBytes())
+      );
+    }
+  }
+}
@@ -16,10 +16,19 @@
 
 package io.github.zchunk.fileformat;
 
+import io.github.zchunk.compression.api.CompressionAlgorithm;
+import io.github.zchunk.compression.api.CompressionAlgorithmFactory;
+import io.github.zchunk.compression.api.DecompressionDictionary;
+import io.github.zchunk.compression.api.err.DecompressionException;
+import io.github.zchunk.fileformat.util.OffsetUtil;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -48,4 +57,126 @@ public class ZChunkChunkDecompressionTest {
     Assertions.assertTrue(readBytes.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"));
   }
 
+  @Test
+  public void testDecompressBlocks() throws IOException {
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(TEST_FILE);
+    final CompressionAlgorithm algorithm = header.getPreface().getCompressionAlgorithm();
+    final ChunkIndex chunks = header.getIndex().getChunks();
+    final byte[] rawDict = ZChunk.getDecompressedDict(header, TEST_FILE);
+    final DecompressionDictionary dict = ZChunk.getDecompressionDictionary(header, TEST_FILE);
+    final DecompressionDictionary noDict = algorithm.prepareDictionary(new byte[0]);
+
+    final byte[] compressedDict = readBytes(OffsetUtil.getDictOffset(header), header.getIndex().getDictLength().getIntValue());
+    final byte[] compressedChunk = readBytes(OffsetUtil.getChunkOffset(header, 0L), (int) chunks.getChunkLength(0));
+    final int chunkLength = (int) chunks.getUncompressedChunkLength(0);
+
+    // switches between dict and no dict on the same pooled context.
+    final byte[] first = algorithm.decompress(compressedChunk, dict, chunkLength);
+    final byte[] decompressedDict = algorithm.decompress(compressedDict, noDict, rawDict.length);
+    final byte[] second = algorithm.decompress(compressedChunk, dict, chunkLength);
+    // a dictionary which was not prepared by the algorithm.
+    final byte[] third = algorithm.decompress(compressedChunk, DecompressionDictionary.raw(rawDict), chunkLength);
+
+    final byte[] streamed = new byte[chunkLength];
+    try (final InputStream is = ZChunk.getDecompressedChunk(header, TEST_FILE, dict, 0L)) {
+      int offset = 0;
+      while (offset < chunkLength) {
+        offset += is.read(streamed, offset, chunkLength - offset);
+      }
+    }
+
+    Assertions.assertAll(
+        () -> Assertions.assertArrayEquals(rawDict, dict.getBytes()),
+        () -> Assertions.assertArrayEquals(rawDict, decompressedDict),
+        () -> Assertions.assertTrue(noDict.isEmpty()),
+        () -> Assertions.assertArrayEquals(first, third),
+        () -> Assertions.assertArrayEquals(first, streamed),
+        () -> Assertions.assertTrue(new String(first, StandardCharsets.UTF_8).startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")),
+        () -> Assertions.assertArrayEquals(first, second),
+        () -> Assertions.assertThrows(DecompressionException.class, () -> algorithm.decompress(compressedChunk, dict, chunkLength + 1)),
+        () -> Assertions.assertThrows(DecompressionException.class, () -> algorithm.decompress(new byte[]{1, 2, 3}, dict, chunkLength))
+    );
+  }
+
+  @Test
+  public void testDecompressBuffers() throws IOException {
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(TEST_FILE);
+    final CompressionAlgorithm algorithm = header.getPreface().getCompressionAlgorithm();
+    final DecompressionDictionary dict = ZChunk.getDecompressionDictionary(header, TEST_FILE);
+    final ChunkIndex chunks = header.getIndex().getChunks();
+    final int chunkLength = (int) chunks.getUncompressedChunkLength(0);
+    final byte[] compressedChunk = readBytes(OffsetUtil.getChunkOffset(header, 0L), (int) chunks.getChunkLength(0));
+    final byte[] expected = algorithm.decompress(compressedChunk, dict, chunkLength);
+
+    final ByteBuffer heapSrc = ByteBuffer.wrap(compressedChunk);
+    final ByteBuffer heapDst = ByteBuffer.allocate(chunkLength);
+    final int heapWritten = algorithm.decompress(heapSrc, heapDst, dict);
+
+    final ByteBuffer directSrc = ByteBuffer.allocateDirect(compressedChunk.length).put(compressedChunk);
+    directSrc.flip();
+    final ByteBuffer directDst = ByteBuffer.allocateDirect(chunkLength);
+    final int directWritten = algorithm.decompress(directSrc, directDst, dict);
+
+    // a heap source with an offset, decompressed into a direct buffer.
+    final byte[] padded = new byte[compressedChunk.length + 3];
+    System.arraycopy(compressedChunk, 0, padded, 3, compressedChunk.length);
+    final ByteBuffer mixedSrc = ByteBuffer.wrap(padded, 3, compressedChunk.length).slice();
+    final ByteBuffer mixedDst = ByteBuffer.allocateDirect(chunkLength);
+    final int mixedWritten = algorithm.decompress(mixedSrc, mixedDst, dict);
+
+    final ByteBuffer fromChannel;
+    try (final FileChannel channel = FileChannel.open(TEST_FILE.toPath(), StandardOpenOption.READ)) {
+      fromChannel = ZChunk.readDecompressedChunk(header, channel, dict, 0L);
+    }
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(chunkLength, heapWritten),
+        () -> Assertions.assertFalse(heapSrc.hasRemaining()),
+        () -> Assertions.assertArrayEquals(expected, heapDst.array()),
+        () -> Assertions.assertEquals(chunkLength, directWritten),
+        () -> Assertions.assertFalse(directSrc.hasRemaining()),
+        () -> Assertions.assertArrayEquals(expected, toArray(directDst)),
+        () -> Assertions.assertEquals(chunkLength, mixedWritten),
+        () -> Assertions.assertArrayEquals(expected, toArray(mixedDst)),
+        () -> Assertions.assertArrayEquals(expected, toArray(fromChannel)),
+        () -> Assertions.assertThrows(DecompressionException.class,
+            () -> algorithm.decompress(ByteBuffer.wrap(compressedChunk), ByteBuffer.allocate(chunkLength - 1), dict))
+    );
+  }
+
+  @Test
+  public void testNoneCopiesBuffers() {
+    final CompressionAlgorithm none = CompressionAlgorithmFactory.forType(0L);
+    final DecompressionDictionary noDict = none.prepareDictionary(new byte[0]);
+    final ByteBuffer dst = ByteBuffer.allocateDirect(4);
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(3, none.decompress(ByteBuffer.wrap(new byte[]{1, 2, 3}), dst, noDict)),
+        () -> Assertions.assertArrayEquals(new byte[]{1, 2, 3}, toArray(dst)),
+        () -> Assertions.assertArrayEquals(new byte[]{1, 2}, none.decompress(new byte[]{1, 2}, noDict, 2)),
+        () -> Assertions.assertThrows(DecompressionException.class,
+            () -> none.decompress(ByteBuffer.wrap(new byte[]{1, 2, 3}), ByteBuffer.allocate(2), noDict))
+    );
+  }
+
+  private static byte[] toArray(final ByteBuffer written) {
+    final ByteBuffer readable = written.duplicate();
+    if (readable.position() != 0) {
+      readable.flip();
+    }
+    final byte[] bytes = new byte[readable.remaining()];
+    readable.get(bytes);
+
+    return bytes;
+  }
+
+  private static byte[] readBytes(final long offset, final int length) throws IOException {
+    try (final RandomAccessFile file = new RandomAccessFile(TEST_FILE, "r")) {
+      final byte[] bytes = new byte[length];
+      file.seek(offset);
+      file.readFully(bytes);
+
+      return bytes;
+    }
+  }
 }
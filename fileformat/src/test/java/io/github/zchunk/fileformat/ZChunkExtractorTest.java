@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+import io.github.zchunk.fileformat.err.InvalidFileException;
+import io.github.zchunk.fileformat.util.OffsetUtil;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ZChunkExtractorTest {
+
+  private static final byte[] PREVIOUS_CONTENT = "previous content".getBytes(StandardCharsets.UTF_8);
+
+  @Test
+  public void testExtractVerified(@TempDir final Path tempDir) throws IOException {
+    final Path target = Files.write(tempDir.resolve("LICENSE.fodt"), PREVIOUS_CONTENT);
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(ZChunkFileTest.TEST_FILE);
+
+    ZChunkExtractor.extractVerified(header, ZChunkFileTest.TEST_FILE.toPath(), target);
+
+    try (final ZChunkReader reader = ZChunkReader.open(ZChunkFileTest.TEST_FILE.toPath())) {
+      final ByteBuffer expected = ByteBuffer.allocate((int) reader.size());
+      reader.read(0L, expected);
+
+      Assertions.assertAll(
+          () -> Assertions.assertArrayEquals(expected.array(), Files.readAllBytes(target)),
+          () -> Assertions.assertEquals(1L, countFiles(tempDir))
+      );
+    }
+  }
+
+  @Test
+  public void testDefaultPermissions(@TempDir final Path tempDir) throws IOException {
+    Assumptions.assumeTrue(tempDir.getFileSystem().supportedFileAttributeViews().contains("posix"));
+    final Path target = tempDir.resolve("LICENSE.fodt");
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(ZChunkFileTest.TEST_FILE);
+
+    ZChunkExtractor.extractVerified(header, ZChunkFileTest.TEST_FILE.toPath(), target);
+    final Path plainFile = Files.createFile(tempDir.resolve("plain"));
+
+    Assertions.assertEquals(Files.getPosixFilePermissions(plainFile), Files.getPosixFilePermissions(target));
+  }
+
+  @Test
+  public void testCorruptChunk(@TempDir final Path tempDir) throws IOException {
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(ZChunkFileTest.TEST_FILE);
+    final byte[] file = Files.readAllBytes(ZChunkFileTest.TEST_FILE.toPath());
+    file[(int) OffsetUtil.getChunkOffset(header, 3L) + 1] ^= 0x01;
+    final Path corrupt = Files.write(tempDir.resolve("corrupt.zck"), file);
+    final Path target = Files.write(tempDir.resolve("LICENSE.fodt"), PREVIOUS_CONTENT);
+
+    final InvalidFileException invalid = Assertions.assertThrows(InvalidFileException.class,
+        () -> ZChunkExtractor.extractVerified(header, corrupt, target));
+
+    Assertions.assertAll(
+        () -> Assertions.assertTrue(invalid.getMessage().contains("chunk [3]")),
+        () -> Assertions.assertArrayEquals(PREVIOUS_CONTENT, Files.readAllBytes(target)),
+        () -> Assertions.assertEquals(2L, countFiles(tempDir))
+    );
+  }
+
+  @Test
+  public void testDataChecksumMismatch(@TempDir final Path tempDir) throws IOException {
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(ZChunkFileTest.TEST_FILE);
+    // the header checksum is still calculated from the unchanged raw header bytes.
+    final ZChunkHeader wrongDataChecksum = ImmutableZChunkHeader.copyOf(header).withPreface(
+        ImmutableZChunkHeaderPreface.copyOf(header.getPreface()).withTotalDataChecksum(new byte[header.getPreface().getTotalDataChecksum().length]));
+    final Path target = tempDir.resolve("LICENSE.fodt");
+
+    final InvalidFileException invalid = Assertions.assertThrows(InvalidFileException.class,
+        () -> ZChunkExtractor.extractVerified(wrongDataChecksum, ZChunkFileTest.TEST_FILE.toPath(), target));
+
+    Assertions.assertAll(
+        () -> Assertions.assertTrue(invalid.getMessage().startsWith("Data checksum")),
+        () -> Assertions.assertFalse(Files.exists(target)),
+        () -> Assertions.assertEquals(0L, countFiles(tempDir))
+    );
+  }
+
+  @Test
+  public void testInvalidHeaderChecksum(@TempDir final Path tempDir) throws IOException {
+    final Path target = tempDir.resolve("LICENSE.fodt");
+    final File invalidFile = ZChunkFileTest.TEST_FILE_HEADER_CKSUM_INVALID;
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(invalidFile);
+
+    Assertions.assertAll(
+        () -> Assertions.assertThrows(InvalidFileException.class, () -> ZChunkExtractor.extractVerified(header, invalidFile.toPath(), target)),
+        () -> Assertions.assertFalse(Files.exists(target)),
+        () -> Assertions.assertEquals(0L, countFiles(tempDir))
+    );
+  }
+
+  private static long countFiles(final Path dir) throws IOException {
+    try (final Stream<Path> files = Files.list(dir)) {
+      return files.count();
+    }
+  }
+}
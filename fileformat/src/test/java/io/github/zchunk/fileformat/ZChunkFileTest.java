@@ -20,6 +20,7 @@ import io.github.zchunk.fileformat.util.ByteUtils;
 import io.github.zchunk.fileformat.util.ChecksumUtil;
 import io.github.zchunk.fileformat.util.OffsetUtil;
 import java.io.File;
+import java.util.Optional;
 import java.util.logging.Logger;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -56,10 +57,19 @@ public class ZChunkFileTest {
   private void checkChecksum(final ZChunkHeader header) {
     final byte[] exp = header.getLead().getChecksum();
     final byte[] actual = ChecksumUtil.calculateHeaderChecksum(header);
+    // serialized from the model instead of hashing the raw bytes.
+    final ZChunkHeader withoutRawHeader = ImmutableZChunkHeader.copyOf(header).withRawHeader(Optional.empty());
 
     Assertions.assertAll(
         () -> Assertions.assertArrayEquals(exp, actual),
-        () -> Assertions.assertTrue(ChecksumUtil.isValidHeader(header))
+        () -> Assertions.assertTrue(ChecksumUtil.isValidHeader(header)),
+        () -> Assertions.assertTrue(header.getRawHeader().isPresent()),
+        () -> Assertions.assertEquals(434, header.getRawHeader().get().remaining()),
+        () -> Assertions.assertEquals(header, withoutRawHeader),
+        () -> Assertions.assertArrayEquals(exp, ChecksumUtil.calculateHeaderChecksum(withoutRawHeader)),
+        () -> Assertions.assertArrayEquals(ChecksumUtil.getHeaderWithoutChecksum(header),
+            ChecksumUtil.getHeaderWithoutChecksum(withoutRawHeader)),
+        () -> Assertions.assertEquals(434 - exp.length, ChecksumUtil.getHeaderWithoutChecksum(header).length)
     );
   }
 
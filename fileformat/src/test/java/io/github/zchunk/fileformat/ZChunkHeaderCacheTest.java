@@ -0,0 +1,187 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+import io.github.zchunk.fileformat.err.InvalidFileException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ZChunkHeaderCacheTest {
+
+  /**
+   * The raw header plus the decoded chunk index: the checksums and four longs per chunk.
+   */
+  private static final long HEADER_WEIGHT = 434L + 16L * (16L + 32L);
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  public void testHitAndMiss() {
+    final ZChunkHeaderCache cache = new ZChunkHeaderCache(4, 1024L * 1024L);
+
+    final ZChunkHeader first = cache.getHeader(ZChunkFileTest.TEST_FILE.toPath());
+    final ZChunkHeader second = cache.getHeader(ZChunkFileTest.TEST_FILE.toPath());
+
+    Assertions.assertAll(
+        () -> Assertions.assertSame(first, second),
+        () -> Assertions.assertEquals(1L, cache.getHitCount()),
+        () -> Assertions.assertEquals(1L, cache.getMissCount()),
+        () -> Assertions.assertEquals(1L, cache.getLoadCount()),
+        () -> Assertions.assertEquals(1, cache.size()),
+        () -> Assertions.assertEquals(HEADER_WEIGHT, cache.getBytes()),
+        // the speculative read of the header is not retained.
+        () -> Assertions.assertEquals(434, first.getRawHeader().get().capacity()),
+        () -> Assertions.assertSame(first, ZChunk.fromFile(ZChunkFileTest.TEST_FILE, cache).getHeader())
+    );
+  }
+
+  @Test
+  public void testModifiedFileIsReloaded() throws IOException {
+    final Path copy = copyTestFile("modified.zck");
+    final ZChunkHeaderCache cache = new ZChunkHeaderCache(4, 1024L * 1024L);
+
+    final ZChunkHeader first = cache.getHeader(copy);
+    Files.setLastModifiedTime(copy, FileTime.fromMillis(Files.getLastModifiedTime(copy).toMillis() - 60_000L));
+    final ZChunkHeader second = cache.getHeader(copy);
+
+    Assertions.assertAll(
+        () -> Assertions.assertNotSame(first, second),
+        () -> Assertions.assertEquals(2L, cache.getMissCount()),
+        () -> Assertions.assertEquals(0L, cache.getHitCount())
+    );
+  }
+
+  @Test
+  public void testEvictionByEntries() throws IOException {
+    final ZChunkHeaderCache cache = new ZChunkHeaderCache(2, 1024L * 1024L);
+    final Path first = copyTestFile("first.zck");
+    final Path second = copyTestFile("second.zck");
+    final Path third = copyTestFile("third.zck");
+
+    cache.getHeader(first);
+    cache.getHeader(second);
+    // first is now the most recently used.
+    cache.getHeader(first);
+    cache.getHeader(third);
+    cache.getHeader(first);
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(2, cache.size()),
+        () -> Assertions.assertEquals(1L, cache.getEvictionCount()),
+        () -> Assertions.assertEquals(2L, cache.getHitCount()),
+        () -> Assertions.assertEquals(3L, cache.getMissCount())
+    );
+  }
+
+  @Test
+  public void testEvictionByBytes() throws IOException {
+    final ZChunkHeaderCache cache = new ZChunkHeaderCache(16, HEADER_WEIGHT * 2L);
+    cache.getHeader(copyTestFile("first.zck"));
+    cache.getHeader(copyTestFile("second.zck"));
+    cache.getHeader(copyTestFile("third.zck"));
+
+    final ZChunkHeaderCache tooSmall = new ZChunkHeaderCache(16, HEADER_WEIGHT - 1L);
+    tooSmall.getHeader(ZChunkFileTest.TEST_FILE.toPath());
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(2, cache.size()),
+        () -> Assertions.assertEquals(HEADER_WEIGHT * 2L, cache.getBytes()),
+        () -> Assertions.assertEquals(1L, cache.getEvictionCount()),
+        () -> Assertions.assertEquals(0, tooSmall.size()),
+        () -> Assertions.assertEquals(0L, tooSmall.getBytes())
+    );
+  }
+
+  @Test
+  public void testInvalidate() {
+    final ZChunkHeaderCache cache = new ZChunkHeaderCache(4, 1024L * 1024L);
+    cache.getHeader(ZChunkFileTest.TEST_FILE.toPath());
+    cache.invalidate(ZChunkFileTest.TEST_FILE.toPath());
+    cache.getHeader(ZChunkFileTest.TEST_FILE.toPath());
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(2L, cache.getMissCount()),
+        () -> Assertions.assertEquals(1, cache.size()),
+        () -> Assertions.assertThrows(IllegalArgumentException.class, () -> new ZChunkHeaderCache(0, 1L)),
+        () -> Assertions.assertThrows(IllegalArgumentException.class,
+            () -> cache.getHeader(ZChunkFileTest.TEST_FILE_INVALID.toPath()))
+    );
+  }
+
+  @Test
+  public void testTruncatedFile() throws IOException {
+    final Path truncated = this.tempDir.resolve("truncated.zck");
+    Files.write(truncated, Arrays.copyOf(Files.readAllBytes(ZChunkFileTest.TEST_FILE.toPath()), 8));
+    final ZChunkHeaderCache cache = new ZChunkHeaderCache(4, 1024L * 1024L);
+
+    Assertions.assertAll(
+        () -> Assertions.assertThrows(InvalidFileException.class, () -> cache.getHeader(truncated)),
+        () -> Assertions.assertEquals(0, cache.size())
+    );
+  }
+
+  @Test
+  public void testConcurrentLookupsLoadOnce() throws Exception {
+    final ZChunkHeaderCache cache = new ZChunkHeaderCache(4, 1024L * 1024L);
+    final int threads = 8;
+    final CountDownLatch start = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+    try {
+      final List<Future<ZChunkHeader>> results = new ArrayList<>();
+      for (int thread = 0; thread < threads; thread++) {
+        final Callable<ZChunkHeader> lookup = () -> {
+          start.await();
+          return cache.getHeader(ZChunkFileTest.TEST_FILE.toPath());
+        };
+        results.add(executor.submit(lookup));
+      }
+      start.countDown();
+
+      final ZChunkHeader first = results.get(0).get();
+      for (final Future<ZChunkHeader> result : results) {
+        Assertions.assertSame(first, result.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(1L, cache.getLoadCount()),
+        () -> Assertions.assertEquals(threads, cache.getHitCount() + cache.getMissCount())
+    );
+  }
+
+  private Path copyTestFile(final String name) throws IOException {
+    return Files.copy(ZChunkFileTest.TEST_FILE.toPath(), this.tempDir.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+  }
+}
@@ -19,6 +19,8 @@ package io.github.zchunk.fileformat;
 import io.github.zchunk.compressedint.CompressedInt;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Set;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -37,5 +39,32 @@ public class ZChunkHeaderFactoryTest {
     );
   }
 
+  @Test
+  public void testReadFileHeaderPreface() {
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(ZChunkFileTest.TEST_FILE);
+
+    final ZChunkHeaderPreface preface = ZChunkHeaderFactory.readFileHeaderPreface(ZChunkFileTest.TEST_FILE, header.getLead());
+
+    Assertions.assertAll(
+        () -> Assertions.assertArrayEquals(header.getPreface().getTotalDataChecksum(), preface.getTotalDataChecksum()),
+        () -> Assertions.assertEquals(header.getPreface().getPrefaceFlagsInt(), preface.getPrefaceFlagsInt()),
+        () -> Assertions.assertEquals(header.getPreface().getCompressionAlgorithm().getName(), preface.getCompressionAlgorithm().getName())
+    );
+  }
+
+  @Test
+  public void testGetZChunkFileHeader_fromChannel() throws IOException {
+    final ZChunkHeader fromFile = ZChunkHeaderFactory.getZChunkFileHeader(ZChunkFileTest.TEST_FILE);
 
+    try (final FileChannel channel = FileChannel.open(ZChunkFileTest.TEST_FILE.toPath(), StandardOpenOption.READ)) {
+      channel.position(17L);
+      final ZChunkHeader fromChannel = ZChunkHeaderFactory.getZChunkFileHeader(channel);
+
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(17L, channel.position()),
+          () -> Assertions.assertArrayEquals(fromFile.getLead().getChecksum(), fromChannel.getLead().getChecksum()),
+          () -> Assertions.assertEquals(fromFile.getIndex().getChunkCount(), fromChannel.getIndex().getChunkCount())
+      );
+    }
+  }
 }
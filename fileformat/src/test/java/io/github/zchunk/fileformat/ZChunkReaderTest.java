@@ -0,0 +1,332 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat;
+
+import io.github.zchunk.compressedint.CompressedIntFactory;
+import io.github.zchunk.compression.api.CompressionAlgorithmFactory;
+import io.github.zchunk.fileformat.err.InvalidFileException;
+import io.github.zchunk.fileformat.util.OffsetUtil;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ZChunkReaderTest {
+
+  private static byte[] expected = new byte[0];
+
+  @BeforeAll
+  public static void decompressAllChunks() throws IOException {
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(ZChunkFileTest.TEST_FILE);
+    final byte[] dict = ZChunk.getDecompressedDict(header, ZChunkFileTest.TEST_FILE);
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    for (int chunkNumber = 0; chunkNumber < header.getIndex().getChunks().getChunkCount(); chunkNumber++) {
+      try (final InputStream chunk = ZChunk.getDecompressedChunk(header, ZChunkFileTest.TEST_FILE, dict, chunkNumber)) {
+        final byte[] buffer = new byte[(int) header.getIndex().getChunks().getUncompressedChunkLength(chunkNumber)];
+        int offset = 0;
+        while (offset < buffer.length) {
+          offset += chunk.read(buffer, offset, buffer.length - offset);
+        }
+        out.write(buffer);
+      }
+    }
+
+    expected = out.toByteArray();
+  }
+
+  @Test
+  public void testReadAll() throws IOException {
+    try (final ZChunkReader reader = ZChunkReader.open(ZChunkFileTest.TEST_FILE.toPath())) {
+      final ByteBuffer all = ByteBuffer.allocate(expected.length + 10);
+      final int read = reader.read(0L, all);
+
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(expected.length, reader.size()),
+          () -> Assertions.assertEquals(expected.length, read),
+          () -> Assertions.assertArrayEquals(expected, Arrays.copyOf(all.array(), read)),
+          () -> Assertions.assertEquals(-1, reader.read(reader.size(), ByteBuffer.allocate(1))),
+          () -> Assertions.assertThrows(IllegalArgumentException.class, () -> reader.read(-1L, ByteBuffer.allocate(1)))
+      );
+    }
+  }
+
+  @Test
+  public void testReadRanges() throws IOException {
+    try (final ZChunkReader reader = ZChunkReader.open(ZChunkFileTest.TEST_FILE.toPath())) {
+      final ChunkIndex chunks = reader.getHeader().getIndex().getChunks();
+      // spans the end of the first and the start of the second chunk.
+      final long boundary = chunks.getDecompressedChunkOffset(1);
+
+      for (final long position : new long[]{0L, 1L, boundary - 5L, boundary, expected.length - 3L}) {
+        final ByteBuffer dst = ByteBuffer.allocate(64);
+        final int read = reader.read(position, dst);
+        final int expectedLength = (int) Math.min(64L, expected.length - position);
+
+        Assertions.assertEquals(expectedLength, read);
+        Assertions.assertArrayEquals(
+            Arrays.copyOfRange(expected, (int) position, (int) position + expectedLength),
+            Arrays.copyOf(dst.array(), read));
+      }
+    }
+  }
+
+  @Test
+  public void testForeignDictIsRejectedWithCache(@TempDir final Path tempDir) throws IOException {
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(ZChunkFileTest.TEST_FILE);
+    final byte[] file = Files.readAllBytes(ZChunkFileTest.TEST_FILE.toPath());
+    // same declared dict checksum, but another dict.
+    file[(int) OffsetUtil.getDictOffset(header) + 10] ^= 0x01;
+    final Path foreignDict = Files.write(tempDir.resolve("foreign-dict.zck"), file);
+    final DecompressedChunkCache cache = new DecompressedChunkCache(1024L * 1024L);
+
+    try (final ZChunkReader original = ZChunkReader.open(ZChunkFileTest.TEST_FILE.toPath(), cache)) {
+      original.read(0L, ByteBuffer.allocate(10));
+    }
+
+    Assertions.assertAll(
+        () -> Assertions.assertThrows(InvalidFileException.class, () -> ZChunkReader.open(foreignDict, cache)),
+        () -> Assertions.assertEquals(1, cache.size())
+    );
+  }
+
+  @Test
+  public void testReadWithSharedCache() throws IOException {
+    final DecompressedChunkCache cache = new DecompressedChunkCache(1024L * 1024L);
+
+    try (final ZChunkReader first = ZChunkReader.open(ZChunkFileTest.TEST_FILE.toPath(), cache);
+        final ZChunkReader second = ZChunkReader.open(ZChunkFileTest.TEST_FILE.toPath(), cache)) {
+      final ByteBuffer firstContent = ByteBuffer.allocate(expected.length);
+      first.read(0L, firstContent);
+      final long missCount = cache.getMissCount();
+      final ByteBuffer secondContent = ByteBuffer.allocate(expected.length);
+      second.read(0L, secondContent);
+
+      Assertions.assertAll(
+          () -> Assertions.assertArrayEquals(expected, firstContent.array()),
+          () -> Assertions.assertArrayEquals(expected, secondContent.array()),
+          () -> Assertions.assertEquals(missCount, cache.getMissCount()),
+          () -> Assertions.assertEquals(32L, cache.getHitCount() + cache.getMissCount()),
+          () -> Assertions.assertTrue(cache.getHitCount() >= 16L)
+      );
+    }
+  }
+
+  @Test
+  public void testCorruptChunkIsNotCached(@TempDir final Path tempDir) throws IOException {
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(ZChunkFileTest.TEST_FILE);
+    final byte[] file = Files.readAllBytes(ZChunkFileTest.TEST_FILE.toPath());
+    file[(int) OffsetUtil.getChunkOffset(header, 0L) + 1] ^= 0x01;
+    final Path corrupt = Files.write(tempDir.resolve("corrupt.zck"), file);
+    final DecompressedChunkCache cache = new DecompressedChunkCache(1024L * 1024L);
+
+    try (final ZChunkReader reader = ZChunkReader.open(corrupt, cache)) {
+      Assertions.assertThrows(InvalidFileException.class, () -> reader.read(0L, ByteBuffer.allocate(10)));
+    }
+
+    Assertions.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testChannel() throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    try (final ZChunkReader reader = ZChunkReader.open(ZChunkFileTest.TEST_FILE.toPath())) {
+      final SeekableByteChannel channel = reader.newChannel();
+      final ByteBuffer buffer = ByteBuffer.allocate(1000);
+
+      while (channel.read(buffer) != -1) {
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+      }
+
+      channel.position(10L);
+      buffer.limit(5);
+      channel.read(buffer);
+
+      Assertions.assertAll(
+          () -> Assertions.assertArrayEquals(expected, out.toByteArray()),
+          () -> Assertions.assertEquals(15L, channel.position()),
+          () -> Assertions.assertArrayEquals(Arrays.copyOfRange(expected, 10, 15), Arrays.copyOf(buffer.array(), 5)),
+          () -> Assertions.assertThrows(NonWritableChannelException.class, () -> channel.write(ByteBuffer.allocate(1)))
+      );
+
+      channel.close();
+      Assertions.assertThrows(ClosedChannelException.class, () -> channel.read(ByteBuffer.allocate(1)));
+    }
+  }
+
+  @Test
+  public void testTransferTo() throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    try (final ZChunkReader reader = ZChunkReader.open(ZChunkFileTest.TEST_FILE.toPath())) {
+      final long transferred = reader.transferTo(7L, expected.length, Channels.newChannel(out));
+
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(expected.length - 7L, transferred),
+          () -> Assertions.assertArrayEquals(Arrays.copyOfRange(expected, 7, expected.length), out.toByteArray()),
+          () -> Assertions.assertEquals(0L, reader.transferTo(reader.size(), 10L, Channels.newChannel(out)))
+      );
+    }
+  }
+
+  @Test
+  public void testPassThrough() throws IOException {
+    final byte[] file = Files.readAllBytes(ZChunkFileTest.TEST_FILE.toPath());
+    final ZChunkHeader header = asStoredUncompressed(ZChunkHeaderFactory.getZChunkFileHeader(ZChunkFileTest.TEST_FILE));
+    // the chunks are taken as they are, so the content is the data section of the file.
+    final int dataOffset = (int) OffsetUtil.getChunkOffset(header, 0L);
+    final int storedLength = (int) header.getIndex().getChunks().getTotalLength();
+    final byte[] stored = Arrays.copyOfRange(file, dataOffset, dataOffset + storedLength);
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    try (final ZChunkReader reader = ZChunkReader.open(FileChannel.open(ZChunkFileTest.TEST_FILE.toPath()), header)) {
+      final ByteBuffer range = ByteBuffer.allocate(100);
+      range.position(10);
+      final int read = reader.read(stored.length - 50L, range);
+      final long transferred = reader.transferTo(3L, stored.length, Channels.newChannel(out));
+
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(stored.length, reader.size()),
+          () -> Assertions.assertEquals(50, read),
+          () -> Assertions.assertEquals(60, range.position()),
+          () -> Assertions.assertArrayEquals(Arrays.copyOfRange(stored, stored.length - 50, stored.length), Arrays.copyOfRange(range.array(), 10, 60)),
+          () -> Assertions.assertEquals(-1, reader.read(stored.length, ByteBuffer.allocate(1))),
+          () -> Assertions.assertEquals(stored.length - 3L, transferred),
+          () -> Assertions.assertArrayEquals(Arrays.copyOfRange(stored, 3, stored.length), out.toByteArray())
+      );
+    }
+
+    final ZChunkHeader compressedHeader = ZChunkHeaderFactory.getZChunkFileHeader(ZChunkFileTest.TEST_FILE);
+    final ZChunkHeader withDict = ImmutableZChunkHeader.copyOf(header)
+        .withIndex(ImmutableZChunkHeaderIndex.copyOf(header.getIndex()).withDictLength(compressedHeader.getIndex().getDictLength()));
+    final ZChunkHeader withCompressedLengths = ImmutableZChunkHeader.copyOf(header)
+        .withIndex(ImmutableZChunkHeaderIndex.copyOf(header.getIndex()).withChunks(compressedHeader.getIndex().getChunks()));
+    // the same total length, but chunk 0 would take the first byte of chunk 1.
+    final ZChunkHeader shiftedLengths = withChunkLengths(header, 0, 1L, 1, -1L);
+    try (final FileChannel channel = FileChannel.open(ZChunkFileTest.TEST_FILE.toPath())) {
+      Assertions.assertAll(
+          () -> Assertions.assertThrows(UnsupportedOperationException.class,
+              () -> ZChunk.transferStoredContent(compressedHeader, channel, 0L, 1L, Channels.newChannel(out))),
+          () -> Assertions.assertThrows(InvalidFileException.class,
+              () -> ZChunk.transferStoredContent(shiftedLengths, channel, 0L, 1L, Channels.newChannel(out))),
+          () -> Assertions.assertThrows(InvalidFileException.class, () -> ZChunkReader.open(channel, shiftedLengths)),
+          () -> Assertions.assertThrows(InvalidFileException.class,
+              () -> ZChunk.transferStoredContent(withDict, channel, 0L, 1L, Channels.newChannel(out))),
+          () -> Assertions.assertThrows(InvalidFileException.class,
+              () -> ZChunk.transferStoredContent(withCompressedLengths, channel, 0L, 1L, Channels.newChannel(out)))
+      );
+    }
+  }
+
+  @Test
+  public void testTransferToStalledTarget() throws IOException {
+    final ZChunkHeader stored = asStoredUncompressed(ZChunkHeaderFactory.getZChunkFileHeader(ZChunkFileTest.TEST_FILE));
+
+    try (final ZChunkReader reader = ZChunkReader.open(ZChunkFileTest.TEST_FILE.toPath());
+        final ZChunkReader storedReader = ZChunkReader.open(FileChannel.open(ZChunkFileTest.TEST_FILE.toPath()), stored)) {
+      Assertions.assertAll(
+          () -> Assertions.assertThrows(IOException.class, () -> reader.transferTo(0L, 10L, new StalledChannel())),
+          () -> Assertions.assertThrows(IOException.class, () -> storedReader.transferTo(0L, 10L, new StalledChannel()))
+      );
+    }
+  }
+
+  /**
+   * Changes the stored length of two chunks by the given amounts, keeping their uncompressed lengths.
+   */
+  private static ZChunkHeader withChunkLengths(final ZChunkHeader header,
+                                               final int firstChunk,
+                                               final long firstDelta,
+                                               final int secondChunk,
+                                               final long secondDelta) {
+    final ChunkIndex chunks = header.getIndex().getChunks();
+    final long[] lengths = new long[chunks.getChunkCount()];
+    final long[] uncompressedLengths = new long[chunks.getChunkCount()];
+    final ByteArrayOutputStream checksums = new ByteArrayOutputStream();
+
+    for (int chunkNumber = 0; chunkNumber < lengths.length; chunkNumber++) {
+      lengths[chunkNumber] = chunks.getChunkLength(chunkNumber);
+      uncompressedLengths[chunkNumber] = chunks.getUncompressedChunkLength(chunkNumber);
+      checksums.write(chunks.getChunkChecksum(chunkNumber), 0, chunks.getChecksumLength());
+    }
+    lengths[firstChunk] += firstDelta;
+    lengths[secondChunk] += secondDelta;
+
+    return ImmutableZChunkHeader.copyOf(header).withIndex(ImmutableZChunkHeaderIndex.copyOf(header.getIndex())
+        .withChunks(ChunkIndex.of(chunks.getChecksumLength(), checksums.toByteArray(), lengths, uncompressedLengths)));
+  }
+
+  /**
+   * A non-blocking target which never accepts any bytes.
+   */
+  private static final class StalledChannel implements WritableByteChannel {
+
+    @Override
+    public int write(final ByteBuffer src) {
+      return 0;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {
+      // nothing to close.
+    }
+  }
+
+  /**
+   * Pretends the chunks of a header are stored with compression type none, i.e. each chunk's uncompressed length is
+   * its stored length and there is no dict.
+   */
+  private static ZChunkHeader asStoredUncompressed(final ZChunkHeader header) {
+    final ChunkIndex chunks = header.getIndex().getChunks();
+    final long[] lengths = new long[chunks.getChunkCount()];
+    final ByteArrayOutputStream checksums = new ByteArrayOutputStream();
+
+    for (int chunkNumber = 0; chunkNumber < lengths.length; chunkNumber++) {
+      lengths[chunkNumber] = chunks.getChunkLength(chunkNumber);
+      checksums.write(chunks.getChunkChecksum(chunkNumber), 0, chunks.getChecksumLength());
+    }
+
+    final ZChunkHeaderIndex index = ImmutableZChunkHeaderIndex.copyOf(header.getIndex())
+        .withDictLength(CompressedIntFactory.valueOf(0L))
+        .withUncompressedDictLength(CompressedIntFactory.valueOf(0L))
+        .withChunks(ChunkIndex.of(chunks.getChecksumLength(), checksums.toByteArray(), lengths, lengths));
+    final ZChunkHeaderPreface preface = ImmutableZChunkHeaderPreface.copyOf(header.getPreface())
+        .withCompressionAlgorithm(CompressionAlgorithmFactory.forType(0L));
+
+    return ImmutableZChunkHeader.copyOf(header).withIndex(index).withPreface(preface);
+  }
+}
@@ -16,8 +16,14 @@
 
 package io.github.zchunk.fileformat;
 
+import io.github.zchunk.fileformat.util.ChecksumUtil;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class ZChunkTest {
 
@@ -47,4 +53,23 @@ public class ZChunkTest {
         () -> ZChunk.validateFile(ZChunkFileTest.TEST_FILE_HEADER_DIGEST_INVALID));
   }
 
+  @Test
+  public void testZChunk_validate_chunks(@TempDir final Path tempDir) throws IOException {
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(ZChunkFileTest.TEST_FILE);
+    final byte[] file = Files.readAllBytes(ZChunkFileTest.TEST_FILE.toPath());
+
+    final byte[] corruptBytes = file.clone();
+    // last byte of the last chunk.
+    corruptBytes[corruptBytes.length - 1] ^= 0x01;
+    final Path corrupt = Files.write(tempDir.resolve("corrupt.zck"), corruptBytes);
+    final Path truncated = Files.write(tempDir.resolve("truncated.zck"), Arrays.copyOf(file, file.length - 1));
+
+    Assertions.assertAll(
+        () -> Assertions.assertTrue(ChecksumUtil.allChunksAreValid(header, ZChunkFileTest.TEST_FILE)),
+        () -> Assertions.assertFalse(ChecksumUtil.allChunksAreValid(header, corrupt.toFile())),
+        () -> Assertions.assertFalse(ChecksumUtil.allChunksAreValid(header, truncated.toFile())),
+        () -> Assertions.assertFalse(ChecksumUtil.isValidData(header, corrupt.toFile()))
+    );
+  }
+
 }
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat.parser;
+
+import io.github.zchunk.compressedint.CompressedIntFactory;
+import io.github.zchunk.compressedint.CompressedIntUtil;
+import io.github.zchunk.fileformat.ChunkIndex;
+import io.github.zchunk.fileformat.ZChunkConstants;
+import io.github.zchunk.fileformat.ZChunkHeader;
+import io.github.zchunk.fileformat.ZChunkHeaderFactory;
+import io.github.zchunk.fileformat.err.InvalidFileException;
+import io.github.zchunk.fileformat.util.OffsetUtil;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ChunkInfoStreamReaderTest {
+
+  private static final File TEST_FILE = new File(
+      ChunkInfoStreamReaderTest.class.getResource("/testfiles/LICENSE.dict.fodt.zck").getPath());
+
+  @Test
+  public void testVisitChunks() throws IOException {
+    final ChunkIndex chunks = ZChunkHeaderFactory.getZChunkFileHeader(TEST_FILE).getIndex().getChunks();
+    final AtomicInteger visited = new AtomicInteger();
+
+    try (final FileChannel channel = FileChannel.open(TEST_FILE.toPath(), StandardOpenOption.READ)) {
+      final int chunkCount = ChunkInfoStreamReader.visitChunks(channel, (chunkNumber, checksum, length, uncompressedLength) -> {
+        Assertions.assertEquals(visited.getAndIncrement(), chunkNumber);
+        Assertions.assertTrue(chunks.chunkChecksumEquals(chunkNumber, checksum, 0));
+        Assertions.assertEquals(chunks.getChunkLength(chunkNumber), length);
+        Assertions.assertEquals(chunks.getUncompressedChunkLength(chunkNumber), uncompressedLength);
+      });
+
+      Assertions.assertEquals(chunks.getChunkCount(), chunkCount);
+      Assertions.assertEquals(chunks.getChunkCount(), visited.get());
+    }
+  }
+
+  @Test
+  public void testVisitChunks_truncated() throws IOException {
+    final ByteBuffer header = ByteBuffer.allocate(200);
+
+    try (final FileChannel channel = FileChannel.open(TEST_FILE.toPath(), StandardOpenOption.READ)) {
+      channel.read(header, 0L);
+    }
+
+    final ReadableByteChannel truncated = Channels.newChannel(new ByteArrayInputStream(header.array()));
+
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> ChunkInfoStreamReader.visitChunks(truncated, (chunkNumber, checksum, length, uncompressedLength) -> { }));
+  }
+
+  @Test
+  public void testLazyIndex() throws IOException {
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(TEST_FILE);
+    final ChunkIndex lazy = header.getIndex().getChunks();
+
+    final byte[] checksums = new byte[lazy.getChunkCount() * lazy.getChecksumLength()];
+    final long[] lengths = new long[lazy.getChunkCount()];
+    final long[] uncompressedLengths = new long[lazy.getChunkCount()];
+
+    try (final FileChannel channel = FileChannel.open(TEST_FILE.toPath(), StandardOpenOption.READ)) {
+      ChunkInfoStreamReader.visitChunks(channel, (chunkNumber, checksum, length, uncompressedLength) -> {
+        System.arraycopy(checksum, 0, checksums, chunkNumber * checksum.length, checksum.length);
+        lengths[chunkNumber] = length;
+        uncompressedLengths[chunkNumber] = uncompressedLength;
+      });
+    }
+
+    final ChunkIndex eager = ChunkIndex.of(lazy.getChecksumLength(), checksums, lengths, uncompressedLengths);
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(eager, lazy),
+        () -> Assertions.assertEquals(eager.hashCode(), lazy.hashCode()),
+        () -> Assertions.assertEquals(eager.getTotalUncompressedLength(), lazy.getTotalUncompressedLength())
+    );
+  }
+
+  @Test
+  public void testVisitChunks_unknownChunkChecksumType() throws IOException {
+    final byte[] file = Files.readAllBytes(TEST_FILE.toPath());
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(TEST_FILE);
+    final long indexStart = OffsetUtil.getLeadLength(header.getLead()) + OffsetUtil.getPrefaceLength(header.getPreface());
+    // a single byte compressed int with the value 127.
+    file[(int) indexStart + header.getIndex().getIndexSize().getCompressedBytes().length] = (byte) 0xff;
+
+    final ReadableByteChannel unknown = Channels.newChannel(new ByteArrayInputStream(file));
+
+    Assertions.assertThrows(UnsupportedOperationException.class,
+        () -> ChunkInfoStreamReader.visitChunks(unknown, (chunkNumber, checksum, length, uncompressedLength) -> { }));
+  }
+
+  @Test
+  public void testVisitChunks_hugeChunkCount() throws IOException {
+    final byte[] file = Files.readAllBytes(TEST_FILE.toPath());
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(TEST_FILE);
+    final long indexStart = OffsetUtil.getLeadLength(header.getLead()) + OffsetUtil.getPrefaceLength(header.getPreface());
+    final int chunkCountOffset = (int) indexStart + header.getIndex().getIndexSize().getCompressedBytes().length
+        + header.getIndex().getChunkChecksumTypeInt().getCompressedBytes().length;
+    final byte[] hugeCount = CompressedIntFactory.valueOf(1L << 31).getCompressedBytes();
+
+    final ByteArrayOutputStream crafted = new ByteArrayOutputStream();
+    crafted.write(file, 0, chunkCountOffset);
+    crafted.write(hugeCount, 0, hugeCount.length);
+    crafted.write(file, chunkCountOffset + 1, file.length - chunkCountOffset - 1);
+    final ReadableByteChannel huge = Channels.newChannel(new ByteArrayInputStream(crafted.toByteArray()));
+
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> ChunkInfoStreamReader.visitChunks(huge, (chunkNumber, checksum, length, uncompressedLength) -> { }));
+  }
+
+  @Test
+  public void testVisitChunks_invalidMagic() throws IOException {
+    final byte[] file = Files.readAllBytes(TEST_FILE.toPath());
+    file[1] = 'X';
+
+    final ReadableByteChannel invalid = Channels.newChannel(new ByteArrayInputStream(file));
+
+    Assertions.assertThrows(InvalidFileException.class,
+        () -> ChunkInfoStreamReader.visitChunks(invalid, (chunkNumber, checksum, length, uncompressedLength) -> { }));
+  }
+
+  @Test
+  public void testVisitChunks_optionalElementExceedsHeader() {
+    final ByteArrayOutputStream header = new ByteArrayOutputStream();
+    header.write(ZChunkConstants.Header.FILE_MAGIC, 0, ZChunkConstants.Header.FILE_MAGIC.length);
+    // SHA-1 header checksum and a header size of 64 bytes.
+    header.write(0x80);
+    header.write(0x80 | 64);
+    header.write(new byte[20], 0, 20);
+    // preface: data checksum, optional elements flag, no compression and a single element of 2 GiB.
+    header.write(new byte[20], 0, 20);
+    header.write(0x82);
+    header.write(0x80);
+    header.write(0x81);
+    header.write(0x80);
+    final byte[] dataSize = CompressedIntUtil.compress(1L << 31);
+    header.write(dataSize, 0, dataSize.length);
+
+    final ReadableByteChannel huge = Channels.newChannel(new ByteArrayInputStream(header.toByteArray()));
+
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> ChunkInfoStreamReader.visitChunks(huge, (chunkNumber, checksum, length, uncompressedLength) -> { }));
+  }
+
+  @Test
+  public void testVisitChunks_recordsExceedIndex() throws IOException {
+    final byte[] file = Files.readAllBytes(TEST_FILE.toPath());
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(TEST_FILE);
+    final int indexStart = (int) (OffsetUtil.getLeadLength(header.getLead()) + OffsetUtil.getPrefaceLength(header.getPreface()));
+    // one byte short, so the last record runs past the end of the index.
+    final byte[] indexSize = CompressedIntUtil.compress(header.getIndex().getIndexSize().getLongValue() - 1L);
+    Assertions.assertEquals(header.getIndex().getIndexSize().getCompressedLength(), indexSize.length);
+    System.arraycopy(indexSize, 0, file, indexStart, indexSize.length);
+    final AtomicInteger visited = new AtomicInteger();
+
+    final ReadableByteChannel overrun = Channels.newChannel(new ByteArrayInputStream(file));
+
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> ChunkInfoStreamReader.visitChunks(overrun, (chunkNumber, checksum, length, uncompressedLength) -> visited.incrementAndGet()));
+    Assertions.assertEquals(header.getIndex().getChunks().getChunkCount() - 1, visited.get());
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat.parser;
+
+import io.github.zchunk.compressedint.CompressedIntFactory;
+import io.github.zchunk.compressedint.CompressedIntView;
+import io.github.zchunk.fileformat.ZChunkHeader;
+import io.github.zchunk.fileformat.ZChunkHeaderFactory;
+import io.github.zchunk.fileformat.err.InvalidFileException;
+import io.github.zchunk.fileformat.util.OffsetUtil;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ZChunkHeaderParserTest {
+
+  private static final File TEST_FILE = new File(
+      ZChunkHeaderParserTest.class.getResource("/testfiles/LICENSE.dict.fodt.zck").getPath());
+
+  @Test
+  public void testParse_heapAndDirectBuffer() throws IOException {
+    final byte[] file = Files.readAllBytes(TEST_FILE.toPath());
+    final ZChunkHeader expected = ZChunkHeaderFactory.getZChunkFileHeader(TEST_FILE);
+
+    final ZChunkHeaderParser heapParser = ZChunkHeaderParser.fromBuffer(ByteBuffer.wrap(file));
+    final ZChunkHeader fromHeap = heapParser.parse();
+
+    final ByteBuffer direct = ByteBuffer.allocateDirect(file.length);
+    direct.put(file).flip();
+    final ZChunkHeader fromDirect = ZChunkHeaderParser.fromBuffer(direct).parse();
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(OffsetUtil.getTotalHeaderSize(expected.getLead()), heapParser.getBytesRead()),
+        () -> Assertions.assertEquals(0, direct.position()),
+        // only the header itself is retained, not the whole input.
+        () -> Assertions.assertEquals(heapParser.getBytesRead(), fromHeap.getRawHeader().get().capacity()),
+        () -> Assertions.assertEquals(expected.getIndex().getChunkCount(), fromHeap.getIndex().getChunkCount()),
+        () -> Assertions.assertEquals(16, fromHeap.getIndex().getChunkInfo().size()),
+        () -> Assertions.assertEquals(0L, fromHeap.getSignatures().getSignatureCount().getLongValue()),
+        () -> Assertions.assertArrayEquals(fromHeap.getLead().getChecksum(), fromDirect.getLead().getChecksum()),
+        () -> Assertions.assertEquals(fromHeap.getIndex().getChunkInfo().size(), fromDirect.getIndex().getChunkInfo().size())
+    );
+  }
+
+  @Test
+  public void testParse_compressedIntViews() throws IOException {
+    final byte[] file = Files.readAllBytes(TEST_FILE.toPath());
+    final ZChunkHeader expected = ZChunkHeaderFactory.getZChunkFileHeader(TEST_FILE);
+
+    final ZChunkHeader parsed = ZChunkHeaderParser.fromBytes(file).parse();
+    // the views must point into the header copy, not into the larger input.
+    Arrays.fill(file, (byte) 0);
+
+    Assertions.assertAll(
+        () -> Assertions.assertTrue(parsed.getLead().getHeaderSize() instanceof CompressedIntView),
+        () -> Assertions.assertTrue(parsed.getIndex().getChunkCount() instanceof CompressedIntView),
+        () -> Assertions.assertEquals(expected.getLead().getHeaderSize(), parsed.getLead().getHeaderSize()),
+        () -> Assertions.assertEquals(expected.getLead().getChecksumTypeInt(), parsed.getLead().getChecksumTypeInt()),
+        () -> Assertions.assertEquals(expected.getPreface().getPrefaceFlagsInt(), parsed.getPreface().getPrefaceFlagsInt()),
+        () -> Assertions.assertEquals(expected.getIndex().getIndexSize(), parsed.getIndex().getIndexSize())
+    );
+  }
+
+  @Test
+  public void testReadOutOfOrder() throws IOException {
+    final ZChunkHeaderParser parser = ZChunkHeaderParser.fromBytes(Files.readAllBytes(TEST_FILE.toPath()));
+
+    Assertions.assertThrows(IllegalStateException.class, parser::readSignatures);
+  }
+
+  @Test
+  public void testTruncatedHeader() throws IOException {
+    final byte[] file = Files.readAllBytes(TEST_FILE.toPath());
+    final ZChunkHeaderParser parser = ZChunkHeaderParser.fromBuffer(ByteBuffer.wrap(file, 0, 100));
+
+    Assertions.assertThrows(IllegalArgumentException.class, parser::parse);
+  }
+
+  @Test
+  public void testInvalidMagic() throws IOException {
+    final byte[] file = Files.readAllBytes(TEST_FILE.toPath());
+    file[1] = 'X';
+
+    Assertions.assertThrows(InvalidFileException.class, () -> ZChunkHeaderParser.fromBytes(file).readLead());
+  }
+
+  @Test
+  public void testDataStreams() throws IOException {
+    final byte[] file = Files.readAllBytes(TEST_FILE.toPath());
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(TEST_FILE);
+    final int flagsOffset = OffsetUtil.getLeadLength(header.getLead()) + header.getLead().getChecksumType().getDigestLength();
+    // the single byte preface flags.
+    file[flagsOffset] |= 0x01;
+
+    final ReadableByteChannel dataStreams = Channels.newChannel(new ByteArrayInputStream(file));
+
+    Assertions.assertAll(
+        () -> Assertions.assertThrows(InvalidFileException.class, () -> ZChunkHeaderParser.fromBytes(file).parse()),
+        () -> Assertions.assertThrows(InvalidFileException.class,
+            () -> ChunkInfoStreamReader.visitChunks(dataStreams, (chunkNumber, checksum, length, uncompressedLength) -> { }))
+    );
+  }
+
+  @Test
+  public void testUnknownChunkChecksumType() throws IOException {
+    final byte[] file = Files.readAllBytes(TEST_FILE.toPath());
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(TEST_FILE);
+    final long indexStart = OffsetUtil.getLeadLength(header.getLead()) + OffsetUtil.getPrefaceLength(header.getPreface());
+    // a single byte compressed int with the value 127.
+    file[(int) indexStart + header.getIndex().getIndexSize().getCompressedBytes().length] = (byte) 0xff;
+
+    final IllegalArgumentException unknown = Assertions.assertThrows(IllegalArgumentException.class,
+        () -> ZChunkHeaderParser.fromBytes(file).parse());
+
+    Assertions.assertEquals("Cannot find index type.", unknown.getMessage());
+  }
+
+  @Test
+  public void testHugeChunkCount() throws IOException {
+    final byte[] file = Files.readAllBytes(TEST_FILE.toPath());
+    final ZChunkHeader header = ZChunkHeaderFactory.getZChunkFileHeader(TEST_FILE);
+    final long indexStart = OffsetUtil.getLeadLength(header.getLead()) + OffsetUtil.getPrefaceLength(header.getPreface());
+    final int chunkCountOffset = (int) indexStart + header.getIndex().getIndexSize().getCompressedBytes().length
+        + header.getIndex().getChunkChecksumTypeInt().getCompressedBytes().length;
+    final byte[] hugeCount = CompressedIntFactory.valueOf(1L << 31).getCompressedBytes();
+
+    // replaces the single byte chunk count, the index size still covers the original records only.
+    final ByteArrayOutputStream crafted = new ByteArrayOutputStream();
+    crafted.write(file, 0, chunkCountOffset);
+    crafted.write(hugeCount, 0, hugeCount.length);
+    crafted.write(file, chunkCountOffset + 1, file.length - chunkCountOffset - 1);
+
+    final IllegalArgumentException tooLarge = Assertions.assertThrows(IllegalArgumentException.class,
+        () -> ZChunkHeaderParser.fromBytes(crafted.toByteArray()).parse());
+
+    Assertions.assertTrue(tooLarge.getMessage().startsWith("Chunk count [2147483648]"));
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019, the zchunk-java contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.zchunk.fileformat.parser;
+
+import io.github.zchunk.compressedint.CompressedIntFactory;
+import io.github.zchunk.fileformat.HeaderChecksumType;
+import io.github.zchunk.fileformat.ZChunkConstants;
+import io.github.zchunk.fileformat.ZChunkHeader;
+import io.github.zchunk.fileformat.ZChunkHeaderFactory;
+import io.github.zchunk.fileformat.err.InvalidFileException;
+import io.github.zchunk.fileformat.util.OffsetUtil;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ZChunkHeaderReaderTest {
+
+  private static final File TEST_FILE = new File(
+      ZChunkHeaderReaderTest.class.getResource("/testfiles/LICENSE.dict.fodt.zck").getPath());
+
+  @Test
+  public void testRead_shortReads() throws IOException {
+    final byte[] file = Files.readAllBytes(TEST_FILE.toPath());
+    final ZChunkHeader expected = ZChunkHeaderFactory.getZChunkFileHeader(TEST_FILE);
+    final int totalHeaderSize = OffsetUtil.getTotalHeaderSize(expected.getLead());
+    final InputStream trickle = new OneByteInputStream(new ByteArrayInputStream(file));
+
+    final ZChunkHeader header = ZChunkHeaderReader.read(Channels.newChannel(trickle));
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(expected.getIndex().getChunks(), header.getIndex().getChunks()),
+        () -> Assertions.assertArrayEquals(expected.getLead().getChecksum(), header.getLead().getChecksum()),
+        // the stream is positioned at the first byte after the header.
+        () -> Assertions.assertEquals(file.length - totalHeaderSize, trickle.available())
+    );
+  }
+
+  @Test
+  public void testUpdate() throws IOException {
+    final byte[] file = Files.readAllBytes(TEST_FILE.toPath());
+    final ZChunkHeaderReader reader = new ZChunkHeaderReader();
+
+    Assertions.assertEquals(-1, reader.getTotalHeaderSize());
+    Assertions.assertFalse(reader.update(ByteBuffer.wrap(file, 0, 3)));
+    Assertions.assertThrows(IllegalStateException.class, reader::getHeader);
+
+    final ByteBuffer rest = ByteBuffer.wrap(file, 3, file.length - 3);
+    Assertions.assertTrue(reader.update(rest));
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(434, reader.getTotalHeaderSize()),
+        () -> Assertions.assertEquals(0, reader.getBytesNeeded()),
+        () -> Assertions.assertEquals(434, rest.position()),
+        () -> Assertions.assertEquals(16, reader.getHeader().getIndex().getChunks().getChunkCount())
+    );
+  }
+
+  @Test
+  public void testRead_truncated() throws IOException {
+    final byte[] truncated = Arrays.copyOf(Files.readAllBytes(TEST_FILE.toPath()), 300);
+
+    Assertions.assertAll(
+        () -> Assertions.assertThrows(EOFException.class,
+            () -> ZChunkHeaderReader.read(Channels.newChannel(new ByteArrayInputStream(truncated)))),
+        () -> Assertions.assertThrows(IllegalArgumentException.class,
+            () -> ZChunkHeaderFactory.fromStream(new ByteArrayInputStream(truncated)))
+    );
+  }
+
+  @Test
+  public void testUpdate_invalidMagic() {
+    final ZChunkHeaderReader reader = new ZChunkHeaderReader();
+    final ByteBuffer notZck = ByteBuffer.wrap("not a zchunk file".getBytes(StandardCharsets.US_ASCII));
+
+    Assertions.assertAll(
+        () -> Assertions.assertThrows(InvalidFileException.class, () -> reader.update(notZck)),
+        // rejected right after the magic, without consuming any further bytes.
+        () -> Assertions.assertEquals(ZChunkConstants.Header.FILE_MAGIC.length, notZck.position())
+    );
+  }
+
+  @Test
+  public void testUpdate_hugeDeclaredHeaderSize() {
+    final ZChunkHeaderReader reader = new ZChunkHeaderReader();
+    final int headerSize = Integer.MAX_VALUE - 64;
+    final ByteBuffer lead = ByteBuffer.allocate(64)
+        .put(ZChunkConstants.Header.FILE_MAGIC)
+        .put(CompressedIntFactory.valueOf(HeaderChecksumType.SHA256.getIdentifier()).getCompressedBytes())
+        .put(CompressedIntFactory.valueOf(headerSize).getCompressedBytes());
+    final int leadLength = lead.position() + HeaderChecksumType.SHA256.getDigestLength();
+    lead.flip();
+
+    // the buffer only grows with the bytes received, instead of allocating the declared header size up front.
+    Assertions.assertFalse(reader.update(lead));
+
+    Assertions.assertAll(
+        () -> Assertions.assertEquals(leadLength + headerSize, reader.getTotalHeaderSize()),
+        () -> Assertions.assertEquals(leadLength + headerSize - lead.limit(), reader.getBytesNeeded())
+    );
+  }
+
+  /**
+   * Returns at most one byte per read, like a slow pipe.
+   */
+  private static final class OneByteInputStream extends FilterInputStream {
+
+    OneByteInputStream(final InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+      return super.read(buffer, offset, Math.min(1, length));
+    }
+  }
+}